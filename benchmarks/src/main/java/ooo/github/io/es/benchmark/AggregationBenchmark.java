@@ -0,0 +1,40 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.util.SearchResponseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchResponseUtil.readStreamTypeAggregation：读取 terms 聚合分组
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    private static final String AGGREGATION_NAME = "group";
+
+    @Param({"100", "10000"})
+    private int buckets;
+
+    private SearchResponse<Object> response;
+
+    @Setup
+    public void setup() {
+        response = CannedResponses.termsAggregationResponse(AGGREGATION_NAME, buckets);
+    }
+
+    @Benchmark
+    public Map<Object, Long> readStreamTypeAggregation() {
+        return SearchResponseUtil.readStreamTypeAggregation(response, AGGREGATION_NAME);
+    }
+
+}
@@ -0,0 +1,53 @@
+package ooo.github.io.es.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.anno.IndexName;
+import ooo.github.io.es.anno.Type;
+
+import java.util.Date;
+
+/**
+ * 基准测试使用的文档，字段组成参考 dp_resource_data
+ *
+ * @author kaiqin
+ */
+@Data
+@IndexName("benchmark_document")
+public class BenchmarkDocument {
+
+    @Id
+    @JsonProperty("doc_id")
+    @Type(type = {"keyword"})
+    private String docId;
+
+    @JsonProperty("first_level")
+    @Type(type = {"text", "keyword"}, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
+    private String firstLevel;
+
+    @JsonProperty("second_level")
+    @Type(type = {"text", "keyword"}, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
+    private String secondLevel;
+
+    @JsonProperty("dwzd_value")
+    @Type(type = {"text", "keyword"}, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
+    private String dwzdValue;
+
+    @JsonProperty("keyword_text")
+    @Type(type = {"text"}, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
+    private String keywordText;
+
+    @JsonProperty("sjkbm")
+    @Type(type = {"keyword"})
+    private String sjkbm;
+
+    @JsonProperty("score")
+    @Type(type = {"scaled_float"}, scalingFactor = 100)
+    private Double score;
+
+    @JsonProperty("gxrq")
+    @Type(type = {"date"}, format = "yyyy-MM-dd HH:mm:ss||epoch_millis")
+    private Date gxrq;
+
+}
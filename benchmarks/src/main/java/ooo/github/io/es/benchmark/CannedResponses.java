@@ -0,0 +1,136 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 固定的查询响应和文档，基准测试不依赖集群；响应按 Elasticsearch 返回的 JSON 格式拼接后反序列化
+ *
+ * @author kaiqin
+ */
+public final class CannedResponses {
+
+    public static final JsonpMapper MAPPER = new JacksonJsonpMapper();
+
+    private static final String[] WORDS = {"行政许可", "企业登记", "营业执照", "统一社会信用代码", "法定代表人", "注册资本",
+            "经营范围", "市场监督管理局", "公积金缴存", "不动产登记", "数据资源目录", "信息资源提供方"};
+
+    private CannedResponses() {
+    }
+
+    /**
+     * 带高亮的查询响应
+     *
+     * @param hits 命中数量
+     * @return 查询响应
+     */
+    public static SearchResponse<BenchmarkDocument> highlightResponse(int hits) {
+        return searchResponse(highlightResponseJson(hits), BenchmarkDocument.class);
+    }
+
+    /**
+     * 带高亮的查询响应体
+     *
+     * @param hits 命中数量
+     * @return 响应体 JSON
+     */
+    public static String highlightResponseJson(int hits) {
+        StringBuilder json = new StringBuilder(hits * 512);
+        json.append("{\"took\":12,\"timed_out\":false,")
+                .append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String word = WORDS[i % WORDS.length];
+            json.append("{\"_index\":\"benchmark_document\",\"_type\":\"_doc\",\"_id\":\"").append(i).append("\",\"_score\":1.0,")
+                    .append("\"_source\":{\"doc_id\":\"").append(i)
+                    .append("\",\"first_level\":\"").append(word)
+                    .append("\",\"second_level\":\"").append(word).append(word)
+                    .append("\",\"dwzd_value\":\"").append(word).append(i)
+                    .append("\",\"keyword_text\":\"").append(word).append(' ').append(WORDS[(i + 1) % WORDS.length])
+                    .append("\",\"sjkbm\":\"t_").append(i % 50)
+                    .append("\",\"score\":").append(i % 100)
+                    .append(",\"gxrq\":1700000000000},")
+                    .append("\"highlight\":{\"first_level\":[\"<em>").append(word).append("</em>\"],")
+                    .append("\"keyword_text\":[\"<em>").append(word).append("</em> ").append(WORDS[(i + 1) % WORDS.length]).append("\"]}}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * 带 terms 聚合（sterms）的查询响应
+     *
+     * @param aggregationName 聚合名称
+     * @param buckets         分组数量
+     * @return 查询响应
+     */
+    public static SearchResponse<Object> termsAggregationResponse(String aggregationName, int buckets) {
+        StringBuilder json = new StringBuilder(buckets * 48);
+        json.append("{\"took\":3,\"timed_out\":false,")
+                .append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(buckets * 10).append(",\"relation\":\"eq\"},\"hits\":[]},")
+                .append("\"aggregations\":{\"sterms#").append(aggregationName)
+                .append("\":{\"doc_count_error_upper_bound\":0,\"sum_other_doc_count\":0,\"buckets\":[");
+        for (int i = 0; i < buckets; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"key\":\"").append(WORDS[i % WORDS.length]).append(i).append("\",\"doc_count\":").append(buckets - i).append('}');
+        }
+        json.append("]}}}");
+        return parse(json.toString(), JsonpDeserializer.of(Object.class));
+    }
+
+    /**
+     * 待写入的文档
+     *
+     * @param count 文档数量
+     * @return 文档列表
+     */
+    public static List<BenchmarkDocument> documents(int count) {
+        List<BenchmarkDocument> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[i % WORDS.length];
+            BenchmarkDocument document = new BenchmarkDocument();
+            document.setDocId(String.valueOf(i));
+            document.setFirstLevel(word);
+            document.setSecondLevel(word + WORDS[(i + 3) % WORDS.length]);
+            document.setDwzdValue(word + i);
+            document.setKeywordText(word + " " + WORDS[(i + 1) % WORDS.length] + " " + WORDS[(i + 2) % WORDS.length]);
+            document.setSjkbm("t_" + i % 50);
+            document.setScore((double) (i % 100));
+            document.setGxrq(new Date(1700000000000L + i));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    /**
+     * 按 ElasticsearchClient 的方式反序列化查询响应
+     *
+     * @param json           响应体
+     * @param documentClass  _source 的类型
+     * @return 查询响应
+     */
+    public static <T> SearchResponse<T> searchResponse(String json, Class<T> documentClass) {
+        return parse(json, JsonpDeserializer.of(documentClass));
+    }
+
+    private static <T> SearchResponse<T> parse(String json, JsonpDeserializer<T> documentDeserializer) {
+        try (JsonParser parser = MAPPER.jsonProvider().createParser(new StringReader(json))) {
+            return SearchResponse.createSearchResponseDeserializer(documentDeserializer).deserialize(parser, MAPPER);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package ooo.github.io.es.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ooo.github.io.es.http.GzipRequestCompressor;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.protocol.BasicHttpContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GzipRequestCompressor：压缩中文 bulk 请求体
+ * rawBytes / compressedBytes 为每轮迭代（1 秒）处理的压缩前/压缩后字节数，两者之比即压缩率，
+ * 与网络带宽比较可判断 elasticsearch.compression.enabled 是否划算
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+
+    @Param({"100", "5000"})
+    private int documents;
+
+    private byte[] payload;
+
+    private final GzipRequestCompressor compressor = new GzipRequestCompressor(0, null);
+
+    @Setup
+    public void setup() throws IOException {
+        List<BenchmarkDocument> documentList = CannedResponses.documents(documents);
+        ObjectMapper mapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (BenchmarkDocument document : documentList) {
+            out.write(("{\"index\":{\"_id\":\"" + document.getDocId() + "\"}}\n").getBytes(StandardCharsets.UTF_8));
+            out.write(mapper.writeValueAsBytes(document));
+            out.write('\n');
+        }
+        payload = out.toByteArray();
+    }
+
+    @Benchmark
+    public HttpEntityEnclosingRequest gzip(Sizes sizes) throws IOException {
+        HttpPost request = new HttpPost("/_bulk");
+        request.setEntity(new ByteArrayEntity(payload, NDJSON));
+        compressor.compress(request, new BasicHttpContext());
+        sizes.rawBytes += payload.length;
+        sizes.compressedBytes += request.getEntity().getContentLength();
+        return request;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+
+        public long rawBytes;
+
+        public long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawBytes = 0;
+            compressedBytes = 0;
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.util.HighlightUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HighlightUtil.convert：每个命中两个高亮字段
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HighlightBenchmark {
+
+    @Param({"1000", "10000"})
+    private int hits;
+
+    private SearchResponse<BenchmarkDocument> response;
+
+    @Setup
+    public void setup() {
+        response = CannedResponses.highlightResponse(hits);
+    }
+
+    @Benchmark
+    public SearchResponse<BenchmarkDocument> convert() {
+        HighlightUtil.convert(response);
+        return response;
+    }
+
+}
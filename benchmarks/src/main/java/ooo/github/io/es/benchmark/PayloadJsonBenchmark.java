@@ -0,0 +1,53 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import ooo.github.io.es.util.JsonpUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体/响应体日志的序列化（JsonpUtil.toJson）：默认 4096 字节截断与不限制大小对比
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadJsonBenchmark {
+
+    @Param({"4096", "0"})
+    private int maxBytes;
+
+    private BulkRequest bulkRequest;
+
+    private SearchResponse<BenchmarkDocument> searchResponse;
+
+    @Setup
+    public void setup() {
+        List<BulkOperation> operations = new ArrayList<>();
+        for (BenchmarkDocument document : CannedResponses.documents(1000)) {
+            operations.add(BulkOperation.of(o -> o.index(i -> i.id(document.getDocId()).document(document))));
+        }
+        bulkRequest = BulkRequest.of(b -> b.index("benchmark_document").operations(operations));
+        searchResponse = CannedResponses.highlightResponse(1000);
+    }
+
+    @Benchmark
+    public String bulkRequest() {
+        return JsonpUtil.toJson(bulkRequest, CannedResponses.MAPPER, maxBytes);
+    }
+
+    @Benchmark
+    public String searchResponse() {
+        return JsonpUtil.toJson(searchResponse, CannedResponses.MAPPER, maxBytes);
+    }
+
+}
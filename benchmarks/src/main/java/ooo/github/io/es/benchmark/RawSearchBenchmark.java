@@ -0,0 +1,78 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import jakarta.json.stream.JsonParser;
+import ooo.github.io.es.util.SearchHitsWriter;
+import ooo.github.io.es.util.SearchResponseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果转发给前端：反序列化为对象后再序列化、searchRaw（TokenBuffer）+ writeHits、
+ * writeHitsTo（SearchHitsWriter 边解析边复制）三种方式对比，配合 -prof gc 查看分配
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RawSearchBenchmark {
+
+    @Param({"100", "1000"})
+    private int hits;
+
+    private String json;
+
+    private ObjectMapper objectMapper;
+
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        json = CannedResponses.highlightResponseJson(hits);
+        objectMapper = ((JacksonJsonpMapper) CannedResponses.MAPPER).objectMapper();
+        out = new ByteArrayOutputStream(hits * 512);
+    }
+
+    @Benchmark
+    public int pojo() throws IOException {
+        out.reset();
+        SearchResponse<BenchmarkDocument> response = CannedResponses.searchResponse(json, BenchmarkDocument.class);
+        List<BenchmarkDocument> sources = new ArrayList<>(response.hits().hits().size());
+        for (Hit<BenchmarkDocument> hit : response.hits().hits()) {
+            sources.add(hit.source());
+        }
+        objectMapper.writeValue(out, sources);
+        return out.size();
+    }
+
+    @Benchmark
+    public int raw() throws IOException {
+        out.reset();
+        SearchResponseUtil.writeHits(CannedResponses.searchResponse(json, TokenBuffer.class), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int streaming() {
+        out.reset();
+        try (JsonParser parser = CannedResponses.MAPPER.jsonProvider().createParser(new StringReader(json))) {
+            new SearchHitsWriter(out).deserialize(parser, CannedResponses.MAPPER);
+        }
+        return out.size();
+    }
+
+}
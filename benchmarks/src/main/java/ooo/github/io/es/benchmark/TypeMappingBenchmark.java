@@ -0,0 +1,40 @@
+package ooo.github.io.es.benchmark;
+
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import ooo.github.io.es.util.TypeMappingBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TypeMappingBuilder：mapBuilder 读取 DocumentMetadata 缓存的映射，build 每次重新生成
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeMappingBenchmark {
+
+    private DocumentMetadata metadata;
+
+    @Setup
+    public void setup() {
+        metadata = DocumentMetadata.of(BenchmarkDocument.class);
+    }
+
+    @Benchmark
+    public TypeMapping mapBuilder() {
+        return TypeMappingBuilder.mapBuilder(BenchmarkDocument.class);
+    }
+
+    @Benchmark
+    public TypeMapping build() {
+        return TypeMappingBuilder.build(metadata);
+    }
+
+}
@@ -0,0 +1,62 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import ooo.github.io.es.benchmark.BenchmarkDocument;
+import ooo.github.io.es.benchmark.CannedResponses;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elasticsearch7SimpleServiceImpl.bulk 构建请求的部分：读取 @Id 生成 index 操作，再按操作数/字节数拆分
+ * 与 ElasticsearchRequests 同包以访问包内方法
+ *
+ * @author kaiqin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkRequestBenchmark {
+
+    @Param({"1000", "10000"})
+    private int documents;
+
+    private List<BenchmarkDocument> documentList;
+
+    private List<BulkOperation> operations;
+
+    private ElasticsearchProperties.Bulk countOnly;
+
+    private ElasticsearchProperties.Bulk countAndBytes;
+
+    @Setup
+    public void setup() {
+        documentList = CannedResponses.documents(documents);
+        operations = ElasticsearchRequests.indexOperations(documentList);
+        countOnly = new ElasticsearchProperties.Bulk();
+        countOnly.setMaxBytes(0L);
+        countAndBytes = new ElasticsearchProperties.Bulk();
+    }
+
+    @Benchmark
+    public List<BulkOperation> indexOperations() {
+        return ElasticsearchRequests.indexOperations(documentList);
+    }
+
+    @Benchmark
+    public List<BulkRequest> splitByCount() {
+        return ElasticsearchRequests.splitBulk("benchmark_document", operations, countOnly, CannedResponses.MAPPER);
+    }
+
+    @Benchmark
+    public List<BulkRequest> splitByCountAndBytes() {
+        return ElasticsearchRequests.splitBulk("benchmark_document", operations, countAndBytes, CannedResponses.MAPPER);
+    }
+
+}
@@ -1,27 +1,79 @@
 package ooo.github.io.es;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
 import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.bulk.BulkIngester;
+import ooo.github.io.es.bulk.BulkListener;
+import ooo.github.io.es.bulk.BulkRetrier;
+import ooo.github.io.es.cache.SearchResultCache;
 import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.health.ElasticsearchClusterProbe;
+import ooo.github.io.es.health.ElasticsearchEndpoint;
+import ooo.github.io.es.health.ElasticsearchHealthIndicator;
+import ooo.github.io.es.http.GzipRequestCompressor;
+import ooo.github.io.es.log.PayloadLogger;
+import ooo.github.io.es.metadata.IndexNameResolver;
+import ooo.github.io.es.metrics.BulkBytesInterceptor;
+import ooo.github.io.es.metrics.ElasticsearchMetrics;
+import ooo.github.io.es.metrics.MicrometerElasticsearchMetrics;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.service.ElasticsearchService;
+import ooo.github.io.es.service.impl.SearchCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import javax.net.ssl.SSLContext;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 
 /**
@@ -32,6 +84,10 @@ import java.util.Objects;
 @Slf4j
 @Configuration
 @ConditionalOnProperty(name = "elasticsearch.version")
+@AutoConfigureAfter(name = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"})
+@AutoConfigureBefore(name = "org.springframework.boot.actuate.autoconfigure.elasticsearch.ElasticSearchRestHealthContributorAutoConfiguration")
 @EnableConfigurationProperties(ElasticsearchProperties.class)
 @ComponentScan("ooo.github.io.es")
 public class ElasticsearchAutoConfiguration {
@@ -45,50 +101,380 @@ public class ElasticsearchAutoConfiguration {
     }
 
     /**
-     * create the API client
+     * 连接池，单独创建以便 /actuator/elasticsearch 读取连接使用情况；池大小、IO 线程数在这里配置
      *
-     * @return ElasticsearchClient
+     * @return 连接池
+     * @throws IOReactorException       IO 线程创建失败
+     * @throws NoSuchAlgorithmException 默认 SSLContext 不可用
      */
-    @Bean("esClient")
-    @Primary
-    public ElasticsearchClient client() {
+    @Bean("esConnectionManager")
+    public PoolingNHttpClientConnectionManager connectionManager() throws IOReactorException, NoSuchAlgorithmException {
+        ElasticsearchProperties.Pool pool = properties.getPool();
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom()
+                .setSoKeepAlive(Boolean.TRUE.equals(pool.getSoKeepAlive()));
+        if (pool.getIoThreadCount() != null && pool.getIoThreadCount() > 0) {
+            ioReactorConfig.setIoThreadCount(pool.getIoThreadCount());
+        }
+        // 与 RestClientBuilder 默认的 SSL 配置一致
+        Registry<SchemeIOSessionStrategy> sessionStrategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", new SSLIOSessionStrategy(SSLContext.getDefault(), SSLIOSessionStrategy.getDefaultHostnameVerifier()))
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(ioReactorConfig.build()), sessionStrategies);
+        if (pool.getMaxConnTotal() != null && pool.getMaxConnTotal() > 0) {
+            connectionManager.setMaxTotal(pool.getMaxConnTotal());
+        }
+        if (pool.getMaxConnPerRoute() != null && pool.getMaxConnPerRoute() > 0) {
+            connectionManager.setDefaultMaxPerRoute(pool.getMaxConnPerRoute());
+        }
+        return connectionManager;
+    }
+
+    /**
+     * 底层 RestClient，同步/异步客户端共用
+     *
+     * @param failureListener   节点失败回调（开启嗅探时为 SniffOnFailureListener）
+     * @param metrics           指标，存在时统计 bulk 请求体字节数和 gzip 节省的字节数
+     * @param connectionManager 连接池
+     * @return RestClient
+     */
+    @Bean(value = "esRestClient", destroyMethod = "close")
+    public RestClient restClient(ObjectProvider<RestClient.FailureListener> failureListener,
+                                 ObjectProvider<ElasticsearchMetrics> metrics,
+                                 @Qualifier("esConnectionManager") PoolingNHttpClientConnectionManager connectionManager) {
         if (StringUtils.isEmpty(properties.getVersion())) {
             throw new IllegalArgumentException("elasticsearch.version 不能为空");
         }
-        if (StringUtils.isEmpty(properties.getHost())) {
-            throw new IllegalArgumentException("elasticsearch.host 不能为空");
-        }
+        HttpHost[] hosts = httpHosts(properties);
+
+        log.info("创建 Elasticsearch 客户端，版本: {}, hosts: {}", properties.getVersion(), Arrays.toString(hosts));
+        RestClientBuilder builder = RestClient.builder(hosts);
 
-        log.info("创建 Elasticsearch 客户端，版本: {}, host: {}, port: {}", 
-                properties.getVersion(), properties.getHost(), properties.getPort());
-        RestClientBuilder builder = RestClient.builder(new HttpHost(properties.getHost(), properties.getPort()));
-        
         // 配置认证
+        CredentialsProvider credentialsProvider = null;
         if (StringUtils.hasText(properties.getUsername()) && StringUtils.hasText(properties.getPassword())
                 && !Objects.equals(DEFAULT_STR, properties.getUsername()) 
                 && !Objects.equals(DEFAULT_STR, properties.getPassword())) {
             //参见elasticsearch的基本认证 https://www.elastic.co/guide/en/elasticsearch/client/java-api-client/master/_basic_authentication.html
-            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider = new BasicCredentialsProvider();
             credentialsProvider.setCredentials(AuthScope.ANY, 
                     new UsernamePasswordCredentials(properties.getUsername(), properties.getPassword()));
-            builder.setHttpClientConfigCallback(httpClientBuilder -> {
-                httpClientBuilder.disableAuthCaching();
-                return httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-            });
             log.debug("已配置 Elasticsearch 基本认证");
         }
+        CredentialsProvider credentials = credentialsProvider;
+        builder.setHttpClientConfigCallback(httpClientBuilder -> {
+            if (credentials != null) {
+                httpClientBuilder.disableAuthCaching();
+                httpClientBuilder.setDefaultCredentialsProvider(credentials);
+            }
+            ElasticsearchMetrics elasticsearchMetrics = metrics.getIfAvailable();
+            if (elasticsearchMetrics != null) {
+                httpClientBuilder.addInterceptorLast(new BulkBytesInterceptor(elasticsearchMetrics));
+            }
+            HttpAsyncClientBuilder configured = configurePool(httpClientBuilder, connectionManager, properties.getPool());
+            // gzip 压缩请求体并接受压缩的响应体，以 CPU 换带宽
+            ElasticsearchProperties.Compression compression = properties.getCompression();
+            if (Boolean.TRUE.equals(compression.getEnabled())) {
+                return new GzipRequestCompressor(compression.getMinSize() == null ? 0 : compression.getMinSize(),
+                        elasticsearchMetrics).wrap(configured);
+            }
+            return configured;
+        });
+        if (Boolean.TRUE.equals(properties.getCompression().getEnabled())) {
+            log.info("已开启 Elasticsearch 请求/响应 gzip 压缩, 压缩请求体的最小字节数: {}", properties.getCompression().getMinSize());
+        }
         
         // 配置超时
         builder.setRequestConfigCallback(builder1 -> builder1
                 .setConnectTimeout(properties.getConnectTimeout())
                 .setSocketTimeout(properties.getSocketTimeout()));
-        
-        RestClient restClient = builder.build();
-        ElasticsearchTransport transport = new RestClientTransport(restClient, new JacksonJsonpMapper());
+
+        if (!Boolean.FALSE.equals(properties.getSkipDedicatedMasters())) {
+            builder.setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS);
+        }
+        failureListener.ifUnique(builder::setFailureListener);
+        return builder.build();
+    }
+
+    /**
+     * 基于 RestClient 的 transport，可自定义 ElasticsearchTransport bean 替换（如测试中回放录制的响应）
+     *
+     * @param restClient RestClient
+     * @return ElasticsearchTransport
+     */
+    @Bean("esTransport")
+    @ConditionalOnMissingBean(ElasticsearchTransport.class)
+    public ElasticsearchTransport transport(@Qualifier("esRestClient") RestClient restClient) {
+        return new RestClientTransport(restClient, new JacksonJsonpMapper());
+    }
+
+    /**
+     * create the API client
+     *
+     * @param transport ElasticsearchTransport
+     * @return ElasticsearchClient
+     */
+    @Bean("esClient")
+    @Primary
+    public ElasticsearchClient client(ElasticsearchTransport transport) {
         //elasticsearch 客户端
         return new ElasticsearchClient(transport);
     }
 
+    /**
+     * 异步客户端，与同步客户端共用同一个 transport（连接池）
+     *
+     * @param client ElasticsearchClient
+     * @return ElasticsearchAsyncClient
+     */
+    @Bean("esAsyncClient")
+    public ElasticsearchAsyncClient asyncClient(@Qualifier("esClient") ElasticsearchClient client) {
+        return new ElasticsearchAsyncClient(client._transport());
+    }
 
-}
+    /**
+     * @IndexName 索引名称解析器
+     *
+     * @param environment Environment
+     * @return IndexNameResolver
+     */
+    @Bean
+    public IndexNameResolver indexNameResolver(Environment environment) {
+        String envSuffix = properties.getIndex().getEnvSuffix();
+        if (!StringUtils.hasText(envSuffix) && environment.getActiveProfiles().length > 0) {
+            envSuffix = environment.getActiveProfiles()[0];
+        }
+        String timeZone = properties.getIndex().getTimeZone();
+        ZoneId zoneId = StringUtils.hasText(timeZone) ? ZoneId.of(timeZone) : ZoneId.systemDefault();
+        return new IndexNameResolver(envSuffix, Clock.system(zoneId));
+    }
+
+    /**
+     * 请求体/响应体日志
+     *
+     * @param client ElasticsearchClient
+     * @return PayloadLogger
+     */
+    @Bean
+    public PayloadLogger payloadLogger(@Qualifier("esClient") ElasticsearchClient client) {
+        return new PayloadLogger(client._transport().jsonpMapper(), properties.getLog());
+    }
+
+    /**
+     * bulk 重试执行器
+     *
+     * @param elasticsearchService ElasticsearchService
+     * @return BulkRetrier
+     */
+    @Bean
+    public BulkRetrier bulkRetrier(ElasticsearchService elasticsearchService) {
+        return new BulkRetrier(elasticsearchService, properties.getBulk().getRetry());
+    }
+
+    /**
+     * 自动刷新的批量写入器
+     *
+     * @param bulkRetrier bulk 重试执行器
+     * @param client      ElasticsearchClient
+     * @param listeners   刷新回调
+     * @return BulkIngester
+     */
+    @Bean(destroyMethod = "close")
+    public BulkIngester bulkIngester(BulkRetrier bulkRetrier,
+                                     @Qualifier("esClient") ElasticsearchClient client,
+                                     ObjectProvider<BulkListener> listeners) {
+        return new BulkIngester(bulkRetrier, client._transport().jsonpMapper(), properties.getBulk(),
+                listeners.orderedStream().collect(Collectors.toList()));
+    }
+
+    /**
+     * 查询合并，开启后 ElasticsearchSimpleService#search(SearchInput) 的并发查询合并为 _msearch 发送
+     *
+     * @param elasticsearchAsyncService ElasticsearchAsyncService
+     * @return SearchCoalescer
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "elasticsearch.search.coalesce.enabled", havingValue = "true")
+    public SearchCoalescer searchCoalescer(ElasticsearchAsyncService elasticsearchAsyncService) {
+        ElasticsearchProperties.Coalesce coalesce = properties.getSearch().getCoalesce();
+        return new SearchCoalescer(elasticsearchAsyncService, coalesce.getMaxBatchSize(), coalesce.getMaxWait());
+    }
+
+    /**
+     * 集群状态探测，健康检查与 /actuator/elasticsearch 共用缓存
+     *
+     * @param elasticsearchService ElasticsearchService
+     * @param connectionManager    连接池
+     * @return ElasticsearchClusterProbe
+     */
+    @Bean
+    public ElasticsearchClusterProbe elasticsearchClusterProbe(ElasticsearchService elasticsearchService,
+                                                               @Qualifier("esConnectionManager") PoolingNHttpClientConnectionManager connectionManager) {
+        return new ElasticsearchClusterProbe(elasticsearchService, connectionManager, properties.getHealth(), Clock.systemUTC());
+    }
+
+    /**
+     * 健康检查，bean 名称与 Spring Boot 自带的 Elasticsearch 健康检查相同，替换后者（后者每次都会请求集群）
+     *
+     * @param probe 集群状态探测
+     * @return ElasticsearchHealthIndicator
+     */
+    @Bean("elasticsearchHealthIndicator")
+    @ConditionalOnEnabledHealthIndicator("elasticsearch")
+    public ElasticsearchHealthIndicator elasticsearchHealthIndicator(ElasticsearchClusterProbe probe) {
+        return new ElasticsearchHealthIndicator(probe);
+    }
+
+    /**
+     * /actuator/elasticsearch
+     *
+     * @param probe 集群状态探测
+     * @return ElasticsearchEndpoint
+     */
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public ElasticsearchEndpoint elasticsearchEndpoint(ElasticsearchClusterProbe probe) {
+        return new ElasticsearchEndpoint(probe);
+    }
+
+    /**
+     * 解析 elasticsearch.hosts，未配置时使用 elasticsearch.host/port
+     *
+     * @param properties 配置
+     * @return 节点地址
+     */
+    static HttpHost[] httpHosts(ElasticsearchProperties properties) {
+        List<String> hosts = properties.getHosts();
+        if (CollectionUtils.isEmpty(hosts)) {
+            if (StringUtils.isEmpty(properties.getHost())) {
+                throw new IllegalArgumentException("elasticsearch.host 不能为空");
+            }
+            return new HttpHost[]{new HttpHost(properties.getHost(), properties.getPort())};
+        }
+        List<HttpHost> httpHosts = new ArrayList<>(hosts.size());
+        for (String host : hosts) {
+            if (!StringUtils.hasText(host)) {
+                continue;
+            }
+            HttpHost httpHost = HttpHost.create(host.trim());
+            if (httpHost.getPort() < 0) {
+                httpHost = new HttpHost(httpHost.getHostName(), properties.getPort(), httpHost.getSchemeName());
+            }
+            httpHosts.add(httpHost);
+        }
+        if (httpHosts.isEmpty()) {
+            throw new IllegalArgumentException("elasticsearch.hosts 不能为空");
+        }
+        return httpHosts.toArray(new HttpHost[0]);
+    }
+
+    /**
+     * 连接池与连接保活
+     */
+    private static HttpAsyncClientBuilder configurePool(HttpAsyncClientBuilder httpClientBuilder,
+                                                        PoolingNHttpClientConnectionManager connectionManager,
+                                                        ElasticsearchProperties.Pool pool) {
+        httpClientBuilder.setConnectionManager(connectionManager);
+        long keepAlive = pool.getKeepAlive() == null ? 0 : pool.getKeepAlive();
+        if (keepAlive > 0) {
+            httpClientBuilder.setKeepAliveStrategy((response, context) -> {
+                long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+            });
+        }
+        return httpClientBuilder;
+    }
 
+    /**
+     * 存在 MeterRegistry 时记录 ElasticsearchService 调用指标
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(name = "elasticsearch.metrics.enabled", havingValue = "true", matchIfMissing = true)
+    static class MetricsConfiguration {
+
+        /**
+         * Micrometer 指标
+         *
+         * @param registry   MeterRegistry
+         * @param properties 配置
+         * @return ElasticsearchMetrics
+         */
+        @Bean
+        public ElasticsearchMetrics elasticsearchMetrics(MeterRegistry registry, ElasticsearchProperties properties) {
+            return new MicrometerElasticsearchMetrics(registry, properties.getMetrics());
+        }
+    }
+
+    /**
+     * 查询结果缓存：引入 caffeine 且开启 elasticsearch.search.cache.enabled 时生效
+     */
+    @Configuration
+    @ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+    @ConditionalOnProperty(name = "elasticsearch.search.cache.enabled", havingValue = "true")
+    static class SearchCacheConfiguration {
+
+        /**
+         * 查询结果缓存，同时作为 BulkListener 在 BulkIngester 写入后失效
+         *
+         * @param client     ElasticsearchClient
+         * @param properties 配置
+         * @param metrics    指标，未引入 Micrometer 时为空
+         * @return SearchResultCache
+         */
+        @Bean
+        public SearchResultCache searchResultCache(@Qualifier("esClient") ElasticsearchClient client,
+                                                   ElasticsearchProperties properties,
+                                                   ObjectProvider<ElasticsearchMetrics> metrics) {
+            ElasticsearchProperties.Cache cache = properties.getSearch().getCache();
+            log.info("已开启查询结果缓存, 索引: {}", cache.getIndices());
+            return new SearchResultCache(client._transport().jsonpMapper(), cache, metrics.getIfAvailable());
+        }
+    }
+
+    /**
+     * 节点嗅探：定时从集群获取节点列表，请求失败时提前嗅探
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.elasticsearch.client.sniff.Sniffer")
+    @ConditionalOnProperty(name = "elasticsearch.sniff.enabled", havingValue = "true")
+    static class SnifferConfiguration {
+
+        /**
+         * 节点失败时触发嗅探，在 RestClient 创建时注册
+         *
+         * @return SniffOnFailureListener
+         */
+        @Bean
+        public SniffOnFailureListener esSniffOnFailureListener() {
+            return new SniffOnFailureListener();
+        }
+
+        /**
+         * 节点嗅探器
+         *
+         * @param restClient      RestClient
+         * @param failureListener 节点失败回调
+         * @param properties      配置
+         * @return Sniffer
+         */
+        @Bean(destroyMethod = "close")
+        public Sniffer esSniffer(@Qualifier("esRestClient") RestClient restClient,
+                                 SniffOnFailureListener failureListener, ElasticsearchProperties properties) {
+            ElasticsearchProperties.Sniff sniff = properties.getSniff();
+            boolean https = Arrays.stream(httpHosts(properties)).anyMatch(host -> "https".equalsIgnoreCase(host.getSchemeName()));
+            Sniffer sniffer = Sniffer.builder(restClient)
+                    .setSniffIntervalMillis(sniff.getInterval())
+                    .setSniffAfterFailureDelayMillis(sniff.getDelayAfterFailure())
+                    .setNodesSniffer(new ElasticsearchNodesSniffer(restClient, sniff.getRequestTimeout(),
+                            https ? ElasticsearchNodesSniffer.Scheme.HTTPS : ElasticsearchNodesSniffer.Scheme.HTTP))
+                    .build();
+            failureListener.setSniffer(sniffer);
+            log.info("已开启 Elasticsearch 节点嗅探, 间隔: {} 毫秒", sniff.getInterval());
+            return sniffer;
+        }
+    }
+
+}
@@ -6,14 +6,27 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
+ * 文档对应的索引，由 {@link ooo.github.io.es.metadata.IndexNameResolver} 解析
+ *
  * @author kaiqin
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.TYPE})
 public @interface IndexName {
 
+    /**
+     * 索引名称，支持按时间分索引，例如 logs-{yyyy.MM.dd}，花括号内为 DateTimeFormatter 格式
+     */
     String value();
 
+    /**
+     * 是否追加环境后缀（elasticsearch.index.envSuffix，未配置时取当前激活的 Spring profile）
+     */
     boolean isAddEnvSuffix() default true;
 
+    /**
+     * value 是否为 rollover 写别名：写入和查询都使用别名，createIndex 时创建 别名-000001 并设为写索引
+     */
+    boolean rollover() default false;
+
 }
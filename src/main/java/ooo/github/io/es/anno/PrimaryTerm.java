@@ -0,0 +1,22 @@
+package ooo.github.io.es.anno;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 文档的 _primary_term，字段类型为 Long 或 long，不写入 _source，与 {@link SeqNo} 配合使用；小于等于 0 时视为没有值
+ *
+ * @author kaiqin
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface PrimaryTerm {
+
+}
@@ -0,0 +1,19 @@
+package ooo.github.io.es.anno;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 文档的 routing（如租户ID、用户ID），字段值的 toString() 作为 routing，字段仍写入 _source
+ * 写入时同一 routing 的文档落在同一分片，查询时通过 SearchInput#setRouting 只访问对应分片；
+ * 按 ID 更新、删除时必须带上相同的 routing，因此需使用包含该字段的文档对象
+ *
+ * @author kaiqin
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface Routing {
+
+}
@@ -0,0 +1,23 @@
+package ooo.github.io.es.anno;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 文档的 _seq_no，字段类型为 Long 或 long，不写入 _source
+ * 查询结果自动回填；与 @PrimaryTerm 都有值时写入带上 if_seq_no / if_primary_term，文档已被其他写入修改时该文档返回 409
+ *
+ * @author kaiqin
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface SeqNo {
+
+}
@@ -0,0 +1,29 @@
+package ooo.github.io.es.anno;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 文档的外部版本号（version_type=external），字段类型为 Long 或 long（默认值 0 视为没有值），不写入 _source
+ * 查询结果自动回填 _version；index / delete 时版本号不大于已有版本的文档返回 409，update 不支持外部版本号
+ * 同时有 @SeqNo / @PrimaryTerm 的值时优先使用 if_seq_no / if_primary_term
+ *
+ * @author kaiqin
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@JacksonAnnotationsInside
+@JsonIgnore
+public @interface Version {
+
+    /**
+     * 是否允许版本号与已有版本相等（version_type=external_gte），用于重放同一版本的数据
+     */
+    boolean gte() default false;
+
+}
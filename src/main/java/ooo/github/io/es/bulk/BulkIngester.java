@@ -0,0 +1,266 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonpMapper;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自动刷新的批量写入器
+ * 按操作数、字节数、时间间隔三个条件触发刷新，同时执行中的 bulk 请求数达到上限时 add() 阻塞（背压），
+ * 被拒绝的文档由 {@link BulkRetrier} 重试；发送线程和定时刷新线程在第一次 add() 时才启动
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class BulkIngester implements AutoCloseable {
+
+    private final BulkRetrier bulkRetrier;
+    private final List<BulkListener> listeners;
+
+    /**
+     * 单个 bulk 请求的最大操作数，小于等于 0 表示不限制
+     */
+    private final int maxOperations;
+
+    private final int maxConcurrentRequests;
+
+    private final long flushInterval;
+
+    /**
+     * 请求体大小估算，只在持有 lock 时使用
+     */
+    private final BulkSizeEstimator sizeEstimator;
+
+    /**
+     * 执行中的 bulk 请求许可
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * 发送 bulk 请求的线程池，未启动或 maxConcurrentRequests 为 0 时为 null（调用线程同步执行）
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * 定时刷新，未启动或 flushInterval 小于等于 0 时为 null
+     */
+    private ScheduledExecutorService scheduler;
+
+    private boolean started;
+
+    private final AtomicLong executionIds = new AtomicLong();
+
+    private final Object lock = new Object();
+
+    private List<BulkOperation> operations = new ArrayList<>();
+
+    private long bufferedBytes;
+
+    private boolean closed;
+
+    public BulkIngester(BulkRetrier bulkRetrier, JsonpMapper mapper,
+                        ElasticsearchProperties.Bulk properties, List<BulkListener> listeners) {
+        this.bulkRetrier = bulkRetrier;
+        this.listeners = listeners == null ? Collections.emptyList() : listeners;
+        this.maxOperations = properties.getMaxOperations() == null ? 0 : properties.getMaxOperations();
+        this.maxConcurrentRequests = properties.getMaxConcurrentRequests() == null ? 1 : properties.getMaxConcurrentRequests();
+        if (maxConcurrentRequests < 0) {
+            throw new IllegalArgumentException("elasticsearch.bulk.maxConcurrentRequests 不能小于0");
+        }
+        this.flushInterval = properties.getFlushInterval() == null ? 0 : properties.getFlushInterval();
+        this.sizeEstimator = new BulkSizeEstimator(mapper, properties.getMaxBytes() == null ? 0 : properties.getMaxBytes());
+        this.inFlight = new Semaphore(Math.max(1, maxConcurrentRequests));
+    }
+
+    /**
+     * 添加一个 index 操作，带上文档的 @Routing；有 @SeqNo / @Version 的值时带上乐观并发控制
+     *
+     * @param indexName 索引名称
+     * @param id        文档ID，为空时由 Elasticsearch 生成
+     * @param document  文档
+     */
+    public void add(String indexName, String id, Object document) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (document == null) {
+            throw new IllegalArgumentException("文档不能为空");
+        }
+        add(new BulkOperation.Builder()
+                .index(i -> {
+                    DocumentMetadata metadata = DocumentMetadata.of(document.getClass());
+                    metadata.concurrencyControl(i.index(indexName).document(document).routing(metadata.getRouting(document)), document);
+                    if (StringUtils.hasText(id)) {
+                        i.id(id);
+                    }
+                    return i;
+                })
+                .build());
+    }
+
+    /**
+     * 添加一个 bulk 操作，操作需自行指定索引
+     *
+     * @param operation bulk 操作
+     */
+    public void add(BulkOperation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("bulk 操作不能为空");
+        }
+        List<BulkOperation> toFlush = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("BulkIngester 已关闭");
+            }
+            start();
+            bufferedBytes += sizeEstimator.sizeOf(operation, bufferedBytes);
+            operations.add(operation);
+            if ((maxOperations > 0 && operations.size() >= maxOperations) || sizeEstimator.isFull(bufferedBytes)) {
+                toFlush = drain();
+            }
+        }
+        if (toFlush != null) {
+            execute(toFlush);
+        }
+    }
+
+    /**
+     * 立即发送缓冲区内的操作
+     */
+    public void flush() {
+        List<BulkOperation> toFlush;
+        synchronized (lock) {
+            toFlush = drain();
+        }
+        if (toFlush != null) {
+            execute(toFlush);
+        }
+    }
+
+    /**
+     * 发送剩余操作并等待所有执行中的请求完成
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush();
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("BulkIngester 关闭超时, 仍有 bulk 请求未完成");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 启动发送线程池和定时刷新，持有 lock 时调用
+     */
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (maxConcurrentRequests > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-bulk-");
+            threadFactory.setDaemon(true);
+            executor = Executors.newFixedThreadPool(maxConcurrentRequests, threadFactory);
+        }
+        if (flushInterval > 0) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-bulk-flush-");
+            threadFactory.setDaemon(true);
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            scheduler.scheduleWithFixedDelay(this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("BulkIngester 定时刷新失败", e);
+        }
+    }
+
+    private List<BulkOperation> drain() {
+        if (operations.isEmpty()) {
+            return null;
+        }
+        List<BulkOperation> drained = operations;
+        operations = new ArrayList<>();
+        bufferedBytes = 0;
+        sizeEstimator.reset();
+        return drained;
+    }
+
+    private void execute(List<BulkOperation> toFlush) {
+        BulkRequest request = new BulkRequest.Builder().operations(toFlush).build();
+        long executionId = executionIds.incrementAndGet();
+        if (executor == null) {
+            doExecute(executionId, request);
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("等待 bulk 请求许可时被中断, 操作数量: " + toFlush.size(), e);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    doExecute(executionId, request);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new ElasticsearchException("BulkIngester 已关闭, 无法发送 bulk 请求", e);
+        }
+    }
+
+    private void doExecute(long executionId, BulkRequest request) {
+        for (BulkListener listener : listeners) {
+            listener.beforeBulk(executionId, request);
+        }
+        BulkResult result;
+        try {
+            result = bulkRetrier.execute(request);
+        } catch (Exception e) {
+            log.error("BulkIngester 发送 bulk 请求失败, 编号: {}, 操作数量: {}", executionId, request.operations().size(), e);
+            for (BulkListener listener : listeners) {
+                listener.afterBulk(executionId, request, e);
+            }
+            return;
+        }
+        for (BulkListener listener : listeners) {
+            listener.afterBulk(executionId, request, result);
+        }
+    }
+
+}
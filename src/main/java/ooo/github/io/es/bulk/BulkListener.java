@@ -0,0 +1,41 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import ooo.github.io.es.dto.BulkResult;
+
+/**
+ * BulkIngester 每次刷新的回调，注册为 Spring Bean 后自动生效
+ *
+ * @author kaiqin
+ */
+public interface BulkListener {
+
+    /**
+     * bulk 请求发送前
+     *
+     * @param executionId 本次刷新的编号
+     * @param request     bulk 请求
+     */
+    default void beforeBulk(long executionId, BulkRequest request) {
+    }
+
+    /**
+     * bulk 请求完成（含重试），最终失败的文档见 result.getFailures()
+     *
+     * @param executionId 本次刷新的编号
+     * @param request     bulk 请求
+     * @param result      执行结果
+     */
+    default void afterBulk(long executionId, BulkRequest request, BulkResult result) {
+    }
+
+    /**
+     * bulk 请求整体失败
+     *
+     * @param executionId 本次刷新的编号
+     * @param request     bulk 请求
+     * @param failure     异常
+     */
+    default void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+    }
+}
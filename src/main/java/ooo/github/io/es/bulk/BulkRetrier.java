@@ -0,0 +1,205 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.UpdateAction;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkFailure;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import ooo.github.io.es.service.ElasticsearchService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bulk 重试执行器
+ * 只重新提交状态为 429/503 的失败文档，退避时间按指数增长并加入随机抖动，重试次数和总时长受预算限制
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class BulkRetrier {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final ElasticsearchService elasticsearchService;
+    private final ElasticsearchProperties.Retry properties;
+
+    public BulkRetrier(ElasticsearchService elasticsearchService, ElasticsearchProperties.Retry properties) {
+        this.elasticsearchService = elasticsearchService;
+        this.properties = properties;
+    }
+
+    /**
+     * 执行 bulk 请求，被拒绝的文档按退避策略重试
+     *
+     * @param request bulk 请求
+     * @return 执行结果，包含最终失败的文档
+     */
+    public BulkResult execute(BulkRequest request) {
+        return execute(request, null);
+    }
+
+    /**
+     * 执行 bulk 请求，被拒绝的文档按退避策略重试
+     *
+     * @param request   bulk 请求
+     * @param documents 与 request.operations() 一一对应的原始文档，写入成功后回填 _version、_seq_no、_primary_term；
+     *                  为空（或某项为空）时从操作中取文档，只发送变化字段或脚本更新的操作中取不到
+     * @return 执行结果，包含最终失败的文档
+     */
+    public BulkResult execute(BulkRequest request, List<?> documents) {
+        if (request == null) {
+            throw new IllegalArgumentException("批量操作请求不能为空");
+        }
+        if (documents != null && documents.size() != request.operations().size()) {
+            throw new IllegalArgumentException("文档数量必须与操作数量一致");
+        }
+        BulkResult result = new BulkResult();
+        result.setTotal(request.operations().size());
+
+        int maxRetries = properties.getMaxRetries() == null ? 0 : properties.getMaxRetries();
+        long deadline = System.currentTimeMillis() + (properties.getBudget() == null ? 0 : properties.getBudget());
+
+        List<BulkOperation> pending = request.operations();
+        List<?> pendingDocuments = documents;
+        BulkResponse response = elasticsearchService.bulk(request);
+        for (int attempt = 0; ; attempt++) {
+            List<BulkOperation> retryable = new ArrayList<>();
+            List<Object> retryableDocuments = new ArrayList<>();
+            List<BulkResponseItem> retryableItems = new ArrayList<>();
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                Object document = pendingDocuments == null ? null : pendingDocuments.get(i);
+                if (item.error() == null) {
+                    writeBack(pending.get(i), document, item);
+                    continue;
+                }
+                if (isRetryable(item.status())) {
+                    retryable.add(pending.get(i));
+                    retryableDocuments.add(document);
+                    retryableItems.add(item);
+                } else {
+                    result.getFailures().add(toFailure(item, pending.get(i)));
+                }
+            }
+            if (retryable.isEmpty()) {
+                break;
+            }
+
+            long backoff = backoff(attempt);
+            if (attempt >= maxRetries || System.currentTimeMillis() + backoff > deadline) {
+                log.warn("bulk 重试次数或预算已用尽, 重试轮数: {}, 剩余失败数量: {}", attempt, retryable.size());
+                for (int i = 0; i < retryable.size(); i++) {
+                    result.getFailures().add(toFailure(retryableItems.get(i), retryable.get(i)));
+                }
+                break;
+            }
+
+            log.debug("bulk 存在被拒绝的文档, {} 毫秒后第 {} 次重试, 数量: {}", backoff, attempt + 1, retryable.size());
+            sleep(backoff);
+            result.setRetries(attempt + 1);
+            result.setRetriedItems(result.getRetriedItems() + retryable.size());
+            pending = retryable;
+            pendingDocuments = retryableDocuments;
+            response = elasticsearchService.bulk(copyOf(request, retryable));
+        }
+        return result;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * 带抖动的指数退避：取 [delay/2, delay] 区间内的随机值
+     */
+    long backoff(int attempt) {
+        long initial = properties.getInitialBackoff() == null ? 0 : properties.getInitialBackoff();
+        long max = properties.getMaxBackoff() == null ? Long.MAX_VALUE : properties.getMaxBackoff();
+        long delay = Math.min(max, initial << Math.min(attempt, 30));
+        if (delay <= 1) {
+            return delay;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("bulk 重试等待时被中断", e);
+        }
+    }
+
+    /**
+     * 保留原请求的公共参数，只替换操作列表
+     */
+    private static BulkRequest copyOf(BulkRequest request, List<BulkOperation> operations) {
+        BulkRequest.Builder builder = new BulkRequest.Builder()
+                .index(request.index())
+                .pipeline(request.pipeline())
+                .routing(request.routing())
+                .refresh(request.refresh())
+                .timeout(request.timeout())
+                .waitForActiveShards(request.waitForActiveShards())
+                .requireAlias(request.requireAlias());
+        return builder.operations(operations).build();
+    }
+
+    /**
+     * 写入成功后把新的 _version、_seq_no、_primary_term 回填到文档，下次写入同一对象时不会因为旧值冲突
+     *
+     * @param document 原始文档，为空时从操作中取
+     */
+    private static void writeBack(BulkOperation operation, Object document, BulkResponseItem item) {
+        Object target = document != null ? document : documentOf(operation);
+        if (target == null) {
+            return;
+        }
+        DocumentMetadata metadata = DocumentMetadata.of(target.getClass());
+        if (metadata.hasHitMetadata()) {
+            metadata.setHitMetadata(target, item.version(), item.seqNo(), item.primaryTerm());
+        }
+    }
+
+    /**
+     * @return 操作中的文档，delete 操作和没有 upsert 的脚本更新为 null
+     */
+    private static Object documentOf(BulkOperation operation) {
+        if (operation.isIndex()) {
+            return operation.index().document();
+        }
+        if (operation.isCreate()) {
+            return operation.create().document();
+        }
+        if (operation.isUpdate()) {
+            UpdateAction<?, ?> action = operation.update().action();
+            return action.doc() != null ? action.doc() : action.upsert();
+        }
+        return null;
+    }
+
+    private static BulkFailure toFailure(BulkResponseItem item, BulkOperation operation) {
+        BulkFailure failure = new BulkFailure();
+        failure.setIndex(item.index());
+        failure.setId(item.id());
+        failure.setStatus(item.status());
+        failure.setErrorType(item.error().type());
+        failure.setReason(item.error().reason());
+        failure.setOperation(operation);
+        return failure;
+    }
+
+}
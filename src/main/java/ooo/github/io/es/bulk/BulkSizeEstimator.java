@@ -0,0 +1,82 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonpMapper;
+import ooo.github.io.es.util.JsonpUtil;
+
+/**
+ * bulk 请求体大小估算
+ * 精确计算需要把操作多序列化一次，因此每批只精确计算开头的若干个操作，之后按其中最大值估算；
+ * 估算值接近 maxBytes 时恢复精确计算，拆分点附近的大小仍是准确的。非线程安全
+ *
+ * @author kaiqin
+ */
+public class BulkSizeEstimator {
+
+    /**
+     * 每批开头精确计算的操作数
+     */
+    static final int SAMPLE_SIZE = 16;
+
+    private final JsonpMapper mapper;
+
+    private final long maxBytes;
+
+    private int sampled;
+
+    private long largest;
+
+    /**
+     * @param mapper   JsonpMapper
+     * @param maxBytes 单个 bulk 请求体的最大字节数，小于等于 0 表示不限制（不计算大小）
+     */
+    public BulkSizeEstimator(JsonpMapper mapper, long maxBytes) {
+        this.mapper = mapper;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return 是否按大小拆分
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * 估算操作按 ndjson 序列化后的字节数
+     *
+     * @param operation     bulk 操作
+     * @param bufferedBytes 当前批次已累计的字节数
+     * @return 字节数，不按大小拆分时为 0
+     */
+    public long sizeOf(BulkOperation operation, long bufferedBytes) {
+        if (maxBytes <= 0) {
+            return 0;
+        }
+        // 剩余空间不足两个最大操作时精确计算，避免估算误差跨过拆分点
+        if (sampled < SAMPLE_SIZE || bufferedBytes + 2 * largest >= maxBytes) {
+            long size = JsonpUtil.ndJsonSize(operation, mapper);
+            sampled++;
+            largest = Math.max(largest, size);
+            return size;
+        }
+        return largest;
+    }
+
+    /**
+     * @param bufferedBytes 当前批次已累计的字节数
+     * @return 是否达到 maxBytes
+     */
+    public boolean isFull(long bufferedBytes) {
+        return maxBytes > 0 && bufferedBytes >= maxBytes;
+    }
+
+    /**
+     * 开始新的批次，重新采样
+     */
+    public void reset() {
+        sampled = 0;
+        largest = 0;
+    }
+
+}
@@ -0,0 +1,227 @@
+package ooo.github.io.es.cache;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.bulk.BulkListener;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.metrics.ElasticsearchMetrics;
+import ooo.github.io.es.util.SearchResponseUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果缓存，只缓存 elasticsearch.search.cache.indices 中的索引，适合反复执行的相同查询（如字典、配置类数据）
+ * <ul>
+ *     <li>key：请求 URL、查询参数与请求体序列化后的 SHA-256，加上文档类型</li>
+ *     <li>value：响应序列化后的字节，命中时重新反序列化，调用方修改返回的对象不会影响缓存</li>
+ *     <li>淘汰：基于 Caffeine（W-TinyLFU），同时限制条目数与字节数，写入后 ttl 毫秒过期</li>
+ *     <li>失效：每个索引维护一个版本号，通过本 Starter 写入或删除时版本号加一，缓存的条目记录查询发出前的版本号，版本不一致视为未命中</li>
+ * </ul>
+ * 直接写 ES 或通过其他服务写入的数据只能等待 ttl 过期
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class SearchResultCache implements BulkListener {
+
+    private final JsonpMapper mapper;
+
+    private final ElasticsearchMetrics metrics;
+
+    private final Set<String> indices;
+
+    private final Cache<String, Entry> cache;
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public SearchResultCache(JsonpMapper mapper, ElasticsearchProperties.Cache properties, ElasticsearchMetrics metrics) {
+        if (properties.getMaxEntries() <= 0 || properties.getMaxBytes() <= 0) {
+            throw new IllegalArgumentException("缓存的最大条目数与最大字节数必须大于 0");
+        }
+        this.mapper = mapper;
+        this.metrics = metrics == null ? ElasticsearchMetrics.NOOP : metrics;
+        this.indices = new HashSet<>(properties.getIndices());
+        // Caffeine 只能设置一种上限：每个条目的权重至少为 maxBytes / maxEntries，总权重不超过 maxBytes 时条目数也不会超过 maxEntries
+        long minWeight = Math.max(1L, properties.getMaxBytes() / properties.getMaxEntries());
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxBytes())
+                .weigher((String key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, Math.max(minWeight, entry.weight(key))))
+                .expireAfterWrite(properties.getTtl(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 查询，请求的所有索引都开启缓存时先读缓存，未命中时调用 loader 并写入缓存
+     *
+     * @param request 查询请求
+     * @param tClass  文档类型
+     * @param loader  实际执行查询
+     * @param <T>     文档类型
+     * @return 结果
+     */
+    public <T> SearchResponse<T> search(SearchRequest request, Class<T> tClass, Supplier<SearchResponse<T>> loader) {
+        if (!cacheable(request.index())) {
+            return loader.get();
+        }
+        String index = String.join(",", request.index());
+        String key = key(request, tClass);
+        long[] current = versions(request.index());
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && Arrays.equals(entry.versions, current)) {
+            metrics.cache(index, true);
+            return SearchResponseUtil.fillHitMetadata(deserialize(entry.bytes, tClass));
+        }
+        if (entry != null) {
+            cache.invalidate(key);
+        }
+        metrics.cache(index, false);
+        SearchResponse<T> response = loader.get();
+        if (!Boolean.TRUE.equals(response.timedOut()) && response.shards().failed().intValue() == 0) {
+            cache.put(key, new Entry(current, serialize(response)));
+        }
+        return response;
+    }
+
+    /**
+     * 索引的数据发生变化，已缓存的查询结果失效
+     *
+     * @param index 索引名称
+     */
+    public void invalidate(String index) {
+        if (index != null && indices.contains(index)) {
+            versions.computeIfAbsent(index, k -> new AtomicLong()).incrementAndGet();
+            log.debug("查询缓存失效, 索引: {}", index);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        indices.forEach(this::invalidate);
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return 当前缓存的条目数（近似值）
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * BulkIngester 写入后失效，请求失败时同样失效（可能部分写入）
+     */
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, BulkResult result) {
+        invalidate(request);
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        invalidate(request);
+    }
+
+    private void invalidate(BulkRequest request) {
+        invalidate(request.index());
+        request.operations().forEach(operation -> {
+            if (operation.isIndex()) {
+                invalidate(operation.index().index());
+            } else if (operation.isCreate()) {
+                invalidate(operation.create().index());
+            } else if (operation.isUpdate()) {
+                invalidate(operation.update().index());
+            } else if (operation.isDelete()) {
+                invalidate(operation.delete().index());
+            }
+        });
+    }
+
+    private boolean cacheable(Collection<String> requestIndices) {
+        return !requestIndices.isEmpty() && indices.containsAll(requestIndices);
+    }
+
+    private long[] versions(List<String> requestIndices) {
+        long[] result = new long[requestIndices.size()];
+        for (int i = 0; i < result.length; i++) {
+            AtomicLong version = versions.get(requestIndices.get(i));
+            result[i] = version == null ? 0 : version.get();
+        }
+        return result;
+    }
+
+    /**
+     * URL 与查询参数（排序后）在前，请求体在后，相同的 SearchInput 总是得到相同的 key
+     */
+    private String key(SearchRequest request, Class<?> tClass) {
+        StringBuilder canonical = new StringBuilder(tClass.getName()).append('\n')
+                .append(SearchRequest._ENDPOINT.requestUrl(request)).append('\n');
+        new TreeMap<>(SearchRequest._ENDPOINT.queryParameters(request))
+                .forEach((name, value) -> canonical.append(name).append('=').append(value).append('&'));
+        canonical.append('\n').append(new String(serialize(request), StandardCharsets.UTF_8));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] serialize(JsonpSerializable value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.jsonProvider().createGenerator(out)) {
+            value.serialize(generator, mapper);
+        }
+        return out.toByteArray();
+    }
+
+    private <T> SearchResponse<T> deserialize(byte[] bytes, Class<T> tClass) {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(bytes))) {
+            return SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(tClass)).deserialize(parser, mapper);
+        }
+    }
+
+    private static final class Entry {
+        private final long[] versions;
+        private final byte[] bytes;
+
+        private Entry(long[] versions, byte[] bytes) {
+            this.versions = versions;
+            this.bytes = bytes;
+        }
+
+        private long weight(String key) {
+            return bytes.length + key.length() + 8L * versions.length;
+        }
+    }
+
+}
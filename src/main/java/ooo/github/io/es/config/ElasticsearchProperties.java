@@ -3,6 +3,10 @@ package ooo.github.io.es.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Elasticsearch 配置属性
  *
@@ -27,6 +31,11 @@ public class ElasticsearchProperties {
      */
     private String host;
 
+    /**
+     * 主机地址列表，格式为 host、host:port 或 http(s)://host:port，未写端口时使用 port，配置后忽略 host
+     */
+    private List<String> hosts;
+
     /**
      * 端口号，默认 9200
      */
@@ -52,11 +61,156 @@ public class ElasticsearchProperties {
      */
     private Integer socketTimeout = 60000;
 
+    /**
+     * 跳过专用主节点，只把请求发给数据/协调节点，默认 true（节点角色需通过嗅探获得，静态配置的节点不受影响）
+     */
+    private Boolean skipDedicatedMasters = true;
+
+    /**
+     * 连接池配置
+     */
+    private Pool pool = new Pool();
+
+    /**
+     * 节点嗅探配置，需要引入 elasticsearch-rest-client-sniffer
+     */
+    private Sniff sniff = new Sniff();
+
+    /**
+     * HTTP gzip 压缩配置
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * Micrometer 指标配置，存在 MeterRegistry 时生效
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * 健康检查与 /actuator/elasticsearch 配置
+     */
+    private Health health = new Health();
+
     /**
      * 索引配置
      */
     private Index index = new Index();
 
+    /**
+     * 请求体/响应体日志配置
+     */
+    private Log log = new Log();
+
+    /**
+     * 批量写入配置
+     */
+    private Bulk bulk = new Bulk();
+
+    /**
+     * 流式查询与切片导出（point in time + search_after）配置
+     */
+    private Search search = new Search();
+
+    /**
+     * 重建索引并切换别名（reindexWithAliasSwap）配置
+     */
+    private Reindex reindex = new Reindex();
+
+    @Data
+    public static class Pool {
+        /**
+         * 连接池最大连接数，默认 30（与 RestClient 默认值一致）
+         */
+        private Integer maxConnTotal = 30;
+
+        /**
+         * 每个节点的最大连接数，默认 10（与 RestClient 默认值一致）
+         */
+        private Integer maxConnPerRoute = 10;
+
+        /**
+         * IO 线程数，小于等于 0 时为 CPU 核数，默认 0
+         */
+        private Integer ioThreadCount = 0;
+
+        /**
+         * 空闲连接的保活时间（毫秒），服务端返回 Keep-Alive 时取两者较小值，小于等于 0 表示只按服务端 Keep-Alive，默认 0
+         */
+        private Long keepAlive = 0L;
+
+        /**
+         * 是否开启 TCP keepalive（SO_KEEPALIVE），默认 true
+         */
+        private Boolean soKeepAlive = true;
+    }
+
+    @Data
+    public static class Sniff {
+        /**
+         * 是否开启节点嗅探，默认 false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 嗅探间隔（毫秒），默认 300000
+         */
+        private Integer interval = 300000;
+
+        /**
+         * 请求失败后触发嗅探的延迟（毫秒），默认 60000
+         */
+        private Integer delayAfterFailure = 60000;
+
+        /**
+         * 嗅探请求的超时时间（毫秒），默认 1000
+         */
+        private Long requestTimeout = 1000L;
+    }
+
+    @Data
+    public static class Compression {
+        /**
+         * 是否开启 gzip：请求体压缩后发送，并通过 Accept-Encoding 请求服务端压缩响应体，默认 false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 压缩请求体的最小字节数，小于该值的请求体不压缩，默认 1024，小于等于 0 表示全部压缩
+         */
+        private Long minSize = 1024L;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * 是否记录指标，默认 true
+         */
+        private Boolean enabled = true;
+
+        /**
+         * index 标签的最大取值个数，超出后新出现的索引记为 other，避免按时间分索引时指标无限增长，默认 100
+         */
+        private Integer maxIndexTags = 100;
+    }
+
+    @Data
+    public static class Health {
+        /**
+         * 集群状态的缓存时间（毫秒），有效期内的健康检查不再请求集群，默认 10000
+         */
+        private Long cacheTtl = 10000L;
+
+        /**
+         * 集群状态请求的超时时间，默认 5s
+         */
+        private String timeout = "5s";
+
+        /**
+         * /actuator/elasticsearch 统计的线程池，默认 write、search；统计失败只记录在详情中，不影响健康状态
+         */
+        private List<String> threadPools = new ArrayList<>(Arrays.asList("write", "search"));
+    }
+
     @Data
     public static class Index {
         /**
@@ -68,5 +222,182 @@ public class ElasticsearchProperties {
          * 最大结果窗口，默认 1000000
          */
         private Integer maxResultWindow = 1000000;
+
+        /**
+         * @IndexName 追加的环境后缀（索引名_后缀），未配置时取第一个激活的 Spring profile，都没有时不追加
+         */
+        private String envSuffix;
+
+        /**
+         * 按时间分索引（如 logs-{yyyy.MM.dd}）使用的时区，默认系统时区
+         */
+        private String timeZone;
+    }
+
+    @Data
+    public static class Log {
+        /**
+         * 请求体/响应体日志的最大字节数，超出部分截断，小于等于 0 表示不限制，默认 4096
+         */
+        private Integer maxBytes = 4096;
+
+        /**
+         * 采样率，每 N 次调用输出一次请求体/响应体，默认 1（每次都输出）
+         */
+        private Integer sampleRate = 1;
+    }
+
+    @Data
+    public static class Bulk {
+        /**
+         * 单个 bulk 请求的最大操作数，默认 1000，小于等于 0 表示不按操作数拆分
+         */
+        private Integer maxOperations = 1000;
+
+        /**
+         * 单个 bulk 请求体的最大字节数，默认 5MB，小于等于 0 表示不按大小拆分
+         */
+        private Long maxBytes = 5L * 1024 * 1024;
+
+        /**
+         * BulkIngester 定时刷新间隔（毫秒），默认 1000，小于等于 0 表示不定时刷新
+         */
+        private Long flushInterval = 1000L;
+
+        /**
+         * BulkIngester 同时执行中的 bulk 请求数，达到上限时 add() 阻塞，默认 1，0 表示在调用线程同步执行
+         */
+        private Integer maxConcurrentRequests = 1;
+
+        /**
+         * 批量写入前是否按目标分片（murmur3(routing 或 _id)）重新排列操作，使每个 bulk 请求只涉及少数分片，默认 false
+         * 只对单个索引生效（别名指向多个索引时不排列），主分片数首次写入时读取并缓存
+         */
+        private Boolean groupByShard = false;
+
+        /**
+         * 被拒绝文档（429/503）的重试配置
+         */
+        private Retry retry = new Retry();
+    }
+
+    @Data
+    public static class Retry {
+        /**
+         * 最大重试次数，默认 3，0 表示不重试
+         */
+        private Integer maxRetries = 3;
+
+        /**
+         * 首次重试的退避时间（毫秒），之后每次翻倍，默认 100
+         */
+        private Long initialBackoff = 100L;
+
+        /**
+         * 单次退避时间上限（毫秒），默认 5000
+         */
+        private Long maxBackoff = 5000L;
+
+        /**
+         * 重试预算：单个 bulk 请求用于重试的总时长上限（毫秒），超出后剩余失败文档不再重试，默认 30000
+         */
+        private Long budget = 30000L;
+    }
+
+    @Data
+    public static class Search {
+        /**
+         * 流式查询每页的文档数，SearchInput 未指定 size 时使用，默认 1000
+         */
+        private Integer pageSize = 1000;
+
+        /**
+         * point in time 的保活时间，每次翻页都会续期，默认 1m
+         */
+        private String keepAlive = "1m";
+
+        /**
+         * 切片导出的默认切片数，小于等于 0 时取目标索引的主分片数，默认 0
+         */
+        private Integer slices = 0;
+
+        /**
+         * 切片导出为 Stream 时缓冲队列的容量（文档数），队列满时切片线程等待，默认 10000
+         */
+        private Integer queueCapacity = 10000;
+
+        /**
+         * 并发查询合并为 _msearch 的配置
+         */
+        private Coalesce coalesce = new Coalesce();
+
+        /**
+         * 查询结果缓存的配置
+         */
+        private Cache cache = new Cache();
+    }
+
+    @Data
+    public static class Reindex {
+        /**
+         * _reindex 的切片数，小于等于 0 时为 auto（每个主分片一个切片），默认 0
+         */
+        private Integer slices = 0;
+
+        /**
+         * 通过 tasks API 查询重建进度的间隔（毫秒），默认 5000
+         */
+        private Long pollInterval = 5000L;
+
+        /**
+         * 切换别名前强制合并到的段数，小于等于 0 时不合并，默认 1
+         */
+        private Integer maxNumSegments = 1;
+    }
+
+    @Data
+    public static class Coalesce {
+        /**
+         * 是否开启查询合并，默认 false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 每批最多合并的查询数，达到后立即发送，默认 50
+         */
+        private Integer maxBatchSize = 50;
+
+        /**
+         * 批次中第一个查询的最长等待时间（毫秒），默认 5
+         */
+        private Long maxWait = 5L;
+    }
+
+    @Data
+    public static class Cache {
+        /**
+         * 是否开启查询结果缓存，需要引入 caffeine，默认 false
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 开启缓存的索引（实际的索引名称），查询的所有索引都在其中时才缓存
+         */
+        private List<String> indices = new ArrayList<>();
+
+        /**
+         * 最大缓存条目数，默认 10000
+         */
+        private Long maxEntries = 10000L;
+
+        /**
+         * 缓存的最大字节数（序列化后的响应体），默认 64MB
+         */
+        private Long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * 写入后的过期时间（毫秒），默认 60000
+         */
+        private Long ttl = 60000L;
     }
 }
@@ -0,0 +1,52 @@
+package ooo.github.io.es.dto;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import lombok.Data;
+
+/**
+ * bulk 中最终失败的文档，可用于投递到死信队列
+ *
+ * @author kaiqin
+ */
+@Data
+public class BulkFailure {
+
+    /**
+     * 索引名称
+     */
+    private String index;
+
+    /**
+     * 文档ID
+     */
+    private String id;
+
+    /**
+     * HTTP 状态码
+     */
+    private int status;
+
+    /**
+     * 错误类型，例如 es_rejected_execution_exception、mapper_parsing_exception
+     */
+    private String errorType;
+
+    /**
+     * 错误原因
+     */
+    private String reason;
+
+    /**
+     * 失败的 bulk 操作（包含原始文档），可直接重新提交
+     */
+    private BulkOperation operation;
+
+    /**
+     * 是否为乐观并发控制冲突（if_seq_no / 外部版本号不匹配），通常应重新读取文档后再写入，而不是原样重试
+     *
+     * @return 结果
+     */
+    public boolean isVersionConflict() {
+        return status == 409;
+    }
+}
@@ -0,0 +1,65 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * bulk 执行结果（包含重试）
+ *
+ * @author kaiqin
+ */
+@Data
+public class BulkResult {
+
+    /**
+     * 操作总数
+     */
+    private int total;
+
+    /**
+     * 重试轮数
+     */
+    private int retries;
+
+    /**
+     * 累计重试的文档数
+     */
+    private long retriedItems;
+
+    /**
+     * 最终失败的文档
+     */
+    private List<BulkFailure> failures = new ArrayList<>();
+
+    /**
+     * 是否全部成功
+     *
+     * @return 结果
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * 成功数量
+     *
+     * @return 结果
+     */
+    public int getSucceeded() {
+        return total - failures.size();
+    }
+
+    /**
+     * 合并另一个结果（拆分为多个 bulk 请求时使用）
+     *
+     * @param other 另一个结果
+     */
+    public void merge(BulkResult other) {
+        this.total += other.total;
+        this.retries = Math.max(this.retries, other.retries);
+        this.retriedItems += other.retriedItems;
+        this.failures.addAll(other.failures);
+    }
+}
@@ -0,0 +1,68 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+
+/**
+ * 重建索引的进度，取自 tasks API 返回的任务状态
+ *
+ * @author kaiqin
+ */
+@Data
+public class ReindexProgress {
+
+    /**
+     * 源索引
+     */
+    private String sourceIndex;
+
+    /**
+     * 目标索引（带版本号的新索引）
+     */
+    private String targetIndex;
+
+    /**
+     * 任务ID，格式为 节点ID:任务编号
+     */
+    private String taskId;
+
+    /**
+     * 需要复制的文档总数
+     */
+    private long total;
+
+    /**
+     * 已新建的文档数
+     */
+    private long created;
+
+    /**
+     * 已更新的文档数
+     */
+    private long updated;
+
+    /**
+     * 版本冲突的文档数
+     */
+    private long versionConflicts;
+
+    /**
+     * 已执行的 bulk 批次数
+     */
+    private long batches;
+
+    /**
+     * 任务是否已结束
+     */
+    private boolean completed;
+
+    /**
+     * @return 已复制的百分比（0-100），总数为 0 时为 100
+     */
+    public double getPercent() {
+        if (total <= 0) {
+            return 100;
+        }
+        return Math.min(100, (created + updated + versionConflicts) * 100.0 / total);
+    }
+
+}
@@ -2,14 +2,18 @@ package ooo.github.io.es.dto;
 
 import co.elastic.clients.elasticsearch._types.SortOptions;
 import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.search.FieldCollapse;
 import co.elastic.clients.elasticsearch.core.search.Highlight;
 import co.elastic.clients.elasticsearch.core.search.TrackHits;
 import lombok.Data;
+import ooo.github.io.es.metadata.DocumentMetadata;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +84,50 @@ public class SearchInput<T> {
      */
     private TrackHits trackHits;
 
+    /**
+     * 是否返回 _source，为 false 时不返回（只需要 _id、stored_fields 或 docvalue_fields 时使用），为空时按 ES 默认返回
+     */
+    private Boolean fetchSource;
+
+    /**
+     * _source 只返回这些字段，支持通配符，如 first_level、*_level
+     */
+    private List<String> sourceIncludes;
+
+    /**
+     * _source 不返回这些字段，支持通配符
+     */
+    private List<String> sourceExcludes;
+
+    /**
+     * 返回 mapping 中 store=true 的字段，结果在 Hit#fields() 中；指定后 ES 默认不再返回 _source，需要时在 sourceIncludes 中显式指定
+     */
+    private List<String> storedFields;
+
+    /**
+     * 从 doc values 读取的字段（keyword、数值、日期等），结果在 Hit#fields() 中，不需要解析 _source
+     */
+    private List<String> docvalueFields;
+
+    /**
+     * routing 值（与写入时 @Routing 字段的值一致），指定后只查询这些 routing 所在的分片；流式查询与切片导出不支持
+     */
+    private List<String> routing;
+
+    /**
+     * 按 DTO 投影：_source 只返回 DTO 中的字段（@JsonProperty 的值，没有时为字段名，忽略 @JsonIgnore 和 transient 字段），
+     * 并以 DTO 作为返回类型，适合只需要少数字段的列表页
+     *
+     * @param dtoClass DTO 类
+     */
+    public void projection(Class<T> dtoClass) {
+        if (dtoClass == null) {
+            throw new IllegalArgumentException("投影类型不能为空");
+        }
+        this.tClass = dtoClass;
+        this.sourceIncludes = DocumentMetadata.of(dtoClass).getSourceFields();
+    }
+
     /**
      * 添加聚合
      *
@@ -98,5 +146,46 @@ public class SearchInput<T> {
         aggregations.put(aggregetionName, build);
     }
 
+    /**
+     * 添加 composite 聚合，每个字段一个 terms source（source 名称为字段名），按字段组合分组并可通过 after_key 翻页，
+     * 适合高基数字段的全量分组，配合 {@link ooo.github.io.es.service.ElasticsearchSimpleService#compositeBuckets} 逐页读取
+     *
+     * @param aggregationName 聚合名称
+     * @param size            每页的桶数量
+     * @param fields          分组字段（keyword、数值、日期），顺序即分组顺序
+     */
+    public void addCompositeAggregation(String aggregationName, Integer size, String... fields) {
+        if (fields == null || fields.length == 0) {
+            throw new IllegalArgumentException("composite 聚合字段不能为空");
+        }
+        List<Map<String, CompositeAggregationSource>> sources = new ArrayList<>(fields.length);
+        for (String field : fields) {
+            if (StringUtils.isEmpty(field)) {
+                throw new IllegalArgumentException("composite 聚合字段不能为空");
+            }
+            sources.add(Collections.singletonMap(field, CompositeAggregationSource.of(s -> s.terms(t -> t.field(field)))));
+        }
+        addAggregation(aggregationName, new Aggregation.Builder().composite(c -> c.sources(sources).size(size)).build());
+    }
+
+    /**
+     * 添加任意聚合，如带子聚合或 date_histogram source 的 composite 聚合
+     *
+     * @param aggregationName 聚合名称
+     * @param aggregation     聚合
+     */
+    public void addAggregation(String aggregationName, Aggregation aggregation) {
+        if (StringUtils.isEmpty(aggregationName)) {
+            throw new IllegalArgumentException("聚合名称不能为空");
+        }
+        if (aggregation == null) {
+            throw new IllegalArgumentException("聚合不能为空");
+        }
+        if (CollectionUtils.isEmpty(this.aggregations)) {
+            this.aggregations = new HashMap<>();
+        }
+        aggregations.put(aggregationName, aggregation);
+    }
+
 
 }
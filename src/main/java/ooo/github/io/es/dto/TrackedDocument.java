@@ -0,0 +1,98 @@
+package ooo.github.io.es.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import ooo.github.io.es.metadata.DocumentMetadata;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 字段变更跟踪：创建时记录文档序列化后的快照，修改文档后只把发生变化的顶层字段作为部分文档发送
+ * 快照与比较均使用写入 ES 时的 ObjectMapper，嵌套对象、集合原地修改也能识别；置为 null 的字段以 null 发送
+ * 通过 {@link ooo.github.io.es.service.ElasticsearchSimpleService#track(Object)} 创建
+ *
+ * @param <T> 数据对象
+ * @author kaiqin
+ */
+public final class TrackedDocument<T> {
+
+    private final T document;
+
+    private final String id;
+
+    private final ObjectMapper objectMapper;
+
+    private ObjectNode snapshot;
+
+    public TrackedDocument(T document, ObjectMapper objectMapper) {
+        if (document == null) {
+            throw new IllegalArgumentException("跟踪的文档不能为空");
+        }
+        String documentId = DocumentMetadata.of(document.getClass()).getId(document);
+        if (documentId == null) {
+            throw new IllegalArgumentException("跟踪的文档ID不能为空");
+        }
+        this.document = document;
+        this.id = documentId;
+        this.objectMapper = objectMapper;
+        this.snapshot = tree();
+    }
+
+    /**
+     * 与快照相比发生变化的字段
+     *
+     * @return 部分文档，没有变化时为空对象
+     */
+    public ObjectNode changes() {
+        ObjectNode current = tree();
+        ObjectNode changes = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!field.getValue().equals(snapshot.get(field.getKey()))) {
+                changes.set(field.getKey(), field.getValue());
+            }
+        }
+        // 值为 null 的字段不会序列化，快照中有而当前没有说明被置为 null
+        Iterator<String> names = snapshot.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!current.has(name)) {
+                changes.putNull(name);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return 是否有字段发生变化
+     */
+    public boolean isDirty() {
+        return changes().size() > 0;
+    }
+
+    /**
+     * 以当前状态作为新的快照，写入成功后调用
+     */
+    public void markClean() {
+        this.snapshot = tree();
+    }
+
+    public T getDocument() {
+        return document;
+    }
+
+    /**
+     * @return 创建跟踪时 @Id 字段的值
+     */
+    public String getId() {
+        return id;
+    }
+
+    private ObjectNode tree() {
+        return objectMapper.valueToTree(document);
+    }
+
+}
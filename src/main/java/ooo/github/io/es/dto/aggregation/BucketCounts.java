@@ -0,0 +1,60 @@
+package ooo.github.io.es.dto.aggregation;
+
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.MultiBucketBase;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多桶聚合的读取结果：文档数为 long[]，与各子类的 key 数组按下标一一对应，顺序与响应中的桶顺序一致
+ *
+ * @author kaiqin
+ */
+public abstract class BucketCounts {
+
+    private final long[] counts;
+
+    private final List<? extends MultiBucketBase> buckets;
+
+    protected BucketCounts(List<? extends MultiBucketBase> buckets) {
+        this.buckets = buckets;
+        this.counts = new long[buckets.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i).docCount();
+        }
+    }
+
+    /**
+     * @return 桶数量
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * @param i 桶下标
+     * @return 文档数
+     */
+    public long count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @return 各桶的文档数，直接返回内部数组，不要修改
+     */
+    public long[] counts() {
+        return counts;
+    }
+
+    /**
+     * 桶的子聚合，可再交给 {@link ooo.github.io.es.util.AggregationReader} 读取
+     *
+     * @param i 桶下标
+     * @return 子聚合，key 为聚合名称
+     */
+    public Map<String, Aggregate> aggregations(int i) {
+        return buckets.get(i).aggregations();
+    }
+
+}
@@ -0,0 +1,73 @@
+package ooo.github.io.es.dto.aggregation;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * composite 聚合的桶：key 为各 source 的取值，afterKey 用于请求下一页
+ *
+ * @author kaiqin
+ */
+public class CompositeBucketCounts extends BucketCounts {
+
+    private final List<CompositeBucket> buckets;
+
+    private final Map<String, FieldValue> afterKey;
+
+    public CompositeBucketCounts(List<CompositeBucket> buckets, Map<String, FieldValue> afterKey) {
+        super(buckets);
+        this.buckets = buckets;
+        this.afterKey = afterKey;
+    }
+
+    /**
+     * @param i      桶下标
+     * @param source source 名称
+     * @return 取值，该桶没有此 source 时为 null
+     */
+    public FieldValue key(int i, String source) {
+        return buckets.get(i).key().get(source);
+    }
+
+    /**
+     * @param i      桶下标
+     * @param source 数值类型（含 date_histogram）的 source 名称
+     * @return 取值
+     */
+    public long longKey(int i, String source) {
+        FieldValue value = requireKey(i, source);
+        return value.isLong() ? value.longValue() : (long) value.doubleValue();
+    }
+
+    /**
+     * @param i      桶下标
+     * @param source source 名称
+     * @return 取值的字符串形式
+     */
+    public String stringKey(int i, String source) {
+        FieldValue value = key(i, source);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return value.isString() ? value.stringValue() : String.valueOf(value._get());
+    }
+
+    /**
+     * @return 下一页的起点，没有更多数据时为空
+     */
+    public Map<String, FieldValue> afterKey() {
+        return afterKey;
+    }
+
+    private FieldValue requireKey(int i, String source) {
+        FieldValue value = key(i, source);
+        if (value == null || !(value.isLong() || value.isDouble())) {
+            throw new IllegalArgumentException("composite 第 " + i + " 个桶的 source " + source + " 不是数值: " + value);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,36 @@
+package ooo.github.io.es.dto.aggregation;
+
+import co.elastic.clients.elasticsearch._types.aggregations.MultiBucketBase;
+
+import java.util.List;
+
+/**
+ * key 为浮点数的桶：dterms 与 histogram 的 key
+ *
+ * @author kaiqin
+ */
+public class DoubleBucketCounts extends BucketCounts {
+
+    private final double[] keys;
+
+    public DoubleBucketCounts(List<? extends MultiBucketBase> buckets, double[] keys) {
+        super(buckets);
+        this.keys = keys;
+    }
+
+    /**
+     * @param i 桶下标
+     * @return key
+     */
+    public double key(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return 各桶的 key，直接返回内部数组，不要修改
+     */
+    public double[] keys() {
+        return keys;
+    }
+
+}
@@ -0,0 +1,36 @@
+package ooo.github.io.es.dto.aggregation;
+
+import co.elastic.clients.elasticsearch._types.aggregations.MultiBucketBase;
+
+import java.util.List;
+
+/**
+ * key 为整数的桶：lterms 的 key、date_histogram 的 key（毫秒时间戳）
+ *
+ * @author kaiqin
+ */
+public class LongBucketCounts extends BucketCounts {
+
+    private final long[] keys;
+
+    public LongBucketCounts(List<? extends MultiBucketBase> buckets, long[] keys) {
+        super(buckets);
+        this.keys = keys;
+    }
+
+    /**
+     * @param i 桶下标
+     * @return key
+     */
+    public long key(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return 各桶的 key，直接返回内部数组，不要修改
+     */
+    public long[] keys() {
+        return keys;
+    }
+
+}
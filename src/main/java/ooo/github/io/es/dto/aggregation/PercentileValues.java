@@ -0,0 +1,55 @@
+package ooo.github.io.es.dto.aggregation;
+
+/**
+ * percentiles 聚合的读取结果，顺序与响应一致（ES 按百分位升序返回）
+ *
+ * @author kaiqin
+ */
+public class PercentileValues {
+
+    private final double[] percents;
+
+    private final double[] values;
+
+    public PercentileValues(double[] percents, double[] values) {
+        this.percents = percents;
+        this.values = values;
+    }
+
+    /**
+     * @return 百分位数量
+     */
+    public int size() {
+        return percents.length;
+    }
+
+    /**
+     * @param i 下标
+     * @return 百分位，如 99.0
+     */
+    public double percent(int i) {
+        return percents[i];
+    }
+
+    /**
+     * @param i 下标
+     * @return 取值，没有文档时为 NaN
+     */
+    public double value(int i) {
+        return values[i];
+    }
+
+    /**
+     * @param percent 请求中的百分位，如 99.0
+     * @return 取值，不存在该百分位时为 NaN
+     */
+    public double valueOf(double percent) {
+        for (int i = 0; i < percents.length; i++) {
+            if (Double.compare(percents[i], percent) == 0) {
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+}
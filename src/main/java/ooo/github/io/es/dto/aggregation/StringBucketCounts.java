@@ -0,0 +1,36 @@
+package ooo.github.io.es.dto.aggregation;
+
+import co.elastic.clients.elasticsearch._types.aggregations.MultiBucketBase;
+
+import java.util.List;
+
+/**
+ * key 为字符串的桶：sterms 的 key
+ *
+ * @author kaiqin
+ */
+public class StringBucketCounts extends BucketCounts {
+
+    private final String[] keys;
+
+    public StringBucketCounts(List<? extends MultiBucketBase> buckets, String[] keys) {
+        super(buckets);
+        this.keys = keys;
+    }
+
+    /**
+     * @param i 桶下标
+     * @return key
+     */
+    public String key(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return 各桶的 key，直接返回内部数组，不要修改
+     */
+    public String[] keys() {
+        return keys;
+    }
+
+}
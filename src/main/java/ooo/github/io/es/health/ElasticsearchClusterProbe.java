@@ -0,0 +1,213 @@
+package ooo.github.io.es.health;
+
+import co.elastic.clients.elasticsearch._types.HealthStatus;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.cluster.HealthRequest;
+import co.elastic.clients.elasticsearch.cluster.HealthResponse;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsRequest;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsResponse;
+import co.elastic.clients.elasticsearch.nodes.Stats;
+import co.elastic.clients.elasticsearch.nodes.ThreadCount;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.service.ElasticsearchService;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集群状态探测，结果在 elasticsearch.health.cacheTtl 内复用（失败结果同样缓存），
+ * 存活/就绪探针高频访问时每个实例每个周期最多请求集群一次；连接池使用情况为本地数据，每次实时读取
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class ElasticsearchClusterProbe {
+
+    private final ElasticsearchService elasticsearchService;
+
+    private final PoolingNHttpClientConnectionManager connectionManager;
+
+    private final ElasticsearchProperties.Health properties;
+
+    private final Clock clock;
+
+    private volatile ClusterSnapshot snapshot;
+
+    public ElasticsearchClusterProbe(ElasticsearchService elasticsearchService,
+                                     PoolingNHttpClientConnectionManager connectionManager,
+                                     ElasticsearchProperties.Health properties, Clock clock) {
+        this.elasticsearchService = elasticsearchService;
+        this.connectionManager = connectionManager;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * 获取集群状态，缓存过期时由一个线程刷新，其余线程等待刷新结果
+     *
+     * @return 集群状态
+     */
+    public ClusterSnapshot snapshot() {
+        ClusterSnapshot current = snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current;
+            }
+            current = probe();
+            snapshot = current;
+            return current;
+        }
+    }
+
+    /**
+     * 连接池使用情况
+     *
+     * @return leased（使用中）、pending（等待连接）、available（空闲）、max 和 utilization（leased / max）
+     */
+    public Map<String, Object> connectionPool() {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        if (connectionManager == null) {
+            return pool;
+        }
+        PoolStats stats = connectionManager.getTotalStats();
+        pool.put("leased", stats.getLeased());
+        pool.put("pending", stats.getPending());
+        pool.put("available", stats.getAvailable());
+        pool.put("max", stats.getMax());
+        pool.put("utilization", stats.getMax() > 0 ? (double) stats.getLeased() / stats.getMax() : 0D);
+        return pool;
+    }
+
+    private boolean isFresh(ClusterSnapshot current) {
+        long ttl = properties.getCacheTtl() == null ? 0 : properties.getCacheTtl();
+        return current != null && clock.millis() - current.getTimestamp().toEpochMilli() < ttl;
+    }
+
+    private ClusterSnapshot probe() {
+        Instant now = clock.instant();
+        Time timeout = Time.of(t -> t.time(properties.getTimeout()));
+        try {
+            HealthResponse health = elasticsearchService.clusterHealth(HealthRequest.of(r -> r.timeout(timeout)));
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("clusterName", health.clusterName());
+            details.put("status", health.status().jsonValue());
+            details.put("numberOfNodes", health.numberOfNodes());
+            details.put("numberOfDataNodes", health.numberOfDataNodes());
+            details.put("activeShards", health.activeShards());
+            details.put("unassignedShards", health.unassignedShards());
+            details.put("pendingTasks", health.numberOfPendingTasks());
+            details.put("taskMaxWaitingInQueueMillis", health.taskMaxWaitingInQueueMillis());
+
+            threadPools(timeout, details);
+            return new ClusterSnapshot(now, health.status(), details, null);
+        } catch (RuntimeException e) {
+            log.warn("探测 Elasticsearch 集群状态失败: {}", e.getMessage());
+            return new ClusterSnapshot(now, null, new LinkedHashMap<>(), e);
+        }
+    }
+
+    /**
+     * 线程池统计只作为详情，失败时记录到 threadPoolsError，不影响由集群健康状态决定的探测结果
+     */
+    private void threadPools(Time timeout, Map<String, Object> details) {
+        List<String> threadPools = properties.getThreadPools();
+        if (threadPools == null || threadPools.isEmpty()) {
+            return;
+        }
+        try {
+            NodesStatsResponse nodesStats = elasticsearchService.nodesStats(
+                    NodesStatsRequest.of(r -> r.metric("thread_pool").timeout(timeout)));
+            details.put("threadPools", threadPools(nodesStats, threadPools));
+        } catch (RuntimeException e) {
+            log.warn("读取 Elasticsearch 线程池统计失败: {}", e.getMessage());
+            details.put("threadPoolsError", e.getMessage());
+        }
+    }
+
+    /**
+     * 各节点同名线程池累加：active、queue、rejected（节点启动以来的累计值）
+     */
+    private static Map<String, Object> threadPools(NodesStatsResponse nodesStats, List<String> names) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : names) {
+            long active = 0;
+            long queue = 0;
+            long rejected = 0;
+            for (Stats node : nodesStats.nodes().values()) {
+                ThreadCount count = node.threadPool().get(name);
+                if (count == null) {
+                    continue;
+                }
+                active += count.active() == null ? 0 : count.active();
+                queue += count.queue() == null ? 0 : count.queue();
+                rejected += count.rejected() == null ? 0 : count.rejected();
+            }
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("active", active);
+            pool.put("queue", queue);
+            pool.put("rejected", rejected);
+            result.put(name, pool);
+        }
+        return result;
+    }
+
+    /**
+     * 一次探测的结果
+     */
+    public static final class ClusterSnapshot {
+
+        private final Instant timestamp;
+
+        private final HealthStatus status;
+
+        private final Map<String, Object> details;
+
+        private final Throwable error;
+
+        ClusterSnapshot(Instant timestamp, HealthStatus status, Map<String, Object> details, Throwable error) {
+            this.timestamp = timestamp;
+            this.status = status;
+            this.details = details;
+            this.error = error;
+        }
+
+        /**
+         * @return 探测时间
+         */
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return 集群状态，探测失败时为 null
+         */
+        public HealthStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * @return 集群、节点、线程池信息
+         */
+        public Map<String, Object> getDetails() {
+            return details;
+        }
+
+        /**
+         * @return 探测失败的异常，成功时为 null
+         */
+        public Throwable getError() {
+            return error;
+        }
+    }
+
+}
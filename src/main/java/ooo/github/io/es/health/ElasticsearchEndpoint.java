@@ -0,0 +1,36 @@
+package ooo.github.io.es.health;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/elasticsearch：节点数、等待中的集群任务、线程池排队与拒绝数、连接池使用情况
+ * 集群部分来自 {@link ElasticsearchClusterProbe} 的缓存，需通过 management.endpoints.web.exposure.include 暴露
+ *
+ * @author kaiqin
+ */
+@Endpoint(id = "elasticsearch")
+public class ElasticsearchEndpoint {
+
+    private final ElasticsearchClusterProbe probe;
+
+    public ElasticsearchEndpoint(ElasticsearchClusterProbe probe) {
+        this.probe = probe;
+    }
+
+    @ReadOperation
+    public Map<String, Object> cluster() {
+        ElasticsearchClusterProbe.ClusterSnapshot snapshot = probe.snapshot();
+        Map<String, Object> result = new LinkedHashMap<>(snapshot.getDetails());
+        if (snapshot.getError() != null) {
+            result.put("error", snapshot.getError().getMessage());
+        }
+        result.put("checkedAt", snapshot.getTimestamp().toString());
+        result.put("connectionPool", probe.connectionPool());
+        return result;
+    }
+
+}
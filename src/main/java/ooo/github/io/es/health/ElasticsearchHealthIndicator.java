@@ -0,0 +1,39 @@
+package ooo.github.io.es.health;
+
+import co.elastic.clients.elasticsearch._types.HealthStatus;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Elasticsearch 健康检查，读取 {@link ElasticsearchClusterProbe} 缓存的集群状态
+ * green、yellow 为 UP，red 为 OUT_OF_SERVICE（与 Spring Boot 自带的 Elasticsearch 健康检查一致），请求失败为 DOWN
+ *
+ * @author kaiqin
+ */
+public class ElasticsearchHealthIndicator implements HealthIndicator {
+
+    private final ElasticsearchClusterProbe probe;
+
+    public ElasticsearchHealthIndicator(ElasticsearchClusterProbe probe) {
+        this.probe = probe;
+    }
+
+    @Override
+    public Health health() {
+        ElasticsearchClusterProbe.ClusterSnapshot snapshot = probe.snapshot();
+        if (snapshot.getError() != null) {
+            return Health.down(toException(snapshot.getError()))
+                    .withDetail("checkedAt", snapshot.getTimestamp().toString())
+                    .build();
+        }
+        Health.Builder builder = snapshot.getStatus() == HealthStatus.Red ? Health.outOfService() : Health.up();
+        return builder.withDetails(snapshot.getDetails())
+                .withDetail("checkedAt", snapshot.getTimestamp().toString())
+                .build();
+    }
+
+    private static Exception toException(Throwable error) {
+        return error instanceof Exception ? (Exception) error : new RuntimeException(error);
+    }
+
+}
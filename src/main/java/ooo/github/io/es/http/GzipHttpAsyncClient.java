@@ -0,0 +1,64 @@
+package ooo.github.io.es.http;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+/**
+ * 发送前用 {@link GzipRequestCompressor} 压缩请求体的 HttpAsyncClient，其余操作委托给 RestClientBuilder 创建的客户端
+ *
+ * @author kaiqin
+ */
+final class GzipHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private final CloseableHttpAsyncClient delegate;
+
+    private final GzipRequestCompressor compressor;
+
+    GzipHttpAsyncClient(CloseableHttpAsyncClient delegate, GzipRequestCompressor compressor) {
+        this.delegate = delegate;
+        this.compressor = compressor;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        HttpAsyncRequestProducer producer;
+        try {
+            // RestClient 使用的 BasicAsyncRequestProducer 每次返回同一个请求对象，创建时已取出请求体，替换后需重新创建
+            HttpRequest request = requestProducer.generateRequest();
+            compressor.compress(request, context);
+            producer = HttpAsyncMethods.create(requestProducer.getTarget(), request);
+        } catch (IOException | HttpException | RuntimeException e) {
+            BasicFuture<T> future = new BasicFuture<>(callback);
+            future.failed(e);
+            return future;
+        }
+        return delegate.execute(producer, responseConsumer, context, callback);
+    }
+
+}
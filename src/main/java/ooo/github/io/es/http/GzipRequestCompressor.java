@@ -0,0 +1,107 @@
+package ooo.github.io.es.http;
+
+import ooo.github.io.es.metrics.ElasticsearchMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * gzip 压缩请求体，替代 RestClientBuilder.setCompressionEnabled：
+ * 只压缩不小于 minSize 的请求体，压缩结果先写入内存以得到压缩后的长度（不使用 chunked 传输），并记录节省的字节数；
+ * 所有请求都带上 Accept-Encoding: gzip，RestClient 会自动解压响应体。
+ * <p>
+ * HttpAsyncClient 在执行 HttpRequestInterceptor 之前已经取出请求体，拦截器里替换请求体不会生效，
+ * 因此通过 {@link #wrap(HttpAsyncClientBuilder)} 包装客户端，在发送前替换
+ * </p>
+ *
+ * @author kaiqin
+ */
+public class GzipRequestCompressor {
+
+    /**
+     * 压缩前请求体字节数在 HttpContext 中的属性名，供 {@link ooo.github.io.es.metrics.BulkBytesInterceptor} 读取
+     */
+    public static final String RAW_CONTENT_LENGTH = "elasticsearch.raw-content-length";
+
+    private static final String GZIP = "gzip";
+
+    private final long minSize;
+
+    private final ElasticsearchMetrics metrics;
+
+    /**
+     * @param minSize 压缩的最小字节数，小于等于 0 表示全部压缩
+     * @param metrics 指标，可为空
+     */
+    public GzipRequestCompressor(long minSize, ElasticsearchMetrics metrics) {
+        this.minSize = minSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 包装 RestClientBuilder 配置好的 HttpAsyncClientBuilder，build() 返回的客户端在发送前压缩请求体
+     *
+     * @param builder HttpAsyncClientBuilder
+     * @return 包装后的 HttpAsyncClientBuilder，只能调用 build()
+     */
+    public HttpAsyncClientBuilder wrap(HttpAsyncClientBuilder builder) {
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new GzipHttpAsyncClient(builder.build(), GzipRequestCompressor.this);
+            }
+        };
+    }
+
+    /**
+     * 请求体不小于 minSize 时替换为 gzip 压缩后的请求体
+     *
+     * @param request 请求
+     * @param context 请求上下文，压缩时写入 {@link #RAW_CONTENT_LENGTH}
+     * @throws IOException 读取请求体失败
+     */
+    public void compress(HttpRequest request, HttpContext context) throws IOException {
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+        HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = enclosingRequest.getEntity();
+        // 已压缩（RestClient 重试时复用同一个请求）
+        if (entity == null || entity.getContentEncoding() != null) {
+            return;
+        }
+        long length = entity.getContentLength();
+        if (length >= 0 && length < minSize) {
+            return;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 ? (int) Math.min(length / 4, Integer.MAX_VALUE) : 1024);
+        new GzipCompressingEntity(entity).writeTo(out);
+        ByteArrayEntity compressed = new ByteArrayEntity(out.toByteArray(),
+                entity.getContentType() == null ? null : ContentType.parse(entity.getContentType().getValue()));
+        compressed.setContentEncoding(GZIP);
+        enclosingRequest.setEntity(compressed);
+        if (length >= 0) {
+            if (context != null) {
+                context.setAttribute(RAW_CONTENT_LENGTH, length);
+            }
+            if (metrics != null) {
+                metrics.compressionSavedBytes(length - compressed.getContentLength());
+            }
+        }
+    }
+
+}
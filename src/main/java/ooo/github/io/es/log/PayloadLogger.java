@@ -0,0 +1,80 @@
+package ooo.github.io.es.log;
+
+import co.elastic.clients.json.JsonpMapper;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.util.JsonpUtil;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求体/响应体日志输出
+ * 1. 延迟序列化：返回的对象只有在日志框架真正输出时才会调用 toString 进行序列化
+ * 2. 大小上限：序列化结果超过 elasticsearch.log.max-bytes 时截断，不会完整序列化大请求
+ * 3. 采样：每 elasticsearch.log.sample-rate 次调用只输出一次请求体/响应体
+ *
+ * @author kaiqin
+ */
+public class PayloadLogger {
+
+    /**
+     * 未采样时的占位输出
+     */
+    private static final String NOT_SAMPLED = "[未采样]";
+
+    private final JsonpMapper mapper;
+    private final ElasticsearchProperties.Log properties;
+    private final AtomicLong counter = new AtomicLong();
+
+    public PayloadLogger(JsonpMapper mapper, ElasticsearchProperties.Log properties) {
+        this.mapper = mapper;
+        this.properties = properties;
+    }
+
+    /**
+     * 本次调用是否输出请求体/响应体，同一次调用的请求与响应应使用同一个判断结果
+     *
+     * @param log 调用方日志
+     * @return debug 未开启或未命中采样时返回 false
+     */
+    public boolean sample(Logger log) {
+        if (!log.isDebugEnabled()) {
+            return false;
+        }
+        int sampleRate = properties.getSampleRate() == null ? 1 : properties.getSampleRate();
+        return sampleRate <= 1 || counter.getAndIncrement() % sampleRate == 0;
+    }
+
+    /**
+     * 包装请求体/响应体，作为日志参数使用
+     *
+     * @param source  请求或响应
+     * @param sampled {@link #sample(Logger)} 的结果
+     * @return 日志参数
+     */
+    public Object payload(Object source, boolean sampled) {
+        if (!sampled) {
+            return NOT_SAMPLED;
+        }
+        return new LazyJson(source);
+    }
+
+    /**
+     * 延迟序列化对象，toString 时才进行序列化
+     */
+    private class LazyJson {
+
+        private final Object source;
+
+        LazyJson(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public String toString() {
+            int maxBytes = properties.getMaxBytes() == null ? 0 : properties.getMaxBytes();
+            return JsonpUtil.toJson(source, mapper, maxBytes);
+        }
+    }
+
+}
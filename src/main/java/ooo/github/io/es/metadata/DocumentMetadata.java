@@ -0,0 +1,343 @@
+package ooo.github.io.es.metadata;
+
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.core.bulk.DeleteOperation;
+import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
+import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
+import ooo.github.io.es.anno.IndexName;
+import ooo.github.io.es.anno.PrimaryTerm;
+import ooo.github.io.es.anno.Routing;
+import ooo.github.io.es.anno.SeqNo;
+import ooo.github.io.es.anno.Version;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.util.TypeMappingBuilder;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * 文档类元数据注册表
+ * 每个类只解析一次 @Id、@IndexName、@Type、@JsonProperty、@Routing、@Version、@SeqNo、@PrimaryTerm（含父类字段，子类优先），
+ * 批量写入取ID、高亮回填、生成映射等热点路径直接读取缓存，不再反射遍历字段
+ *
+ * @author kaiqin
+ */
+public final class DocumentMetadata {
+
+    private static final ClassValue<DocumentMetadata> CACHE = new ClassValue<DocumentMetadata>() {
+        @Override
+        protected DocumentMetadata computeValue(Class<?> type) {
+            return new DocumentMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final IndexName indexName;
+
+    /**
+     * 当前类在前，父类在后
+     */
+    private final List<FieldMetadata> fields;
+
+    /**
+     * 按文档字段名和 Java 字段名索引，同名时子类字段优先
+     */
+    private final Map<String, FieldMetadata> fieldsByName;
+
+    private final FieldMetadata idField;
+
+    private final FieldMetadata routingField;
+
+    private final FieldMetadata versionField;
+
+    private final FieldMetadata seqNoField;
+
+    private final FieldMetadata primaryTermField;
+
+    /**
+     * 投影时 _source 的 includes：文档字段名去重，不含 @JsonIgnore 和 transient 字段
+     */
+    private final List<String> sourceFields;
+
+    private volatile TypeMapping typeMapping;
+
+    private DocumentMetadata(Class<?> type) {
+        this.type = type;
+        this.indexName = type.getAnnotation(IndexName.class);
+
+        List<FieldMetadata> fieldList = new ArrayList<>();
+        Map<String, FieldMetadata> byName = new HashMap<>();
+        FieldMetadata id = null;
+        for (Class<?> clazz = type; clazz != null && !clazz.equals(Object.class); clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                FieldMetadata fieldMetadata;
+                try {
+                    fieldMetadata = new FieldMetadata(field);
+                } catch (RuntimeException e) {
+                    // JDK 内部类等无法访问的字段跳过
+                    continue;
+                }
+                fieldList.add(fieldMetadata);
+                byName.putIfAbsent(fieldMetadata.getJsonName(), fieldMetadata);
+                if (id == null && fieldMetadata.isId()) {
+                    id = fieldMetadata;
+                }
+            }
+        }
+        // Java 字段名作为兜底，不覆盖文档字段名
+        for (FieldMetadata fieldMetadata : fieldList) {
+            byName.putIfAbsent(fieldMetadata.getName(), fieldMetadata);
+        }
+        this.fields = Collections.unmodifiableList(fieldList);
+        this.fieldsByName = byName;
+        this.idField = id;
+        this.routingField = fieldList.stream().filter(f -> f.getField().isAnnotationPresent(Routing.class)).findFirst().orElse(null);
+        this.versionField = concurrencyField(fieldList, Version.class);
+        this.seqNoField = concurrencyField(fieldList, SeqNo.class);
+        this.primaryTermField = concurrencyField(fieldList, PrimaryTerm.class);
+        if ((seqNoField == null) != (primaryTermField == null)) {
+            throw new ElasticsearchException("@SeqNo 与 @PrimaryTerm 需同时使用, 类: " + type.getName());
+        }
+        Set<String> source = new LinkedHashSet<>();
+        for (FieldMetadata fieldMetadata : fieldList) {
+            if (!fieldMetadata.isIgnored()) {
+                source.add(fieldMetadata.getJsonName());
+            }
+        }
+        this.sourceFields = Collections.unmodifiableList(new ArrayList<>(source));
+    }
+
+    /**
+     * 获取类的元数据
+     *
+     * @param type 文档类
+     * @return 元数据
+     */
+    public static DocumentMetadata of(Class<?> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("类不能为空");
+        }
+        return CACHE.get(type);
+    }
+
+    /**
+     * 读取文档的 @Id 字段
+     *
+     * @param document 文档
+     * @return ID，字段值为空时返回 null
+     */
+    public String getId(Object document) {
+        if (idField == null) {
+            throw new ElasticsearchException("未发现对应的@Id注解, 类: " + type.getName());
+        }
+        Object idValue = idField.get(document);
+        return idValue == null ? null : idValue.toString();
+    }
+
+    public boolean hasId() {
+        return idField != null;
+    }
+
+    /**
+     * 读取文档的 @Routing 字段
+     *
+     * @param document 文档
+     * @return routing，没有 @Routing 字段或字段值为空时返回 null
+     */
+    public String getRouting(Object document) {
+        if (routingField == null) {
+            return null;
+        }
+        Object routing = routingField.get(document);
+        return routing == null ? null : routing.toString();
+    }
+
+    /**
+     * @return 是否有 @Version、@SeqNo 字段，查询时需要返回 _version、_seq_no 与 _primary_term
+     */
+    public boolean hasHitMetadata() {
+        return versionField != null || seqNoField != null;
+    }
+
+    public boolean hasVersion() {
+        return versionField != null;
+    }
+
+    public boolean hasSeqNo() {
+        return seqNoField != null;
+    }
+
+    /**
+     * 回填查询结果或写入结果中的 _version、_seq_no、_primary_term，值为空或没有对应字段时跳过
+     *
+     * @param document    文档
+     * @param version     _version
+     * @param seqNo       _seq_no
+     * @param primaryTerm _primary_term
+     */
+    public void setHitMetadata(Object document, Long version, Long seqNo, Long primaryTerm) {
+        if (document == null) {
+            return;
+        }
+        if (versionField != null && version != null) {
+            versionField.set(document, version);
+        }
+        if (seqNoField != null && seqNo != null && primaryTerm != null) {
+            seqNoField.set(document, seqNo);
+            primaryTermField.set(document, primaryTerm);
+        }
+    }
+
+    /**
+     * index 操作的乐观并发控制：@SeqNo 与 @PrimaryTerm 都有值时使用 if_seq_no / if_primary_term，否则 @Version 有值时使用外部版本号
+     *
+     * @param builder  index 操作构造器
+     * @param document 文档
+     * @param <T>      数据对象
+     * @return 构造器
+     */
+    public <T> IndexOperation.Builder<T> concurrencyControl(IndexOperation.Builder<T> builder, Object document) {
+        Long seqNo = seqNo(document);
+        if (seqNo != null) {
+            return builder.ifSeqNo(seqNo).ifPrimaryTerm(primaryTerm(document));
+        }
+        Long version = version(document);
+        return version == null ? builder : builder.version(version).versionType(versionType());
+    }
+
+    /**
+     * update 操作的乐观并发控制，只支持 if_seq_no / if_primary_term（update 不支持外部版本号）
+     *
+     * @param builder  update 操作构造器
+     * @param document 文档
+     * @param <T>      文档类型
+     * @param <P>      部分文档类型
+     * @return 构造器
+     */
+    public <T, P> UpdateOperation.Builder<T, P> concurrencyControl(UpdateOperation.Builder<T, P> builder, Object document) {
+        Long seqNo = seqNo(document);
+        return seqNo == null ? builder : builder.ifSeqNo(seqNo).ifPrimaryTerm(primaryTerm(document));
+    }
+
+    /**
+     * delete 操作的乐观并发控制，规则同 index
+     *
+     * @param builder  delete 操作构造器
+     * @param document 文档
+     * @return 构造器
+     */
+    public DeleteOperation.Builder concurrencyControl(DeleteOperation.Builder builder, Object document) {
+        Long seqNo = seqNo(document);
+        if (seqNo != null) {
+            return builder.ifSeqNo(seqNo).ifPrimaryTerm(primaryTerm(document));
+        }
+        Long version = version(document);
+        return version == null ? builder : builder.version(version).versionType(versionType());
+    }
+
+    /**
+     * @return _seq_no，@SeqNo 或 @PrimaryTerm 任一为空时为 null
+     */
+    private Long seqNo(Object document) {
+        if (seqNoField == null || primaryTerm(document) == null) {
+            return null;
+        }
+        Object seqNo = seqNoField.get(document);
+        return seqNo == null ? null : ((Number) seqNo).longValue();
+    }
+
+    /**
+     * @return _primary_term，从 1 开始，小于等于 0（如 long 字段未赋值）时视为没有值
+     */
+    private Long primaryTerm(Object document) {
+        Object primaryTerm = primaryTermField.get(document);
+        return primaryTerm == null || ((Number) primaryTerm).longValue() <= 0 ? null : ((Number) primaryTerm).longValue();
+    }
+
+    /**
+     * @return 外部版本号，long 字段为默认值 0 时视为没有值
+     */
+    private Long version(Object document) {
+        Object version = versionField == null ? null : versionField.get(document);
+        if (version == null || (versionField.getField().getType().isPrimitive() && ((Number) version).longValue() == 0)) {
+            return null;
+        }
+        return ((Number) version).longValue();
+    }
+
+    private VersionType versionType() {
+        return versionField.getField().getAnnotation(Version.class).gte() ? VersionType.ExternalGte : VersionType.External;
+    }
+
+    /**
+     * 按文档字段名（@JsonProperty）或 Java 字段名查找字段
+     *
+     * @param name 字段名
+     * @return 字段，未找到时返回 null
+     */
+    public FieldMetadata getField(String name) {
+        return name == null ? null : fieldsByName.get(name);
+    }
+
+    /**
+     * 根据 @Type 注解生成的映射，首次调用时生成并缓存
+     *
+     * @return 映射
+     */
+    public TypeMapping getTypeMapping() {
+        TypeMapping mapping = typeMapping;
+        if (mapping == null) {
+            mapping = TypeMappingBuilder.build(this);
+            typeMapping = mapping;
+        }
+        return mapping;
+    }
+
+    private FieldMetadata concurrencyField(List<FieldMetadata> fieldList, Class<? extends Annotation> annotation) {
+        for (FieldMetadata fieldMetadata : fieldList) {
+            Field field = fieldMetadata.getField();
+            if (field.isAnnotationPresent(annotation)) {
+                if (field.getType() != Long.class && field.getType() != long.class) {
+                    throw new ElasticsearchException("@" + annotation.getSimpleName() + " 字段类型必须为 Long 或 long, 字段: "
+                            + field.getName() + ", 类: " + type.getName());
+                }
+                return fieldMetadata;
+            }
+        }
+        return null;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return @IndexName 注解，没有时为 null
+     */
+    public IndexName getIndexName() {
+        return indexName;
+    }
+
+    public List<FieldMetadata> getFields() {
+        return fields;
+    }
+
+    public FieldMetadata getIdField() {
+        return idField;
+    }
+
+    /**
+     * @return 反序列化该类需要的 _source 字段
+     */
+    public List<String> getSourceFields() {
+        return sourceFields;
+    }
+
+}
@@ -0,0 +1,158 @@
+package ooo.github.io.es.metadata;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.anno.Type;
+import ooo.github.io.es.exception.ElasticsearchException;
+import org.springframework.util.StringUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * 文档字段元数据，注解只在创建时读取一次，读写通过 MethodHandle 完成
+ *
+ * @author kaiqin
+ */
+public final class FieldMetadata {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+
+    /**
+     * 文档中的字段名，有 @JsonProperty 时取其值，否则为 Java 字段名
+     */
+    private final String jsonName;
+
+    private final Type type;
+
+    private final boolean id;
+
+    /**
+     * @JsonIgnore 或 transient 字段，不参与 JSON 序列化
+     */
+    private final boolean ignored;
+
+    private final MethodHandle getter;
+
+    /**
+     * final 字段为 null
+     */
+    private final MethodHandle setter;
+
+    FieldMetadata(Field field) {
+        this.field = field;
+        JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
+        this.jsonName = jsonProperty != null && StringUtils.hasText(jsonProperty.value()) ? jsonProperty.value() : field.getName();
+        this.type = field.getAnnotation(Type.class);
+        this.id = field.isAnnotationPresent(Id.class);
+        this.ignored = jsonIgnored(field) || Modifier.isTransient(field.getModifiers());
+
+        field.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            this.setter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new ElasticsearchException("读取字段失败, 字段: " + field.getName() + ", 类: " + field.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * 直接标注 @JsonIgnore，或标注了包含 @JsonIgnore 的组合注解（@JacksonAnnotationsInside，如 @SeqNo）
+     */
+    private static boolean jsonIgnored(Field field) {
+        JsonIgnore jsonIgnore = field.getAnnotation(JsonIgnore.class);
+        if (jsonIgnore != null) {
+            return jsonIgnore.value();
+        }
+        for (Annotation annotation : field.getAnnotations()) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType.isAnnotationPresent(JacksonAnnotationsInside.class)) {
+                jsonIgnore = annotationType.getAnnotation(JsonIgnore.class);
+                if (jsonIgnore != null && jsonIgnore.value()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取字段值
+     *
+     * @param target 文档
+     * @return 字段值
+     */
+    public Object get(Object target) {
+        try {
+            return getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw new ElasticsearchException("读取字段失败, 字段: " + field.getName() + ", 类: " + field.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * 写入字段值，值的类型需与字段类型兼容
+     *
+     * @param target 文档
+     * @param value  字段值
+     */
+    public void set(Object target, Object value) {
+        if (setter == null) {
+            throw new ElasticsearchException("final 字段不能写入, 字段: " + field.getName() + ", 类: " + field.getDeclaringClass().getName());
+        }
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable e) {
+            throw new ElasticsearchException("写入字段失败, 字段: " + field.getName() + ", 类: " + field.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * 是否可以写入该类型的值
+     *
+     * @param valueType 值类型
+     * @return 结果
+     */
+    public boolean isWritable(Class<?> valueType) {
+        return setter != null && field.getType().isAssignableFrom(valueType);
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * @return @Type 注解，没有时为 null
+     */
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isId() {
+        return id;
+    }
+
+    public boolean isIgnored() {
+        return ignored;
+    }
+
+}
@@ -0,0 +1,225 @@
+package ooo.github.io.es.metadata;
+
+import ooo.github.io.es.anno.IndexName;
+import ooo.github.io.es.exception.ElasticsearchException;
+import org.springframework.util.StringUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 根据 @IndexName 解析文档类对应的索引名称
+ * 每个类只解析一次注解和时间格式；按时间分索引的名称按时间段缓存，时间段为一分钟与格式中最小时间单位中的较小者，
+ * 同一时间段内直接返回上次结果
+ *
+ * @author kaiqin
+ */
+public class IndexNameResolver {
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("\\{([^}]+)}");
+
+    private static final String ENV_SEPARATOR = "_";
+
+    /**
+     * rollover 首个索引的编号后缀
+     */
+    public static final String FIRST_ROLLOVER_SUFFIX = "-000001";
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private final String envSuffix;
+
+    private final Clock clock;
+
+    private final ClassValue<Template> templates = new ClassValue<Template>() {
+        @Override
+        protected Template computeValue(Class<?> type) {
+            return new Template(type);
+        }
+    };
+
+    /**
+     * @param envSuffix 环境后缀，为空时不追加
+     * @param clock     时钟（含时区），用于按时间分索引
+     */
+    public IndexNameResolver(String envSuffix, Clock clock) {
+        this.envSuffix = StringUtils.hasText(envSuffix) ? envSuffix.trim().toLowerCase(Locale.ROOT) : null;
+        this.clock = clock;
+    }
+
+    /**
+     * 写入使用的索引：按时间分索引时为当前时间对应的索引，rollover 时为写别名
+     *
+     * @param clazz 文档类
+     * @return 索引名称
+     */
+    public String writeIndex(Class<?> clazz) {
+        return templates.get(clazz).current(clock.millis());
+    }
+
+    /**
+     * 查询使用的索引：按时间分索引时时间部分替换为通配符以覆盖所有时间段，rollover 时为别名
+     *
+     * @param clazz 文档类
+     * @return 索引名称
+     */
+    public String searchIndex(Class<?> clazz) {
+        return templates.get(clazz).searchIndex;
+    }
+
+    /**
+     * 是否为 rollover 写别名
+     *
+     * @param clazz 文档类
+     * @return 结果
+     */
+    public boolean isRollover(Class<?> clazz) {
+        return templates.get(clazz).rollover;
+    }
+
+    /**
+     * 单个类解析后的索引模板
+     */
+    private final class Template {
+
+        /**
+         * 字面量与时间格式交替出现，时间格式部分为 DateTimeFormatter，其余为 String
+         */
+        private final List<Object> parts = new ArrayList<>();
+
+        private final String suffix;
+
+        private final boolean rollover;
+
+        private final String searchIndex;
+
+        /**
+         * 不含时间格式时固定不变
+         */
+        private final String fixedIndex;
+
+        /**
+         * 缓存时间段的毫秒数
+         */
+        private final long bucketMillis;
+
+        private volatile Bucket bucket;
+
+        private Template(Class<?> type) {
+            IndexName indexName = DocumentMetadata.of(type).getIndexName();
+            if (indexName == null || !StringUtils.hasText(indexName.value())) {
+                throw new ElasticsearchException("未发现对应的@IndexName注解, 类: " + type.getName());
+            }
+            this.suffix = indexName.isAddEnvSuffix() && envSuffix != null ? ENV_SEPARATOR + envSuffix : "";
+            this.rollover = indexName.rollover();
+
+            String value = indexName.value();
+            StringBuilder search = new StringBuilder();
+            Matcher matcher = DATE_PATTERN.matcher(value);
+            int last = 0;
+            boolean dated = false;
+            long bucketMillis = MINUTE_MILLIS;
+            while (matcher.find()) {
+                String literal = value.substring(last, matcher.start());
+                parts.add(literal);
+                search.append(literal).append('*');
+                try {
+                    parts.add(DateTimeFormatter.ofPattern(matcher.group(1)));
+                    bucketMillis = Math.min(bucketMillis, smallestUnitMillis(matcher.group(1)));
+                } catch (IllegalArgumentException e) {
+                    throw new ElasticsearchException("@IndexName 时间格式错误: " + matcher.group(1) + ", 类: " + type.getName(), e);
+                }
+                last = matcher.end();
+                dated = true;
+            }
+            String tail = value.substring(last);
+            parts.add(tail);
+            search.append(tail).append(suffix);
+            if (dated && rollover) {
+                throw new ElasticsearchException("@IndexName 不支持同时使用时间格式和 rollover, 类: " + type.getName());
+            }
+            this.searchIndex = search.toString();
+            this.fixedIndex = dated ? null : value + suffix;
+            this.bucketMillis = bucketMillis;
+        }
+
+        private String current(long now) {
+            if (fixedIndex != null) {
+                return fixedIndex;
+            }
+            Bucket current = bucket;
+            if (current != null && now >= current.from && now < current.to) {
+                return current.index;
+            }
+            ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone());
+            StringBuilder name = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof DateTimeFormatter) {
+                    ((DateTimeFormatter) part).formatTo(time, name);
+                } else {
+                    name.append((String) part);
+                }
+            }
+            String index = name.append(suffix).toString();
+            long from = now - Math.floorMod(now, bucketMillis);
+            bucket = new Bucket(from, from + bucketMillis, index);
+            return index;
+        }
+    }
+
+    /**
+     * 时间格式中最小时间单位的毫秒数，只区分秒和秒以下，分钟及以上返回一分钟
+     *
+     * @param pattern DateTimeFormatter 格式
+     * @return 毫秒数
+     */
+    static long smallestUnitMillis(String pattern) {
+        long millis = MINUTE_MILLIS;
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+                continue;
+            }
+            if (quoted) {
+                continue;
+            }
+            switch (c) {
+                case 's':
+                    millis = Math.min(millis, 1000L);
+                    break;
+                case 'S':
+                case 'n':
+                case 'N':
+                case 'A':
+                    // 秒以下的精度，clock 只到毫秒
+                    millis = 1L;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return millis;
+    }
+
+    private static final class Bucket {
+        private final long from;
+        private final long to;
+        private final String index;
+
+        private Bucket(long from, long to, String index) {
+            this.from = from;
+            this.to = to;
+            this.index = index;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package ooo.github.io.es.metrics;
+
+import ooo.github.io.es.http.GzipRequestCompressor;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.protocol.HttpContext;
+
+import java.net.URI;
+
+/**
+ * 在 HTTP 层读取 bulk 请求体的字节数，避免为统计大小再序列化一次请求
+ * 开启 gzip 时请求体已被 {@link GzipRequestCompressor} 替换，从 HttpContext 读取压缩前的字节数
+ *
+ * @author kaiqin
+ */
+public class BulkBytesInterceptor implements HttpRequestInterceptor {
+
+    private static final String BULK_ENDPOINT = "/_bulk";
+
+    private final ElasticsearchMetrics metrics;
+
+    public BulkBytesInterceptor(ElasticsearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return;
+        }
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity == null) {
+            return;
+        }
+        Object rawLength = context.getAttribute(GzipRequestCompressor.RAW_CONTENT_LENGTH);
+        long length = rawLength instanceof Long ? (Long) rawLength : entity.getContentLength();
+        // RestClient 重试时请求体已是压缩后的，压缩前的字节数未知，不记录
+        if (length < 0 || (rawLength == null && entity.getContentEncoding() != null)) {
+            return;
+        }
+        String path = URI.create(request.getRequestLine().getUri()).getPath();
+        if (path == null || !path.endsWith(BULK_ENDPOINT)) {
+            return;
+        }
+        metrics.bulkBytes(length);
+    }
+
+}
@@ -0,0 +1,103 @@
+package ooo.github.io.es.metrics;
+
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+
+/**
+ * ElasticsearchService 调用指标
+ * 默认实现不做任何记录；存在 Micrometer 的 MeterRegistry 时使用 {@link MicrometerElasticsearchMetrics}
+ *
+ * @author kaiqin
+ */
+public interface ElasticsearchMetrics {
+
+    /**
+     * 不记录指标
+     */
+    ElasticsearchMetrics NOOP = new ElasticsearchMetrics() {
+    };
+
+    /**
+     * 开始计时，调用结束后必须调用 {@link Sample#success()} 或 {@link Sample#failure(Throwable)}
+     *
+     * @param operation 操作，如 search、bulk
+     * @param index     索引，多个索引以逗号分隔，可为空
+     * @return 计时
+     */
+    default Sample start(String operation, String index) {
+        return Sample.NOOP;
+    }
+
+    /**
+     * 记录 bulk 请求的操作数、服务端耗时以及失败的文档
+     *
+     * @param index    索引，可为空
+     * @param items    操作数
+     * @param response 响应
+     */
+    default void bulk(String index, int items, BulkResponse response) {
+    }
+
+    /**
+     * 记录 bulk 请求体字节数（压缩前），由 HTTP 拦截器调用，拦截器只能看到 URL 中的索引，因此不区分索引
+     *
+     * @param bytes 字节数
+     */
+    default void bulkBytes(long bytes) {
+    }
+
+    /**
+     * 记录 gzip 压缩请求体节省的字节数（压缩前减压缩后），由 HTTP 拦截器调用
+     *
+     * @param bytes 字节数，请求体不可压缩时可能为负数
+     */
+    default void compressionSavedBytes(long bytes) {
+    }
+
+    /**
+     * 记录查询的命中数量与服务端耗时
+     *
+     * @param index    索引，可为空
+     * @param response 响应
+     */
+    default void search(String index, SearchResponse<?> response) {
+    }
+
+    /**
+     * 记录查询结果缓存是否命中
+     *
+     * @param index 索引，多个索引以逗号分隔
+     * @param hit   是否命中
+     */
+    default void cache(String index, boolean hit) {
+    }
+
+    /**
+     * 一次调用的计时
+     */
+    interface Sample {
+
+        Sample NOOP = new Sample() {
+            @Override
+            public void success() {
+            }
+
+            @Override
+            public void failure(Throwable error) {
+            }
+        };
+
+        /**
+         * 调用成功
+         */
+        void success();
+
+        /**
+         * 调用失败
+         *
+         * @param error 异常
+         */
+        void failure(Throwable error);
+    }
+
+}
@@ -0,0 +1,208 @@
+package ooo.github.io.es.metrics;
+
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import io.micrometer.core.instrument.*;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import org.springframework.util.StringUtils;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Micrometer 的指标
+ * <ul>
+ *     <li>elasticsearch.client.requests：调用耗时，标签 operation、index、outcome（SUCCESS/ERROR）、error.type</li>
+ *     <li>elasticsearch.client.bulk.items：每个 bulk 请求的操作数</li>
+ *     <li>elasticsearch.client.bulk.bytes：每个 bulk 请求体的字节数（压缩前）</li>
+ *     <li>elasticsearch.client.bulk.failures：bulk 中失败的文档数，标签 error.type</li>
+ *     <li>elasticsearch.client.search.hits：查询命中的文档总数（track_total_hits 关闭时不记录）</li>
+ *     <li>elasticsearch.client.took：服务端返回的 took（毫秒），标签 operation、index</li>
+ *     <li>elasticsearch.client.cache.requests：查询结果缓存的访问次数，标签 index、result（hit/miss）</li>
+ *     <li>elasticsearch.client.compression.saved：gzip 压缩每个请求体节省的字节数</li>
+ * </ul>
+ * index 标签最多 elasticsearch.metrics.maxIndexTags 个取值，超出后记为 other
+ *
+ * @author kaiqin
+ */
+public class MicrometerElasticsearchMetrics implements ElasticsearchMetrics {
+
+    private static final String REQUESTS = "elasticsearch.client.requests";
+    private static final String BULK_ITEMS = "elasticsearch.client.bulk.items";
+    private static final String BULK_BYTES = "elasticsearch.client.bulk.bytes";
+    private static final String BULK_FAILURES = "elasticsearch.client.bulk.failures";
+    private static final String SEARCH_HITS = "elasticsearch.client.search.hits";
+    private static final String TOOK = "elasticsearch.client.took";
+    private static final String CACHE_REQUESTS = "elasticsearch.client.cache.requests";
+    private static final String COMPRESSION_SAVED = "elasticsearch.client.compression.saved";
+
+    private static final String TAG_OPERATION = "operation";
+    private static final String TAG_INDEX = "index";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_ERROR_TYPE = "error.type";
+    private static final String TAG_RESULT = "result";
+
+    private static final String NONE = "none";
+    private static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+
+    private final int maxIndexTags;
+
+    private final Set<String> indexTags = ConcurrentHashMap.newKeySet();
+
+    public MicrometerElasticsearchMetrics(MeterRegistry registry, ElasticsearchProperties.Metrics properties) {
+        this.registry = registry;
+        this.maxIndexTags = properties.getMaxIndexTags() == null ? 100 : properties.getMaxIndexTags();
+    }
+
+    @Override
+    public Sample start(String operation, String index) {
+        String indexTag = indexTag(index);
+        long start = registry.config().clock().monotonicTime();
+        return new Sample() {
+            @Override
+            public void success() {
+                stop(operation, indexTag, start, "SUCCESS", NONE);
+            }
+
+            @Override
+            public void failure(Throwable error) {
+                stop(operation, indexTag, start, "ERROR", errorType(error));
+            }
+        };
+    }
+
+    @Override
+    public void bulk(String index, int items, BulkResponse response) {
+        String indexTag = indexTag(index);
+        DistributionSummary.builder(BULK_ITEMS)
+                .description("每个 bulk 请求的操作数")
+                .tag(TAG_INDEX, indexTag)
+                .register(registry)
+                .record(items);
+        if (response == null) {
+            return;
+        }
+        took("bulk", indexTag, response.took());
+        if (!response.errors()) {
+            return;
+        }
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() != null) {
+                Counter.builder(BULK_FAILURES)
+                        .description("bulk 中失败的文档数")
+                        .tag(TAG_INDEX, indexTag)
+                        .tag(TAG_ERROR_TYPE, errorType(item.error()))
+                        .register(registry)
+                        .increment();
+            }
+        }
+    }
+
+    @Override
+    public void bulkBytes(long bytes) {
+        DistributionSummary.builder(BULK_BYTES)
+                .description("每个 bulk 请求体的字节数")
+                .baseUnit("bytes")
+                .register(registry)
+                .record(bytes);
+    }
+
+    @Override
+    public void compressionSavedBytes(long bytes) {
+        // DistributionSummary 忽略负数，压缩后反而变大的请求不计入
+        DistributionSummary.builder(COMPRESSION_SAVED)
+                .description("gzip 压缩每个请求体节省的字节数")
+                .baseUnit("bytes")
+                .register(registry)
+                .record(bytes);
+    }
+
+    @Override
+    public void search(String index, SearchResponse<?> response) {
+        if (response == null) {
+            return;
+        }
+        String indexTag = indexTag(index);
+        took("search", indexTag, response.took());
+        TotalHits total = response.hits() == null ? null : response.hits().total();
+        if (total != null) {
+            DistributionSummary.builder(SEARCH_HITS)
+                    .description("查询命中的文档总数")
+                    .tag(TAG_INDEX, indexTag)
+                    .register(registry)
+                    .record(total.value());
+        }
+    }
+
+    @Override
+    public void cache(String index, boolean hit) {
+        Counter.builder(CACHE_REQUESTS)
+                .description("查询结果缓存的访问次数")
+                .tag(TAG_INDEX, indexTag(index))
+                .tag(TAG_RESULT, hit ? "hit" : "miss")
+                .register(registry)
+                .increment();
+    }
+
+    private void stop(String operation, String indexTag, long start, String outcome, String errorType) {
+        Timer.builder(REQUESTS)
+                .description("ElasticsearchService 调用耗时")
+                .tag(TAG_OPERATION, operation)
+                .tag(TAG_INDEX, indexTag)
+                .tag(TAG_OUTCOME, outcome)
+                .tag(TAG_ERROR_TYPE, errorType)
+                .register(registry)
+                .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void took(String operation, String indexTag, long took) {
+        DistributionSummary.builder(TOOK)
+                .description("服务端返回的 took")
+                .baseUnit("milliseconds")
+                .tag(TAG_OPERATION, operation)
+                .tag(TAG_INDEX, indexTag)
+                .register(registry)
+                .record(took);
+    }
+
+    /**
+     * 限制 index 标签的取值个数，超出后记为 other
+     */
+    private String indexTag(String index) {
+        if (!StringUtils.hasText(index)) {
+            return NONE;
+        }
+        if (indexTags.contains(index)) {
+            return index;
+        }
+        if (indexTags.size() >= maxIndexTags) {
+            return OTHER;
+        }
+        indexTags.add(index);
+        return index;
+    }
+
+    /**
+     * 服务端错误取 error.type（如 index_not_found_exception），其余取异常类名
+     */
+    private static String errorType(Throwable error) {
+        if (error instanceof co.elastic.clients.elasticsearch._types.ElasticsearchException) {
+            String type = errorType(((co.elastic.clients.elasticsearch._types.ElasticsearchException) error).error());
+            if (!NONE.equals(type)) {
+                return type;
+            }
+        }
+        return error == null ? NONE : error.getClass().getSimpleName();
+    }
+
+    private static String errorType(ErrorCause cause) {
+        return cause != null && StringUtils.hasText(cause.type()) ? cause.type() : NONE;
+    }
+
+}
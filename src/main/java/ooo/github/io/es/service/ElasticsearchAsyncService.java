@@ -0,0 +1,81 @@
+package ooo.github.io.es.service;
+
+import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步服务，基于 ElasticsearchAsyncClient，调用线程不会阻塞等待 Elasticsearch 响应。
+ * 失败时 CompletableFuture 以 {@link ooo.github.io.es.exception.ElasticsearchException} 异常完成
+ *
+ * @author kaiqin
+ */
+public interface ElasticsearchAsyncService {
+
+    /**
+     * 创建索引
+     *
+     * @param createIndexRequest 创建索引请求
+     * @return 结果
+     */
+    CompletableFuture<CreateIndexResponse> createIndex(CreateIndexRequest createIndexRequest);
+
+
+    /**
+     * 删除索引
+     *
+     * @param deleteIndexRequest 删除索引请求
+     * @return 结果
+     */
+    CompletableFuture<DeleteIndexResponse> deleteIndex(DeleteIndexRequest deleteIndexRequest);
+
+    /**
+     * 索引是否存在
+     *
+     * @param existsRequest 存在索引请求
+     * @return 结果
+     */
+    CompletableFuture<BooleanResponse> existIndex(ExistsRequest existsRequest);
+
+
+    /**
+     * 批量新增
+     *
+     * @param bulkRequest 批量请求
+     * @return 结果
+     */
+    CompletableFuture<BulkResponse> bulk(BulkRequest bulkRequest);
+
+
+    /**
+     * 查询
+     *
+     * @param request        查询请求
+     * @param tDocumentClass 文档类
+     * @return 结果
+     */
+    <TDocument> CompletableFuture<SearchResponse<TDocument>> search(SearchRequest request, Class<TDocument> tDocumentClass);
+
+    /**
+     * 多个查询合并为一次 _msearch 请求，单个查询失败以 {@link MultiSearchResponseItem#isFailure()} 的条目返回
+     *
+     * @param request         msearch 请求
+     * @param documentClasses 各查询的文档类，与 request.searches() 一一对应
+     * @return 结果，与查询顺序一致
+     */
+    CompletableFuture<List<MultiSearchResponseItem<?>>> msearch(MsearchRequest request, List<Class<?>> documentClasses);
+
+    /**
+     * 批量删除
+     *
+     * @param request 删除请求
+     * @return 结果
+     */
+    CompletableFuture<DeleteByQueryResponse> delete(DeleteByQueryRequest request);
+
+}
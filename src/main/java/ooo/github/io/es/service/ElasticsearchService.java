@@ -1,10 +1,20 @@
 package ooo.github.io.es.service;
 
+import co.elastic.clients.elasticsearch.cluster.HealthRequest;
+import co.elastic.clients.elasticsearch.cluster.HealthResponse;
 import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsRequest;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksRequest;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
 
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * @author kaiqin
  */
@@ -35,6 +45,30 @@ public interface ElasticsearchService {
      */
     BooleanResponse existIndex(ExistsRequest existsRequest);
 
+    /**
+     * 查询索引配置
+     *
+     * @param request 查询索引配置请求
+     * @return 结果，key 为具体的索引名称
+     */
+    GetIndicesSettingsResponse getSettings(GetIndicesSettingsRequest request);
+
+    /**
+     * 查询集群健康状态
+     *
+     * @param request 集群健康请求
+     * @return 结果
+     */
+    HealthResponse clusterHealth(HealthRequest request);
+
+    /**
+     * 查询节点统计信息
+     *
+     * @param request 节点统计请求，可通过 metric 只查询需要的部分（如 thread_pool）
+     * @return 结果，key 为节点ID
+     */
+    NodesStatsResponse nodesStats(NodesStatsRequest request);
+
 
     /**
      * 批量新增
@@ -54,6 +88,35 @@ public interface ElasticsearchService {
      */
     <TDocument> SearchResponse<TDocument> search(SearchRequest request, Class<TDocument> tDocumentClass);
 
+
+    /**
+     * 查询并边解析边将命中的 _source 写入输出流，不构建 SearchResponse 和文档对象
+     * 格式为 {"total":命中总数,"hits":[_source, ...]}，只 flush 不关闭输出流
+     *
+     * @param request 查询请求
+     * @param out     输出流
+     * @return 写出的命中数
+     */
+    long searchTo(SearchRequest request, OutputStream out);
+
+    /**
+     * 多个查询合并为一次 _msearch 请求，第 i 个响应按第 i 个文档类反序列化
+     * 单个查询失败不会抛出异常，以 {@link MultiSearchResponseItem#isFailure()} 的条目返回
+     *
+     * @param request          msearch 请求
+     * @param documentClasses  各查询的文档类，与 request.searches() 一一对应
+     * @return 结果，与查询顺序一致
+     */
+    List<MultiSearchResponseItem<?>> msearch(MsearchRequest request, List<Class<?>> documentClasses);
+
+    /**
+     * 统计文档数
+     *
+     * @param request 统计请求
+     * @return 结果
+     */
+    CountResponse count(CountRequest request);
+
     /**
      * 批量删除
      *
@@ -62,4 +125,68 @@ public interface ElasticsearchService {
      */
     DeleteByQueryResponse delete(DeleteByQueryRequest request);
 
+    /**
+     * 打开 point in time
+     *
+     * @param request 打开请求
+     * @return 结果，包含 pit id
+     */
+    OpenPointInTimeResponse openPointInTime(OpenPointInTimeRequest request);
+
+    /**
+     * 关闭 point in time
+     *
+     * @param request 关闭请求
+     * @return 结果
+     */
+    ClosePointInTimeResponse closePointInTime(ClosePointInTimeRequest request);
+
+    /**
+     * 重建索引，wait_for_completion=false 时立即返回任务ID
+     *
+     * @param request 重建索引请求
+     * @return 结果
+     */
+    ReindexResponse reindex(ReindexRequest request);
+
+    /**
+     * 查询任务状态
+     *
+     * @param request 查询任务请求
+     * @return 结果，completed 为 true 时 response 为任务结果
+     */
+    GetTasksResponse getTask(GetTasksRequest request);
+
+    /**
+     * 修改索引配置
+     *
+     * @param request 修改索引配置请求
+     * @return 结果
+     */
+    PutIndicesSettingsResponse putSettings(PutIndicesSettingsRequest request);
+
+    /**
+     * 强制合并段
+     *
+     * @param request 强制合并请求
+     * @return 结果
+     */
+    ForcemergeResponse forcemerge(ForcemergeRequest request);
+
+    /**
+     * 刷新索引
+     *
+     * @param request 刷新请求
+     * @return 结果
+     */
+    RefreshResponse refresh(RefreshRequest request);
+
+    /**
+     * 修改别名，同一请求中的操作原子生效
+     *
+     * @param request 修改别名请求
+     * @return 结果
+     */
+    UpdateAliasesResponse updateAliases(UpdateAliasesRequest request);
+
 }
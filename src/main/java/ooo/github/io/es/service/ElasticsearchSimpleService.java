@@ -1,11 +1,25 @@
 package ooo.github.io.es.service;
 
+import co.elastic.clients.elasticsearch._types.Script;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.ReindexProgress;
 import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.dto.TrackedDocument;
 
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * @author kaiqin
@@ -41,6 +55,39 @@ public interface ElasticsearchSimpleService {
     public <T> boolean createIndex(String indexName, Class<T> clazz);
 
 
+    /**
+     * 根据class创建索引，索引名称取自 @IndexName
+     * 按时间分索引时创建当前时间对应的索引；rollover 时创建 别名-000001 并设为写索引
+     *
+     * @param clazz 类型
+     * @param <T>   泛型
+     * @return 成功与否
+     */
+    <T> boolean createIndex(Class<T> clazz);
+
+    /**
+     * 按 class 当前的 @Type 映射重建索引并原子切换别名，映射变更时无需停止查询
+     * 别名取自 @IndexName，新索引名称为 别名_v时间戳；复制期间写入原索引的数据不会进入新索引，需暂停写入或切换后补写
+     * 原来直接以别名名称创建的索引在切换时删除，原来别名指向的索引保留
+     *
+     * @param clazz 类型，不支持按时间分索引和 rollover
+     * @param <T>   泛型
+     * @return 新索引名称
+     */
+    <T> String reindexWithAliasSwap(Class<T> clazz);
+
+    /**
+     * 按 class 当前的 @Type 映射重建索引并原子切换别名
+     *
+     * @param clazz            类型，不支持按时间分索引和 rollover
+     * @param progressListener 每次通过 tasks API 查询进度后回调，可为空
+     * @param <T>              泛型
+     * @return 新索引名称
+     * @see #reindexWithAliasSwap(Class)
+     */
+    <T> String reindexWithAliasSwap(Class<T> clazz, Consumer<ReindexProgress> progressListener);
+
+
     /**
      * 删除索引
      *
@@ -68,7 +115,8 @@ public interface ElasticsearchSimpleService {
 
 
     /**
-     * 批量新增
+     * 批量新增，按 elasticsearch.bulk.maxOperations / maxBytes 拆分为多个 bulk 请求发送；
+     * 持续写入的场景请使用 {@link ooo.github.io.es.bulk.BulkIngester}
      *
      * @param indexName 索引名称
      * @param tList     数据数组
@@ -78,6 +126,27 @@ public interface ElasticsearchSimpleService {
     <T> boolean bulk(String indexName, List<T> tList);
 
 
+    /**
+     * 批量新增，返回包含最终失败文档的结果（被拒绝的文档按 elasticsearch.bulk.retry 重试后仍失败的），可用于投递死信队列
+     *
+     * @param indexName 索引名称
+     * @param tList     数据数组
+     * @param <T>       数据对象
+     * @return 执行结果
+     */
+    <T> BulkResult bulkWithResult(String indexName, List<T> tList);
+
+
+    /**
+     * 批量新增，索引名称取自数据对象的 @IndexName（按时间分索引时为当前时间对应的索引）
+     *
+     * @param tList 数据数组
+     * @param <T>   数据对象
+     * @return 结果
+     */
+    <T> boolean bulk(List<T> tList);
+
+
     /**
      * 批量新增
      *
@@ -90,6 +159,109 @@ public interface ElasticsearchSimpleService {
     <T> boolean bulk(String indexName, List<T> tList, boolean ignoreEsId);
 
 
+    /**
+     * 批量部分更新，按 @Id 发送 update 操作，值为 null 的字段不发送、不覆盖已有值；文档不存在时该文档失败（404）
+     * 只有少数字段有值的宽文档比 bulk 整篇重建的请求体更小，内容未变化时 ES 跳过写入（detect_noop）
+     *
+     * @param indexName 索引名称
+     * @param tList     数据数组
+     * @param <T>       数据对象
+     * @return 执行结果
+     */
+    <T> BulkResult bulkUpdate(String indexName, List<T> tList);
+
+
+    /**
+     * 批量 upsert（doc_as_upsert），文档存在时部分更新，不存在时以非空字段插入
+     *
+     * @param indexName 索引名称
+     * @param tList     数据数组
+     * @param <T>       数据对象
+     * @return 执行结果
+     */
+    <T> BulkResult bulkUpsert(String indexName, List<T> tList);
+
+
+    /**
+     * 批量脚本更新，按 @Id 对每个文档执行 scriptFunction 返回的脚本（如计数累加），建议使用 params 传值以复用编译后的脚本
+     *
+     * @param indexName      索引名称
+     * @param tList          数据数组
+     * @param scriptFunction 文档对应的脚本
+     * @param upsert         文档不存在时是否以该文档插入
+     * @param <T>            数据对象
+     * @return 执行结果
+     */
+    <T> BulkResult bulkScriptedUpdate(String indexName, List<T> tList, Function<? super T, Script> scriptFunction, boolean upsert);
+
+
+    /**
+     * 批量删除，按 @Id 发送 delete 操作
+     *
+     * @param indexName 索引名称
+     * @param tList     数据数组
+     * @param <T>       数据对象
+     * @return 执行结果，文档不存在不视为失败
+     */
+    <T> BulkResult bulkDelete(String indexName, List<T> tList);
+
+
+    /**
+     * 按文档ID批量删除
+     *
+     * @param indexName 索引名称
+     * @param ids       文档ID
+     * @return 执行结果，文档不存在不视为失败
+     */
+    BulkResult bulkDeleteByIds(String indexName, Collection<String> ids);
+
+
+    /**
+     * 开始跟踪文档的字段变更，修改文档后通过 {@link #bulkUpdateChanged(String, List)} 只发送变化的字段
+     * 需使用 JacksonJsonpMapper（默认）
+     *
+     * @param document 文档，@Id 字段不能为空
+     * @param <T>      数据对象
+     * @return 跟踪的文档
+     */
+    <T> TrackedDocument<T> track(T document);
+
+
+    /**
+     * 批量更新变化的字段，没有变化的文档不发送；写入成功的文档以当前状态作为新的快照，可继续修改后再次提交
+     *
+     * @param indexName        索引名称
+     * @param trackedDocuments 跟踪的文档
+     * @param <T>              数据对象
+     * @return 执行结果，total 为实际发送的操作数
+     */
+    <T> BulkResult bulkUpdateChanged(String indexName, List<TrackedDocument<T>> trackedDocuments);
+
+
+    /**
+     * 导入模式：执行 loader 前把索引设为 refresh_interval=-1、number_of_replicas=0、translog 异步刷盘，
+     * 执行后（包括失败时）恢复原配置并 refresh；适合全量导入，导入期间新数据不可查，节点故障时可能丢失最近的写入
+     *
+     * @param indexName 索引名称，可为别名（对每个索引分别调整和恢复）
+     * @param loader    导入逻辑，如多次调用 {@link #bulk(String, List)}
+     * @param <R>       loader 的返回值类型
+     * @return loader 的返回值
+     */
+    <R> R bulkLoad(String indexName, Supplier<R> loader);
+
+    /**
+     * 导入模式，强制合并后恢复配置
+     *
+     * @param indexName      索引名称，可为别名（对每个索引分别调整和恢复）
+     * @param loader         导入逻辑
+     * @param maxNumSegments 强制合并到的段数，小于等于 0 时不合并
+     * @param <R>            loader 的返回值类型
+     * @return loader 的返回值
+     * @see #bulkLoad(String, Supplier)
+     */
+    <R> R bulkLoad(String indexName, Supplier<R> loader, int maxNumSegments);
+
+
     /**
      * 查询
      *
@@ -102,6 +274,17 @@ public interface ElasticsearchSimpleService {
     <T> SearchResponse<T> search(String indexName, Query query, Class<T> tClass);
 
 
+    /**
+     * 查询，索引名称取自 @IndexName（按时间分索引时查询所有时间段）
+     *
+     * @param tClass 类
+     * @param query  查询条件
+     * @param <T>    数据对象
+     * @return 结果
+     */
+    <T> SearchResponse<T> search(Class<T> tClass, Query query);
+
+
     /**
      * 查询
      *
@@ -126,4 +309,117 @@ public interface ElasticsearchSimpleService {
     <T> SearchResponse<T> search(SearchInput<T> searchInput);
 
 
+    /**
+     * 多个查询合并为一次 _msearch 请求发送，每个查询可以使用不同的索引和文档类型
+     * 任一查询失败时抛出 {@link ooo.github.io.es.exception.ElasticsearchException}，信息中包含失败查询的位置和原因
+     *
+     * @param searchInputs 搜索入参
+     * @return 结果，与 searchInputs 顺序一致，第 i 个结果的文档类型为第 i 个入参的 tClass
+     */
+    List<SearchResponse<?>> multiSearch(List<? extends SearchInput<?>> searchInputs);
+
+
+    /**
+     * 查询，_source 不反序列化为对象，而是保存为 Jackson 的 TokenBuffer（原始 token 序列），适合直接转发给前端的场景
+     * searchInput 的 tClass 可为空；需使用 JacksonJsonpMapper（默认）
+     *
+     * @param searchInput 搜索入参
+     * @return 结果，可通过 {@link ooo.github.io.es.util.SearchResponseUtil#writeHits(SearchResponse, OutputStream)} 写出
+     */
+    SearchResponse<TokenBuffer> searchRaw(SearchInput<?> searchInput);
+
+
+    /**
+     * 查询并将命中写入输出流，格式为 {"total":命中总数,"hits":[_source, ...]}，只 flush 不关闭输出流
+     * 边解析响应边复制 _source 的 token，不构建 SearchResponse 和文档对象，比 searchRaw 的分配更少
+     *
+     * @param searchInput 搜索入参，tClass 可为空
+     * @param out         输出流，如 HttpServletResponse#getOutputStream()
+     * @return 写出的命中数
+     */
+    long writeHitsTo(SearchInput<?> searchInput, OutputStream out);
+
+
+    /**
+     * 流式查询，基于 point in time + search_after 翻页，适合导出整个索引，内存占用与结果总数无关
+     * 排序末尾自动追加 _shard_doc，size 为每页大小（默认 elasticsearch.search.pageSize），不支持 from/collapse/聚合
+     * 返回的 Stream 必须关闭（try-with-resources）以释放 point in time
+     *
+     * @param searchInput 搜索入参
+     * @param <T>         数据对象
+     * @return 文档流
+     */
+    <T> Stream<T> stream(SearchInput<T> searchInput);
+
+
+    /**
+     * 按 after_key 逐页读取 composite 聚合的全部桶，每页一次请求，下一页在处理当前页时预取
+     * 请求只包含该 composite 聚合（size 为 0，不统计总数），返回的 Stream 应关闭（try-with-resources）以取消预取
+     *
+     * @param searchInput     搜索入参，通过 {@link SearchInput#addCompositeAggregation} 添加聚合
+     * @param aggregationName composite 聚合名称
+     * @return 桶，顺序与 composite 的排序一致，子聚合可用 {@link ooo.github.io.es.util.AggregationReader} 读取
+     */
+    Stream<CompositeBucket> compositeBuckets(SearchInput<?> searchInput, String aggregationName);
+
+
+    /**
+     * 按 after_key 逐页读取 composite 聚合的全部桶
+     *
+     * @param searchInput     搜索入参
+     * @param aggregationName composite 聚合名称
+     * @param prefetch        是否在处理当前页时预取下一页，关闭后同一时刻只有一个请求、内存中只有一页
+     * @return 桶
+     */
+    Stream<CompositeBucket> compositeBuckets(SearchInput<?> searchInput, String aggregationName, boolean prefetch);
+
+
+    /**
+     * 切片并行导出，切片数默认为目标索引的主分片数（见 elasticsearch.search.slices），每个切片一个线程
+     * 阻塞直到导出完成，consumer 会被多个切片线程并发调用，需自行保证线程安全
+     *
+     * @param searchInput 搜索入参，限制同 {@link #stream(SearchInput)}
+     * @param consumer    参数为切片编号和文档
+     * @param <T>         数据对象
+     * @return 导出的文档数
+     */
+    <T> long export(SearchInput<T> searchInput, BiConsumer<Integer, T> consumer);
+
+
+    /**
+     * 切片并行导出
+     *
+     * @param searchInput 搜索入参，限制同 {@link #stream(SearchInput)}
+     * @param slices      切片数，小于等于 0 时使用默认值
+     * @param executor    执行切片的线程池，为空时按切片数创建临时线程
+     * @param consumer    参数为切片编号和文档
+     * @param <T>         数据对象
+     * @return 导出的文档数
+     */
+    <T> long export(SearchInput<T> searchInput, int slices, Executor executor, BiConsumer<Integer, T> consumer);
+
+
+    /**
+     * 切片并行导出为 Stream，切片线程写入容量为 elasticsearch.search.queueCapacity 的有界队列，调用方单线程消费
+     * 返回的 Stream 必须关闭（try-with-resources），提前关闭会停止所有切片
+     *
+     * @param searchInput 搜索入参，限制同 {@link #stream(SearchInput)}
+     * @param <T>         数据对象
+     * @return 文档流，不保证顺序
+     */
+    <T> Stream<T> exportStream(SearchInput<T> searchInput);
+
+
+    /**
+     * 切片并行导出为 Stream
+     *
+     * @param searchInput 搜索入参，限制同 {@link #stream(SearchInput)}
+     * @param slices      切片数，小于等于 0 时使用默认值
+     * @param executor    执行切片的线程池，为空时按切片数创建临时线程
+     * @param <T>         数据对象
+     * @return 文档流，不保证顺序
+     */
+    <T> Stream<T> exportStream(SearchInput<T> searchInput, int slices, Executor executor);
+
+
 }
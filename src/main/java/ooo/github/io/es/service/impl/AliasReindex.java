@@ -0,0 +1,277 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.Slices;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.core.CountRequest;
+import co.elastic.clients.elasticsearch.core.ReindexRequest;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.ForcemergeRequest;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsRequest;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.PutIndicesSettingsRequest;
+import co.elastic.clients.elasticsearch.indices.RefreshRequest;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.elasticsearch.tasks.GetTasksRequest;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.Status;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.ReindexProgress;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchService;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 重建索引并切换别名：新建带版本号的索引（写入期间 refresh_interval=-1、副本为 0），原索引设置 index.blocks.write 后服务端切片 _reindex，
+ * 通过 tasks API 轮询进度，强制合并后恢复原索引的副本、刷新间隔与 translog 配置，核对文档数后在一个 _aliases 请求中原子切换别名
+ * <p>
+ * 复制期间原索引只读，写入返回 cluster_block_exception，不会出现写入原索引却未复制到新索引的数据。
+ * 切换别名前失败时删除新索引并解除原索引的只读，别名仍指向原索引；原索引（别名指向的）切换后解除只读并保留，确认无误后自行删除
+ *
+ * @author kaiqin
+ */
+@Slf4j
+final class AliasReindex {
+
+    private static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final String VERSION_SEPARATOR = "_v";
+
+    private final ElasticsearchService elasticsearchService;
+    private final ElasticsearchProperties properties;
+    private final String alias;
+    private final TypeMapping typeMapping;
+
+    /**
+     * 可为空
+     */
+    private final Consumer<ReindexProgress> progressListener;
+
+    AliasReindex(ElasticsearchService elasticsearchService, ElasticsearchProperties properties, String alias,
+                 TypeMapping typeMapping, Consumer<ReindexProgress> progressListener) {
+        this.elasticsearchService = elasticsearchService;
+        this.properties = properties;
+        this.alias = alias;
+        this.typeMapping = typeMapping;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @return 新索引名称
+     */
+    String run() {
+        String targetIndex = alias + VERSION_SEPARATOR + LocalDateTime.now().format(VERSION_FORMATTER);
+        Map<String, IndexState> sources = sourceIndices();
+        if (sources.isEmpty()) {
+            log.info("别名不存在, 创建索引并添加别名, 别名: {}, 索引: {}", alias, targetIndex);
+            elasticsearchService.createIndex(ElasticsearchRequests.createIndexRequest(targetIndex, typeMapping, properties));
+            swapAlias(Collections.emptyList(), false, targetIndex);
+            return targetIndex;
+        }
+
+        // 别名与索引不能同名，同名时原来是直接创建的索引，切换时需要在同一请求中删除它
+        boolean concrete = sources.containsKey(alias);
+        List<String> sourceIndices = new ArrayList<>(sources.keySet());
+        IndexSettings sourceSettings = sources.values().iterator().next().settings();
+        elasticsearchService.createIndex(ElasticsearchRequests.reindexTargetRequest(targetIndex, typeMapping, properties));
+        try {
+            blockWrites(sourceIndices, true);
+            // 只读前已写入但未刷新的文档 _reindex 读不到
+            elasticsearchService.refresh(new RefreshRequest.Builder().index(sourceIndices).build());
+            copy(sourceIndices, targetIndex);
+            forcemerge(targetIndex);
+            restoreSettings(targetIndex, sourceSettings);
+            elasticsearchService.refresh(new RefreshRequest.Builder().index(targetIndex).build());
+            verifyCount(sourceIndices, targetIndex);
+        } catch (RuntimeException e) {
+            deleteQuietly(targetIndex);
+            unblockQuietly(sourceIndices);
+            throw e;
+        }
+        try {
+            swapAlias(sourceIndices, concrete, targetIndex);
+        } catch (RuntimeException e) {
+            unblockQuietly(sourceIndices);
+            throw e;
+        }
+        if (!concrete) {
+            unblockQuietly(sourceIndices);
+        }
+        if (concrete) {
+            log.info("重建索引完成, 别名: {} 已指向 {}, 原索引已删除", alias, targetIndex);
+        } else {
+            log.info("重建索引完成, 别名: {} 已指向 {}, 原索引 {} 保留", alias, targetIndex, sourceIndices);
+        }
+        return targetIndex;
+    }
+
+    /**
+     * @return 别名（或同名索引）对应的索引及配置，不存在时为空
+     */
+    private Map<String, IndexState> sourceIndices() {
+        if (!elasticsearchService.existIndex(new ExistsRequest.Builder().index(alias).build()).value()) {
+            return Collections.emptyMap();
+        }
+        return elasticsearchService.getSettings(new GetIndicesSettingsRequest.Builder().index(alias).build()).result();
+    }
+
+    private void copy(List<String> sourceIndices, String targetIndex) {
+        int slices = properties.getReindex().getSlices();
+        ReindexRequest request = new ReindexRequest.Builder()
+                .source(s -> s.index(sourceIndices))
+                .dest(d -> d.index(targetIndex))
+                .slices(slices > 0 ? Slices.of(s -> s.value(slices)) : Slices.of(s -> s.computed(SlicesCalculation.Auto)))
+                .waitForCompletion(false)
+                .build();
+        String taskId = elasticsearchService.reindex(request).task();
+        if (!StringUtils.hasText(taskId)) {
+            throw new ElasticsearchException("重建索引未返回任务ID, 目标索引: " + targetIndex);
+        }
+        log.info("重建索引任务已提交, 源索引: {}, 目标索引: {}, 任务ID: {}", sourceIndices, targetIndex, taskId);
+        awaitTask(String.join(",", sourceIndices), targetIndex, taskId);
+    }
+
+    private void awaitTask(String sourceIndex, String targetIndex, String taskId) {
+        long pollInterval = Math.max(1L, properties.getReindex().getPollInterval());
+        GetTasksRequest request = new GetTasksRequest.Builder().taskId(taskId).build();
+        while (true) {
+            GetTasksResponse response = elasticsearchService.getTask(request);
+            ReindexProgress progress = progress(sourceIndex, targetIndex, taskId, response);
+            log.info("重建索引进度, 目标索引: {}, 已复制: {}/{} ({}%)", targetIndex,
+                    progress.getCreated() + progress.getUpdated(), progress.getTotal(),
+                    String.format("%.1f", progress.getPercent()));
+            if (progressListener != null) {
+                progressListener.accept(progress);
+            }
+            if (response.completed()) {
+                checkResult(taskId, response);
+                return;
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticsearchException("等待重建索引被中断, 任务ID: " + taskId, e);
+            }
+        }
+    }
+
+    private static ReindexProgress progress(String sourceIndex, String targetIndex, String taskId, GetTasksResponse response) {
+        ReindexProgress progress = new ReindexProgress();
+        progress.setSourceIndex(sourceIndex);
+        progress.setTargetIndex(targetIndex);
+        progress.setTaskId(taskId);
+        progress.setCompleted(response.completed());
+        Status status = response.response() != null ? response.response() : response.task().status();
+        if (status != null) {
+            progress.setTotal(status.total());
+            progress.setCreated(status.created());
+            progress.setUpdated(status.updated());
+            progress.setVersionConflicts(status.versionConflicts());
+            progress.setBatches(status.batches());
+        }
+        return progress;
+    }
+
+    private static void checkResult(String taskId, GetTasksResponse response) {
+        if (response.error() != null) {
+            throw new ElasticsearchException(String.format("重建索引失败, 任务ID: %s, 错误: [%s] %s",
+                    taskId, response.error().type(), response.error().reason()));
+        }
+        Status result = response.response();
+        if (result == null) {
+            return;
+        }
+        if (!result.failures().isEmpty()) {
+            throw new ElasticsearchException(String.format("重建索引失败, 任务ID: %s, 失败数量: %d, 错误: %s",
+                    taskId, result.failures().size(), result.failures().get(0)));
+        }
+        if (StringUtils.hasText(result.canceled())) {
+            throw new ElasticsearchException(String.format("重建索引任务已取消, 任务ID: %s, 原因: %s", taskId, result.canceled()));
+        }
+    }
+
+    /**
+     * 强制合并在副本恢复前执行，副本直接复制合并后的段；超过 socketTimeout 时服务端仍会继续合并，不影响切换
+     */
+    private void forcemerge(String targetIndex) {
+        int maxNumSegments = properties.getReindex().getMaxNumSegments();
+        if (maxNumSegments <= 0) {
+            return;
+        }
+        try {
+            elasticsearchService.forcemerge(new ForcemergeRequest.Builder()
+                    .index(targetIndex)
+                    .maxNumSegments((long) maxNumSegments)
+                    .build());
+        } catch (ElasticsearchException e) {
+            log.warn("强制合并未完成, 继续切换别名, 索引名称: {}", targetIndex, e);
+        }
+    }
+
+    /**
+     * 原索引的文档数与新索引不一致时不切换（多个原索引中有相同 _id 的文档时同样不一致，需手动处理）
+     */
+    private void verifyCount(List<String> sourceIndices, String targetIndex) {
+        long source = elasticsearchService.count(new CountRequest.Builder().index(sourceIndices).build()).count();
+        long target = elasticsearchService.count(new CountRequest.Builder().index(targetIndex).build()).count();
+        if (source != target) {
+            throw new ElasticsearchException(String.format("重建索引文档数不一致, 原索引: %s 文档数: %d, 新索引: %s 文档数: %d",
+                    sourceIndices, source, targetIndex, target));
+        }
+    }
+
+    private void blockWrites(List<String> indices, boolean block) {
+        elasticsearchService.putSettings(new PutIndicesSettingsRequest.Builder()
+                .index(indices)
+                .settings(s -> s.blocks(b -> b.write(block)))
+                .build());
+    }
+
+    private void unblockQuietly(List<String> sourceIndices) {
+        try {
+            blockWrites(sourceIndices, false);
+        } catch (ElasticsearchException e) {
+            log.warn("解除原索引只读失败, 请手动设置 index.blocks.write=false, 索引名称: {}", sourceIndices, e);
+        }
+    }
+
+    private void restoreSettings(String targetIndex, IndexSettings sourceSettings) {
+        elasticsearchService.putSettings(new PutIndicesSettingsRequest.Builder()
+                .index(targetIndex)
+                .settings(IngestSettings.of(sourceSettings).restore())
+                .build());
+    }
+
+    private void swapAlias(List<String> sourceIndices, boolean concrete, String targetIndex) {
+        List<Action> actions = new ArrayList<>(2);
+        actions.add(Action.of(a -> a.add(add -> add.index(targetIndex).alias(alias))));
+        if (concrete) {
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(alias))));
+        } else if (!sourceIndices.isEmpty()) {
+            actions.add(Action.of(a -> a.remove(r -> r.indices(sourceIndices).alias(alias))));
+        }
+        elasticsearchService.updateAliases(new UpdateAliasesRequest.Builder().actions(actions).build());
+    }
+
+    private void deleteQuietly(String targetIndex) {
+        try {
+            elasticsearchService.deleteIndex(new DeleteIndexRequest.Builder().index(targetIndex).build());
+        } catch (ElasticsearchException e) {
+            log.warn("删除未完成的新索引失败, 请手动删除, 索引名称: {}", targetIndex, e);
+        }
+    }
+
+}
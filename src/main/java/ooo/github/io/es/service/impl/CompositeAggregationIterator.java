@@ -0,0 +1,135 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * composite 聚合的翻页迭代器：按 after_key 逐页请求，内存中只保留当前页（开启预取时再加上下一页）
+ * 开启预取时拿到一页后立即异步请求下一页，调用方处理当前页时下一页已在路上
+ *
+ * @author kaiqin
+ */
+@Slf4j
+final class CompositeAggregationIterator implements Iterator<CompositeBucket>, AutoCloseable {
+
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final SearchInput<?> input;
+    private final String aggregationName;
+    private final boolean prefetch;
+
+    /**
+     * 下一页的 after_key，为空表示没有下一页
+     */
+    private Map<String, FieldValue> afterKey;
+
+    private CompletableFuture<SearchResponse<Object>> pending;
+
+    private Iterator<CompositeBucket> current = Collections.emptyIterator();
+
+    private int pages;
+
+    private boolean closed;
+
+    CompositeAggregationIterator(ElasticsearchAsyncService elasticsearchAsyncService, SearchInput<?> input,
+                                 String aggregationName, boolean prefetch) {
+        // 先构建一次请求，校验聚合是否存在
+        SearchRequest first = ElasticsearchRequests.compositePageRequest(input, aggregationName, null);
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.input = input;
+        this.aggregationName = aggregationName;
+        this.prefetch = prefetch;
+        this.pending = elasticsearchAsyncService.search(first, Object.class);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (pending == null && afterKey != null && !closed) {
+                pending = fetch(afterKey);
+            }
+            if (pending == null) {
+                close();
+                return false;
+            }
+            CompositeAggregate page = page(await(pending));
+            pending = null;
+            pages++;
+
+            List<CompositeBucket> buckets = page.buckets().array();
+            // 不足一页不代表已到末尾（如 bucket_selector 在翻页后过滤了桶），以 after_key 为准，空页时结束
+            afterKey = !buckets.isEmpty() && !CollectionUtils.isEmpty(page.afterKey()) ? page.afterKey() : null;
+            if (prefetch && afterKey != null) {
+                pending = fetch(afterKey);
+            }
+            current = buckets.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public CompositeBucket next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = Collections.emptyIterator();
+        afterKey = null;
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        log.debug("composite 聚合翻页结束, 聚合: {}, 页数: {}", aggregationName, pages);
+    }
+
+    private CompletableFuture<SearchResponse<Object>> fetch(Map<String, FieldValue> after) {
+        return elasticsearchAsyncService.search(
+                ElasticsearchRequests.compositePageRequest(input, aggregationName, after), Object.class);
+    }
+
+    private CompositeAggregate page(SearchResponse<Object> response) {
+        Aggregate aggregate = response.aggregations().get(aggregationName);
+        if (aggregate == null || !aggregate.isComposite()) {
+            close();
+            throw new ElasticsearchException("composite 聚合翻页失败, 响应中没有聚合: " + aggregationName);
+        }
+        return aggregate.composite();
+    }
+
+    private SearchResponse<Object> await(CompletableFuture<SearchResponse<Object>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            close();
+            if (e.getCause() instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e.getCause();
+            }
+            throw new ElasticsearchException("composite 聚合翻页失败: " + e.getMessage(), e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.*;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.log.PayloadLogger;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.util.SearchResponseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Elasticsearch 7.17.7 异步服务实现类
+ *
+ * @author kaiqin
+ */
+@Slf4j
+@Component
+public class Elasticsearch7AsyncServiceImpl implements ElasticsearchAsyncService {
+
+    @Autowired
+    @Qualifier("esAsyncClient")
+    private ElasticsearchAsyncClient asyncClient;
+
+    @Autowired
+    private PayloadLogger payloadLogger;
+
+    @Override
+    public CompletableFuture<CreateIndexResponse> createIndex(CreateIndexRequest createIndexRequest) {
+        if (createIndexRequest == null) {
+            throw new IllegalArgumentException("创建索引请求不能为空");
+        }
+        if (StringUtils.isEmpty(createIndexRequest.index())) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("创建索引开始, 索引名称: {}, 请求体: {}", createIndexRequest.index(), payloadLogger.payload(createIndexRequest, sampled));
+        return translate(asyncClient.indices().create(createIndexRequest)
+                        .thenApply(indexResponse -> {
+                            log.debug("创建索引成功, 索引名称: {}, 响应体: {}", createIndexRequest.index(), payloadLogger.payload(indexResponse, sampled));
+                            return indexResponse;
+                        }),
+                String.format("创建索引失败, 索引名称: %s", createIndexRequest.index()));
+    }
+
+    @Override
+    public CompletableFuture<DeleteIndexResponse> deleteIndex(DeleteIndexRequest deleteIndexRequest) {
+        if (deleteIndexRequest == null) {
+            throw new IllegalArgumentException("删除索引请求不能为空");
+        }
+        if (StringUtils.isEmpty(deleteIndexRequest.index())) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("删除索引开始, 索引名称: {}, 请求体: {}", deleteIndexRequest.index(), payloadLogger.payload(deleteIndexRequest, sampled));
+        return translate(asyncClient.indices().delete(deleteIndexRequest)
+                        .thenApply(indexResponse -> {
+                            log.debug("删除索引成功, 索引名称: {}, 响应体: {}", deleteIndexRequest.index(), payloadLogger.payload(indexResponse, sampled));
+                            return indexResponse;
+                        }),
+                String.format("删除索引失败, 索引名称: %s", deleteIndexRequest.index()));
+    }
+
+    @Override
+    public CompletableFuture<BooleanResponse> existIndex(ExistsRequest existsRequest) {
+        if (existsRequest == null) {
+            throw new IllegalArgumentException("查询索引请求不能为空");
+        }
+        if (StringUtils.isEmpty(existsRequest.index())) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("查询索引是否存在开始, 索引名称: {}, 请求体: {}", existsRequest.index(), payloadLogger.payload(existsRequest, sampled));
+        return translate(asyncClient.indices().exists(existsRequest)
+                        .thenApply(response -> {
+                            log.debug("查询索引是否存在结束, 索引名称: {}, 响应体: {}", existsRequest.index(), payloadLogger.payload(response, sampled));
+                            return response;
+                        }),
+                String.format("查询索引是否存在失败, 索引名称: %s", existsRequest.index()));
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulk(BulkRequest bulkRequest) {
+        if (bulkRequest == null) {
+            throw new IllegalArgumentException("批量操作请求不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("批量操作开始, 索引名称: {}, 操作数量: {}, 请求体: {}",
+                bulkRequest.index(),
+                bulkRequest.operations() != null ? bulkRequest.operations().size() : 0,
+                payloadLogger.payload(bulkRequest, sampled));
+        return translate(asyncClient.bulk(bulkRequest)
+                        .thenApply(bulkResponse -> {
+                            if (bulkResponse.errors()) {
+                                List<BulkResponseItem> errorItems = bulkResponse.items().stream()
+                                        .filter(item -> item.error() != null)
+                                        .collect(Collectors.toList());
+                                log.warn("批量操作存在错误, 错误数量: {}, 错误详情: {}", errorItems.size(), errorItems);
+                            } else {
+                                log.debug("批量操作成功, 操作数量: {}, 响应体: {}", bulkResponse.items().size(), payloadLogger.payload(bulkResponse, sampled));
+                            }
+                            return bulkResponse;
+                        }),
+                "批量操作失败");
+    }
+
+    @Override
+    public <TDocument> CompletableFuture<SearchResponse<TDocument>> search(SearchRequest request, Class<TDocument> tDocumentClass) {
+        if (request == null) {
+            throw new IllegalArgumentException("搜索请求不能为空");
+        }
+        if (tDocumentClass == null) {
+            throw new IllegalArgumentException("文档类型不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("查询ES数据开始, 索引: {}, 文档类型: {}, 请求体: {}",
+                request.index(),
+                tDocumentClass.getSimpleName(),
+                payloadLogger.payload(request, sampled));
+        return translate(asyncClient.search(request, tDocumentClass)
+                        .thenApply(response -> {
+                            log.debug("查询ES数据成功, 索引: {}, 命中数量: {}, 响应体: {}",
+                                    request.index(),
+                                    response.hits().total() != null ? response.hits().total().value() : 0,
+                                    payloadLogger.payload(response, sampled));
+                            return SearchResponseUtil.fillHitMetadata(response);
+                        }),
+                String.format("查询ES数据失败, 索引: %s", request.index()));
+    }
+
+    @Override
+    public CompletableFuture<List<MultiSearchResponseItem<?>>> msearch(MsearchRequest request, List<Class<?>> documentClasses) {
+        if (request == null) {
+            throw new IllegalArgumentException("msearch 请求不能为空");
+        }
+        if (documentClasses == null || documentClasses.size() != request.searches().size()) {
+            throw new IllegalArgumentException("文档类数量必须与查询数量一致");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        String indexName = MultiSearchResponses.indexNames(request);
+        log.debug("批量查询ES数据开始, 索引: {}, 查询数量: {}, 请求体: {}", indexName, documentClasses.size(), payloadLogger.payload(request, sampled));
+        return translate(asyncClient._transport()
+                        .performRequestAsync(request, MultiSearchResponses.endpoint(documentClasses), asyncClient._transportOptions())
+                        .thenApply(items -> {
+                            log.debug("批量查询ES数据成功, 索引: {}, 失败数量: {}", indexName, items.stream().filter(MultiSearchResponseItem::isFailure).count());
+                            return items;
+                        }),
+                String.format("批量查询ES数据失败, 索引: %s", indexName));
+    }
+
+    @Override
+    public CompletableFuture<DeleteByQueryResponse> delete(DeleteByQueryRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("删除请求不能为空");
+        }
+        if (StringUtils.isEmpty(request.index())) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        log.debug("删除ES数据开始, 索引: {}, 请求体: {}", request.index(), payloadLogger.payload(request, sampled));
+        return translate(asyncClient.deleteByQuery(request)
+                        .thenApply(deleteByQuery -> {
+                            log.debug("删除ES数据成功, 索引: {}, 删除数量: {}, 响应体: {}",
+                                    request.index(),
+                                    deleteByQuery.deleted(),
+                                    payloadLogger.payload(deleteByQuery, sampled));
+                            return deleteByQuery;
+                        }),
+                String.format("删除ES数据失败, 索引: %s", request.index()));
+    }
+
+    /**
+     * 与同步实现一致，将 IOException 与客户端的 ElasticsearchException 转换为 {@link ElasticsearchException}
+     *
+     * @param future   异步结果
+     * @param errorMsg 错误信息
+     * @param <R>      响应类型
+     * @return 转换后的异步结果
+     */
+    private <R> CompletableFuture<R> translate(CompletableFuture<R> future, String errorMsg) {
+        return future.handle((response, e) -> {
+            if (e == null) {
+                return response;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ElasticsearchException) {
+                throw (ElasticsearchException) cause;
+            }
+            String message = cause instanceof co.elastic.clients.elasticsearch._types.ElasticsearchException
+                    ? String.format("%s, 错误: %s", errorMsg, cause.getMessage())
+                    : errorMsg;
+            log.error(message, cause);
+            throw new ElasticsearchException(message, cause);
+        });
+    }
+
+}
@@ -1,28 +1,33 @@
 package ooo.github.io.es.service.impl;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.cluster.HealthRequest;
+import co.elastic.clients.elasticsearch.cluster.HealthResponse;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsRequest;
+import co.elastic.clients.elasticsearch.nodes.NodesStatsResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksRequest;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
-import co.elastic.clients.json.JsonpMapper;
-import co.elastic.clients.json.JsonpSerializable;
-import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import lombok.extern.slf4j.Slf4j;
 import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.log.PayloadLogger;
+import ooo.github.io.es.metrics.ElasticsearchMetrics;
 import ooo.github.io.es.service.ElasticsearchService;
+import ooo.github.io.es.util.SearchHitsWriter;
+import ooo.github.io.es.util.SearchResponseUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
-import jakarta.json.spi.JsonProvider;
-import jakarta.json.stream.JsonGenerator;
-
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -39,66 +44,14 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
     @Qualifier("esClient")
     private ElasticsearchClient client;
 
-    private String toJson(Object source) {
-        if (source == null) {
-            return "null";
-        }
-        try {
-            JsonpMapper mapper = client._transport().jsonpMapper();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            // JacksonJsonpMapper.serialize() 要求 JsonGenerator 必须由 JacksonJsonpProvider 创建，否则抛 IllegalArgumentException
-            JsonGenerator generator = createJsonGenerator(mapper, baos);
-
-            // ES 7.17 的 Request/Response 可能未实现 JsonpSerializable 接口，但多有 serialize(JsonGenerator, JsonpMapper)，用反射调用
-            if (serializeWithJsonp(source, generator, mapper)) {
-                generator.close();
-                return baos.toString("UTF-8");
-            }
-            // ES 包内类型若没有 serialize 方法，不要交给 Jackson（会报 No serializer），直接 toString
-            if (source.getClass().getName().startsWith("co.elastic.clients.")) {
-                generator.close();
-                return source.toString();
-            }
-            mapper.serialize(source, generator);
-            generator.close();
-
-            return baos.toString("UTF-8");
-        } catch (Exception e) {
-            log.warn("序列化对象为 JSON 时发生异常, fallback 使用 toString, 对象类型: {}", source.getClass() != null ? source.getClass().getName() : "unknown", e);
-            return source.toString();
-        }
-    }
-
-    /**
-     * 对 ES 客户端类型调用其 serialize(JsonGenerator, JsonpMapper) 方法（7.17 中部分类型未实现 JsonpSerializable，但方法存在）。
-     * @return true 表示已成功用 JsonP 序列化，false 表示需走 mapper.serialize
-     */
-    private static boolean serializeWithJsonp(Object source, JsonGenerator generator, JsonpMapper mapper) {
-        if (source instanceof JsonpSerializable) {
-            ((JsonpSerializable) source).serialize(generator, mapper);
-            return true;
-        }
-        try {
-            Method m = source.getClass().getMethod("serialize", JsonGenerator.class, JsonpMapper.class);
-            m.invoke(source, generator, mapper);
-            return true;
-        } catch (NoSuchMethodException e) {
-            return false;
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
+    @Autowired
+    private PayloadLogger payloadLogger;
 
     /**
-     * 使用与当前 JsonpMapper 配套的 JsonProvider 创建 JsonGenerator。
-     * JacksonJsonpMapper 要求 generator 必须由其 jsonProvider() 创建，否则 serialize 会抛 IllegalArgumentException。
+     * 未引入 Micrometer 或没有 MeterRegistry 时不记录指标
      */
-    private static JsonGenerator createJsonGenerator(JsonpMapper mapper, ByteArrayOutputStream baos) {
-        if (mapper instanceof JacksonJsonpMapper) {
-            return ((JacksonJsonpMapper) mapper).jsonProvider().createGenerator(baos);
-        }
-        return JsonProvider.provider().createGenerator(baos);
-    }
+    @Autowired(required = false)
+    private ElasticsearchMetrics metrics = ElasticsearchMetrics.NOOP;
 
     @Override
     public CreateIndexResponse createIndex(CreateIndexRequest createIndexRequest) {
@@ -109,16 +62,21 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
             throw new IllegalArgumentException("索引名称不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        ElasticsearchMetrics.Sample sample = metrics.start("createIndex", createIndexRequest.index());
         try {
-            log.debug("创建索引开始, 索引名称: {}, 请求体: {}", createIndexRequest.index(), toJson(createIndexRequest));
+            log.debug("创建索引开始, 索引名称: {}, 请求体: {}", createIndexRequest.index(), payloadLogger.payload(createIndexRequest, sampled));
             CreateIndexResponse indexResponse = client.indices().create(createIndexRequest);
-            log.debug("创建索引成功, 索引名称: {}, 响应体: {}", createIndexRequest.index(), toJson(indexResponse));
+            log.debug("创建索引成功, 索引名称: {}, 响应体: {}", createIndexRequest.index(), payloadLogger.payload(indexResponse, sampled));
+            sample.success();
             return indexResponse;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = String.format("创建索引失败, 索引名称: %s", createIndexRequest.index());
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
             String errorMsg = String.format("创建索引失败, 索引名称: %s, 错误: %s", createIndexRequest.index(), e.getMessage());
             log.error(errorMsg, e);
             throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
@@ -134,16 +92,21 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
             throw new IllegalArgumentException("索引名称不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        ElasticsearchMetrics.Sample sample = metrics.start("deleteIndex", String.join(",", deleteIndexRequest.index()));
         try {
-            log.debug("删除索引开始, 索引名称: {}, 请求体: {}", deleteIndexRequest.index(), toJson(deleteIndexRequest));
+            log.debug("删除索引开始, 索引名称: {}, 请求体: {}", deleteIndexRequest.index(), payloadLogger.payload(deleteIndexRequest, sampled));
             DeleteIndexResponse indexResponse = client.indices().delete(deleteIndexRequest);
-            log.debug("删除索引成功, 索引名称: {}, 响应体: {}", deleteIndexRequest.index(), toJson(indexResponse));
+            log.debug("删除索引成功, 索引名称: {}, 响应体: {}", deleteIndexRequest.index(), payloadLogger.payload(indexResponse, sampled));
+            sample.success();
             return indexResponse;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = String.format("删除索引失败, 索引名称: %s", deleteIndexRequest.index());
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
             String errorMsg = String.format("删除索引失败, 索引名称: %s, 错误: %s", deleteIndexRequest.index(), e.getMessage());
             log.error(errorMsg, e);
             throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
@@ -159,44 +122,131 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
             throw new IllegalArgumentException("索引名称不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        ElasticsearchMetrics.Sample sample = metrics.start("existIndex", String.join(",", existsRequest.index()));
         try {
-            log.debug("查询索引是否存在开始, 索引名称: {}, 请求体: {}", existsRequest.index(), toJson(existsRequest));
+            log.debug("查询索引是否存在开始, 索引名称: {}, 请求体: {}", existsRequest.index(), payloadLogger.payload(existsRequest, sampled));
             BooleanResponse response = client.indices().exists(existsRequest);
-            log.debug("查询索引是否存在结束, 索引名称: {}, 响应体: {}", existsRequest.index(), toJson(response));
+            log.debug("查询索引是否存在结束, 索引名称: {}, 响应体: {}", existsRequest.index(), payloadLogger.payload(response, sampled));
+            sample.success();
             return response;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = String.format("查询索引是否存在失败, 索引名称: %s", existsRequest.index());
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         }
     }
 
+    @Override
+    public GetIndicesSettingsResponse getSettings(GetIndicesSettingsRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("查询索引配置请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("getSettings", String.join(",", request.index()));
+        try {
+            log.debug("查询索引配置开始, 索引名称: {}", request.index());
+            GetIndicesSettingsResponse response = client.indices().getSettings(request);
+            log.debug("查询索引配置结束, 索引名称: {}, 索引数量: {}", request.index(), response.result().size());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询索引配置失败, 索引名称: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询索引配置失败, 索引名称: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public HealthResponse clusterHealth(HealthRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("集群健康请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("clusterHealth", String.join(",", request.index()));
+        try {
+            HealthResponse response = client.cluster().health(request);
+            log.debug("查询集群健康状态结束, 集群: {}, 状态: {}", response.clusterName(), response.status());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = "查询集群健康状态失败";
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询集群健康状态失败, 错误: %s", e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public NodesStatsResponse nodesStats(NodesStatsRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("节点统计请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("nodesStats", null);
+        try {
+            NodesStatsResponse response = client.nodes().stats(request);
+            log.debug("查询节点统计信息结束, 节点数量: {}", response.nodes().size());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = "查询节点统计信息失败";
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询节点统计信息失败, 错误: %s", e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
     @Override
     public <T> BulkResponse bulk(BulkRequest bulkRequest) {
         if (bulkRequest == null) {
             throw new IllegalArgumentException("批量操作请求不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        String indexName = ElasticsearchRequests.bulkIndex(bulkRequest);
+        ElasticsearchMetrics.Sample sample = metrics.start("bulk", indexName);
         try {
             log.debug("批量操作开始, 索引名称: {}, 操作数量: {}, 请求体: {}", 
                     bulkRequest.index(), 
                     bulkRequest.operations() != null ? bulkRequest.operations().size() : 0,
-                    toJson(bulkRequest));
+                    payloadLogger.payload(bulkRequest, sampled));
             BulkResponse bulkResponse = client.bulk(bulkRequest);
+            metrics.bulk(indexName, bulkRequest.operations() != null ? bulkRequest.operations().size() : 0, bulkResponse);
             if (bulkResponse.errors()) {
                 List<BulkResponseItem> errorItems = bulkResponse.items().stream()
                         .filter(item -> item.error() != null)
                         .collect(Collectors.toList());
                 log.warn("批量操作存在错误, 错误数量: {}, 错误详情: {}", errorItems.size(), errorItems);
             } else {
-                log.debug("批量操作成功, 操作数量: {}, 响应体: {}", bulkResponse.items().size(), toJson(bulkResponse));
+                log.debug("批量操作成功, 操作数量: {}, 响应体: {}", bulkResponse.items().size(), payloadLogger.payload(bulkResponse, sampled));
             }
+            sample.success();
             return bulkResponse;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = "批量操作失败";
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
             String errorMsg = String.format("批量操作失败, 错误: %s", e.getMessage());
             log.error(errorMsg, e);
             throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
@@ -212,28 +262,126 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
             throw new IllegalArgumentException("文档类型不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        String indexName = String.join(",", request.index());
+        ElasticsearchMetrics.Sample sample = metrics.start("search", indexName);
         try {
             log.debug("查询ES数据开始, 索引: {}, 文档类型: {}, 请求体: {}", 
                     request.index(),
                     tDocumentClass.getSimpleName(),
-                    toJson(request));
-            SearchResponse<TDocument> response = client.search(request, tDocumentClass);
+                    payloadLogger.payload(request, sampled));
+            SearchResponse<TDocument> response = SearchResponseUtil.fillHitMetadata(client.search(request, tDocumentClass));
+            metrics.search(indexName, response);
             log.debug("查询ES数据成功, 索引: {}, 命中数量: {}, 响应体: {}", 
                     request.index(),
                     response.hits().total() != null ? response.hits().total().value() : 0,
-                    toJson(response));
+                    payloadLogger.payload(response, sampled));
+            sample.success();
             return response;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = String.format("查询ES数据失败, 索引: %s", request.index());
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
             String errorMsg = String.format("查询ES数据失败, 索引: %s, 错误: %s", request.index(), e.getMessage());
             log.error(errorMsg, e);
             throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
         }
     }
 
+    @Override
+    public long searchTo(SearchRequest request, OutputStream out) {
+        if (request == null) {
+            throw new IllegalArgumentException("搜索请求不能为空");
+        }
+        if (out == null) {
+            throw new IllegalArgumentException("输出流不能为空");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        String indexName = String.join(",", request.index());
+        ElasticsearchMetrics.Sample sample = metrics.start("search", indexName);
+        try {
+            log.debug("查询ES数据并写出开始, 索引: {}, 请求体: {}", request.index(), payloadLogger.payload(request, sampled));
+            Long written = client._transport().performRequest(request,
+                    SearchRequest._ENDPOINT.withResponseDeserializer(new SearchHitsWriter(out)),
+                    client._transportOptions());
+            log.debug("查询ES数据并写出成功, 索引: {}, 写出数量: {}", request.index(), written);
+            sample.success();
+            return written;
+        } catch (IOException | UncheckedIOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询ES数据并写出失败, 索引: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询ES数据并写出失败, 索引: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public List<MultiSearchResponseItem<?>> msearch(MsearchRequest request, List<Class<?>> documentClasses) {
+        if (request == null) {
+            throw new IllegalArgumentException("msearch 请求不能为空");
+        }
+        if (documentClasses == null || documentClasses.size() != request.searches().size()) {
+            throw new IllegalArgumentException("文档类数量必须与查询数量一致");
+        }
+
+        boolean sampled = payloadLogger.sample(log);
+        String indexName = MultiSearchResponses.indexNames(request);
+        ElasticsearchMetrics.Sample sample = metrics.start("msearch", indexName);
+        try {
+            log.debug("批量查询ES数据开始, 索引: {}, 查询数量: {}, 请求体: {}", indexName, documentClasses.size(), payloadLogger.payload(request, sampled));
+            List<MultiSearchResponseItem<?>> items = client._transport().performRequest(request,
+                    MultiSearchResponses.endpoint(documentClasses), client._transportOptions());
+            log.debug("批量查询ES数据成功, 索引: {}, 失败数量: {}", indexName, items.stream().filter(MultiSearchResponseItem::isFailure).count());
+            sample.success();
+            return items;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("批量查询ES数据失败, 索引: %s", indexName);
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("批量查询ES数据失败, 索引: %s, 错误: %s", indexName, e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public CountResponse count(CountRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("统计请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("count", String.join(",", request.index()));
+        try {
+            log.debug("统计文档数开始, 索引名称: {}", request.index());
+            CountResponse response = client.count(request);
+            log.debug("统计文档数结束, 索引名称: {}, 文档数: {}", request.index(), response.count());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("统计文档数失败, 索引名称: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("统计文档数失败, 索引名称: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
     @Override
     public DeleteByQueryResponse delete(DeleteByQueryRequest request) {
         if (request == null) {
@@ -243,23 +391,248 @@ public class Elasticsearch7ServiceImpl implements ElasticsearchService {
             throw new IllegalArgumentException("索引名称不能为空");
         }
 
+        boolean sampled = payloadLogger.sample(log);
+        ElasticsearchMetrics.Sample sample = metrics.start("delete", String.join(",", request.index()));
         try {
-            log.debug("删除ES数据开始, 索引: {}, 请求体: {}", request.index(), toJson(request));
+            log.debug("删除ES数据开始, 索引: {}, 请求体: {}", request.index(), payloadLogger.payload(request, sampled));
             DeleteByQueryResponse deleteByQuery = client.deleteByQuery(request);
             log.debug("删除ES数据成功, 索引: {}, 删除数量: {}, 响应体: {}", 
                     request.index(), 
                     deleteByQuery.deleted(),
-                    toJson(deleteByQuery));
+                    payloadLogger.payload(deleteByQuery, sampled));
+            sample.success();
             return deleteByQuery;
         } catch (IOException e) {
+            sample.failure(e);
             String errorMsg = String.format("删除ES数据失败, 索引: %s", request.index());
             log.error(errorMsg, e);
             throw new ElasticsearchException(errorMsg, e);
         } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
             String errorMsg = String.format("删除ES数据失败, 索引: %s, 错误: %s", request.index(), e.getMessage());
             log.error(errorMsg, e);
             throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
         }
     }
 
+    @Override
+    public OpenPointInTimeResponse openPointInTime(OpenPointInTimeRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("打开 point in time 请求不能为空");
+        }
+        if (request.index() == null || request.index().isEmpty()) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("openPointInTime", String.join(",", request.index()));
+        try {
+            log.debug("打开 point in time 开始, 索引: {}, keepAlive: {}", request.index(), request.keepAlive());
+            OpenPointInTimeResponse response = client.openPointInTime(request);
+            log.debug("打开 point in time 成功, 索引: {}", request.index());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("打开 point in time 失败, 索引: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("打开 point in time 失败, 索引: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public ClosePointInTimeResponse closePointInTime(ClosePointInTimeRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("关闭 point in time 请求不能为空");
+        }
+        if (StringUtils.isEmpty(request.id())) {
+            throw new IllegalArgumentException("point in time id 不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("closePointInTime", null);
+        try {
+            ClosePointInTimeResponse response = client.closePointInTime(request);
+            log.debug("关闭 point in time 结束, 是否成功: {}, 释放数量: {}", response.succeeded(), response.numFreed());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = "关闭 point in time 失败";
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("关闭 point in time 失败, 错误: %s", e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public ReindexResponse reindex(ReindexRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("重建索引请求不能为空");
+        }
+
+        String source = String.join(",", request.source().index());
+        String dest = request.dest().index();
+        ElasticsearchMetrics.Sample sample = metrics.start("reindex", dest);
+        try {
+            log.debug("重建索引开始, 源索引: {}, 目标索引: {}", source, dest);
+            ReindexResponse response = client.reindex(request);
+            log.debug("重建索引请求结束, 源索引: {}, 目标索引: {}, 任务ID: {}", source, dest, response.task());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("重建索引失败, 源索引: %s, 目标索引: %s", source, dest);
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("重建索引失败, 源索引: %s, 目标索引: %s, 错误: %s", source, dest, e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public GetTasksResponse getTask(GetTasksRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("查询任务请求不能为空");
+        }
+        if (StringUtils.isEmpty(request.taskId())) {
+            throw new IllegalArgumentException("任务ID不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("getTask", null);
+        try {
+            GetTasksResponse response = client.tasks().get(request);
+            log.debug("查询任务结束, 任务ID: {}, 是否完成: {}", request.taskId(), response.completed());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询任务失败, 任务ID: %s", request.taskId());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("查询任务失败, 任务ID: %s, 错误: %s", request.taskId(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public PutIndicesSettingsResponse putSettings(PutIndicesSettingsRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("修改索引配置请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("putSettings", String.join(",", request.index()));
+        try {
+            log.debug("修改索引配置开始, 索引名称: {}", request.index());
+            PutIndicesSettingsResponse response = client.indices().putSettings(request);
+            log.debug("修改索引配置结束, 索引名称: {}, 是否成功: {}", request.index(), response.acknowledged());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("修改索引配置失败, 索引名称: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("修改索引配置失败, 索引名称: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public ForcemergeResponse forcemerge(ForcemergeRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("强制合并请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("forcemerge", String.join(",", request.index()));
+        try {
+            log.debug("强制合并开始, 索引名称: {}, 最大段数: {}", request.index(), request.maxNumSegments());
+            ForcemergeResponse response = client.indices().forcemerge(request);
+            log.debug("强制合并结束, 索引名称: {}, 成功分片数: {}", request.index(), response.shards().successful());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("强制合并失败, 索引名称: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("强制合并失败, 索引名称: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public RefreshResponse refresh(RefreshRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("刷新请求不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("refresh", String.join(",", request.index()));
+        try {
+            log.debug("刷新索引开始, 索引名称: {}", request.index());
+            RefreshResponse response = client.indices().refresh(request);
+            log.debug("刷新索引结束, 索引名称: {}, 成功分片数: {}", request.index(), response.shards().successful());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = String.format("刷新索引失败, 索引名称: %s", request.index());
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("刷新索引失败, 索引名称: %s, 错误: %s", request.index(), e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public UpdateAliasesResponse updateAliases(UpdateAliasesRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("修改别名请求不能为空");
+        }
+        if (request.actions().isEmpty()) {
+            throw new IllegalArgumentException("别名操作不能为空");
+        }
+
+        ElasticsearchMetrics.Sample sample = metrics.start("updateAliases", null);
+        try {
+            log.debug("修改别名开始, 操作: {}", request.actions());
+            UpdateAliasesResponse response = client.indices().updateAliases(request);
+            log.debug("修改别名结束, 是否成功: {}", response.acknowledged());
+            sample.success();
+            return response;
+        } catch (IOException e) {
+            sample.failure(e);
+            String errorMsg = "修改别名失败";
+            log.error(errorMsg, e);
+            throw new ElasticsearchException(errorMsg, e);
+        } catch (co.elastic.clients.elasticsearch._types.ElasticsearchException e) {
+            sample.failure(e);
+            String errorMsg = String.format("修改别名失败, 错误: %s", e.getMessage());
+            log.error(errorMsg, e);
+            throw new ooo.github.io.es.exception.ElasticsearchException(errorMsg, e);
+        }
+    }
+
 }
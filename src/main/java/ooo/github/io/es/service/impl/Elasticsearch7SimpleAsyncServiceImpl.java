@@ -0,0 +1,207 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.json.JsonpMapper;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.cache.SearchResultCache;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.service.ElasticsearchSimpleAsyncService;
+import ooo.github.io.es.util.TypeMappingBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Elasticsearch 简化异步服务实现类
+ *
+ * @author kaiqin
+ */
+@Slf4j
+@Component
+public class Elasticsearch7SimpleAsyncServiceImpl implements ElasticsearchSimpleAsyncService {
+
+    private final ElasticsearchProperties properties;
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final JsonpMapper mapper;
+    /**
+     * 未开启 elasticsearch.search.cache.enabled 时为空
+     */
+    private final SearchResultCache searchResultCache;
+
+    public Elasticsearch7SimpleAsyncServiceImpl(ElasticsearchProperties properties, ElasticsearchAsyncService elasticsearchAsyncService,
+                                                @Qualifier("esClient") ElasticsearchClient client,
+                                                ObjectProvider<SearchResultCache> searchResultCache) {
+        this.properties = properties;
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.mapper = client._transport().jsonpMapper();
+        this.searchResultCache = searchResultCache.getIfAvailable();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndex(String indexName) {
+        return createIndex(indexName, (TypeMapping) null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndex(String indexName, TypeMapping typeMapping) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        return elasticsearchAsyncService.createIndex(ElasticsearchRequests.createIndexRequest(indexName, typeMapping, properties))
+                .thenApply(index -> index != null && index.acknowledged());
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> createIndex(String indexName, Class<T> clazz) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (clazz == null) {
+            throw new IllegalArgumentException("文档类型不能为空");
+        }
+
+        TypeMapping typeMapping;
+        try {
+            typeMapping = TypeMappingBuilder.mapBuilder(clazz);
+        } catch (Exception e) {
+            log.error("根据类创建索引失败, 索引名称: {}, 类型: {}", indexName, clazz.getName(), e);
+            throw new ElasticsearchException("根据类创建索引失败: " + e.getMessage(), e);
+        }
+        return createIndex(indexName, typeMapping);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteIndex(String indexName) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        DeleteIndexRequest deleteRequest = new DeleteIndexRequest.Builder().index(indexName).build();
+        return elasticsearchAsyncService.deleteIndex(deleteRequest)
+                .whenComplete((response, e) -> invalidateCache(indexName))
+                .thenApply(response -> response.acknowledged());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> delete(String indexName, Query query) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("查询条件不能为空");
+        }
+
+        DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest.Builder()
+                .query(query)
+                .index(indexName)
+                .build();
+        return elasticsearchAsyncService.delete(deleteByQueryRequest)
+                .whenComplete((delete, e) -> invalidateCache(indexName))
+                .thenApply(delete -> CollectionUtils.isEmpty(delete.failures()));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> existIndex(String indexName) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+
+        ExistsRequest existsRequest = new ExistsRequest.Builder().index(indexName).build();
+        return elasticsearchAsyncService.existIndex(existsRequest)
+                .thenApply(response -> response.value());
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> bulk(String indexName, List<T> ts) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (CollectionUtils.isEmpty(ts)) {
+            log.warn("批量插入数据为空, 索引名称: {}", indexName);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return executeBulk(indexName, ElasticsearchRequests.indexOperations(ts));
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> bulk(String indexName, List<T> ts, boolean ignoreEsId) {
+        if (!ignoreEsId) {
+            //如果强制要求document对应的id存在，则走另一个bulk方法
+            return bulk(indexName, ts);
+        }
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (CollectionUtils.isEmpty(ts)) {
+            log.warn("批量插入数据为空, 索引名称: {}", indexName);
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return executeBulk(indexName, ElasticsearchRequests.indexOperationsWithoutId(ts));
+    }
+
+    @Override
+    public <T> CompletableFuture<SearchResponse<T>> search(String indexName, Query query, Class<T> tClass) {
+        return search(indexName, query, null, null, tClass);
+    }
+
+    @Override
+    public <T> CompletableFuture<SearchResponse<T>> search(String indexName, Query query, Integer from, Integer size, Class<T> tClass) {
+        SearchRequest searchRequest = ElasticsearchRequests.searchRequest(indexName, query, from, size, tClass);
+        return elasticsearchAsyncService.search(searchRequest, tClass);
+    }
+
+    @Override
+    public <T> CompletableFuture<SearchResponse<T>> search(SearchInput<T> input) {
+        SearchRequest searchRequest = ElasticsearchRequests.searchRequest(input);
+        return elasticsearchAsyncService.search(searchRequest, input.getTClass());
+    }
+
+    /**
+     * 拆分后的 bulk 请求依次发送（上一个完成后再发下一个），避免同时占用过多连接和 bulk 线程池
+     *
+     * @param indexName     索引名称
+     * @param operationList 操作列表
+     * @return 全部成功时为 true
+     */
+    private CompletableFuture<Boolean> executeBulk(String indexName, List<BulkOperation> operationList) {
+        if (CollectionUtils.isEmpty(operationList)) {
+            log.warn("批量插入操作列表为空");
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Boolean> result = CompletableFuture.completedFuture(true);
+        for (BulkRequest bulkRequest : ElasticsearchRequests.splitBulk(indexName, operationList, properties.getBulk(), mapper)) {
+            result = result.thenCompose(success -> elasticsearchAsyncService.bulk(bulkRequest)
+                    .thenApply(response -> success && !response.errors()));
+        }
+        // 请求失败时也可能已部分写入
+        return result.whenComplete((success, e) -> invalidateCache(indexName));
+    }
+
+    private void invalidateCache(String indexName) {
+        if (searchResultCache != null) {
+            searchResultCache.invalidate(indexName);
+        }
+    }
+
+}
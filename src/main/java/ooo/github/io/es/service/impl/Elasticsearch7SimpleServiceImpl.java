@@ -1,29 +1,63 @@
 package ooo.github.io.es.service.impl;
 
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
 import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
-import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
-import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.*;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import lombok.extern.slf4j.Slf4j;
-import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.bulk.BulkRetrier;
+import ooo.github.io.es.cache.SearchResultCache;
 import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkFailure;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.ReindexProgress;
 import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.dto.TrackedDocument;
 import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.metadata.IndexNameResolver;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
 import ooo.github.io.es.service.ElasticsearchService;
 import ooo.github.io.es.service.ElasticsearchSimpleService;
 import ooo.github.io.es.util.TypeMappingBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.lang.reflect.Field;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Elasticsearch 简化服务实现类
@@ -36,10 +70,37 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
 
     private final ElasticsearchProperties properties;
     private final ElasticsearchService elasticsearchService;
-
-    public Elasticsearch7SimpleServiceImpl(ElasticsearchProperties properties, ElasticsearchService elasticsearchService) {
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final BulkRetrier bulkRetrier;
+    private final IndexNameResolver indexNameResolver;
+    private final JsonpMapper mapper;
+    /**
+     * 未开启 elasticsearch.search.coalesce.enabled 时为空，单个查询直接发送
+     */
+    private final SearchCoalescer searchCoalescer;
+    /**
+     * 未开启 elasticsearch.search.cache.enabled 时为空
+     */
+    private final SearchResultCache searchResultCache;
+    /**
+     * elasticsearch.bulk.groupByShard 使用的索引分片数
+     */
+    private final Map<String, int[]> routingShards = new ConcurrentHashMap<>();
+
+    public Elasticsearch7SimpleServiceImpl(ElasticsearchProperties properties, ElasticsearchService elasticsearchService,
+                                           ElasticsearchAsyncService elasticsearchAsyncService,
+                                           BulkRetrier bulkRetrier, IndexNameResolver indexNameResolver,
+                                           @Qualifier("esClient") ElasticsearchClient client,
+                                           ObjectProvider<SearchCoalescer> searchCoalescer,
+                                           ObjectProvider<SearchResultCache> searchResultCache) {
         this.properties = properties;
         this.elasticsearchService = elasticsearchService;
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.bulkRetrier = bulkRetrier;
+        this.indexNameResolver = indexNameResolver;
+        this.mapper = client._transport().jsonpMapper();
+        this.searchCoalescer = searchCoalescer.getIfAvailable();
+        this.searchResultCache = searchResultCache.getIfAvailable();
     }
 
     @Override
@@ -49,13 +110,7 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
 
         try {
-            CreateIndexRequest createIndexRequest = new CreateIndexRequest.Builder()
-                    .index(indexName)
-                    .settings(new IndexSettings.Builder()
-                            .maxResultWindow(properties.getIndex().getMaxResultWindow())
-                            .numberOfShards(properties.getIndex().getNumberOfShards())
-                            .build())
-                    .build();
+            CreateIndexRequest createIndexRequest = ElasticsearchRequests.createIndexRequest(indexName, null, properties);
             CreateIndexResponse index = elasticsearchService.createIndex(createIndexRequest);
             return index != null && index.acknowledged();
         } catch (ElasticsearchException e) {
@@ -71,16 +126,8 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
 
         try {
-            CreateIndexRequest.Builder createRequest = new CreateIndexRequest.Builder()
-                    .index(indexName)
-                    .settings(new IndexSettings.Builder()
-                            .maxResultWindow(properties.getIndex().getMaxResultWindow())
-                            .numberOfShards(properties.getIndex().getNumberOfShards())
-                            .build());
-            if (typeMapping != null) {
-                createRequest.mappings(typeMapping);
-            }
-            CreateIndexResponse index = elasticsearchService.createIndex(createRequest.build());
+            CreateIndexRequest createRequest = ElasticsearchRequests.createIndexRequest(indexName, typeMapping, properties);
+            CreateIndexResponse index = elasticsearchService.createIndex(createRequest);
             return index != null && index.acknowledged();
         } catch (ElasticsearchException e) {
             log.error("创建索引失败, 索引名称: {}", indexName, e);
@@ -106,6 +153,56 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
     }
 
+    @Override
+    public <T> boolean createIndex(Class<T> clazz) {
+        if (clazz == null) {
+            throw new IllegalArgumentException("文档类型不能为空");
+        }
+
+        String indexName = indexNameResolver.writeIndex(clazz);
+        boolean rollover = indexNameResolver.isRollover(clazz);
+        try {
+            CreateIndexRequest createRequest = ElasticsearchRequests.createIndexRequest(
+                    rollover ? indexName + IndexNameResolver.FIRST_ROLLOVER_SUFFIX : indexName,
+                    TypeMappingBuilder.mapBuilder(clazz),
+                    rollover ? indexName : null,
+                    properties);
+            CreateIndexResponse index = elasticsearchService.createIndex(createRequest);
+            return index != null && index.acknowledged();
+        } catch (ElasticsearchException e) {
+            log.error("根据类创建索引失败, 索引名称: {}, 类型: {}", indexName, clazz.getName(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> String reindexWithAliasSwap(Class<T> clazz) {
+        return reindexWithAliasSwap(clazz, null);
+    }
+
+    @Override
+    public <T> String reindexWithAliasSwap(Class<T> clazz, Consumer<ReindexProgress> progressListener) {
+        if (clazz == null) {
+            throw new IllegalArgumentException("文档类型不能为空");
+        }
+        String alias = indexNameResolver.writeIndex(clazz);
+        if (indexNameResolver.isRollover(clazz) || !alias.equals(indexNameResolver.searchIndex(clazz))) {
+            throw new IllegalArgumentException("按时间分索引和 rollover 的类不支持重建索引切换别名, 类: " + clazz.getName());
+        }
+
+        try {
+            return new AliasReindex(elasticsearchService, properties, alias, TypeMappingBuilder.mapBuilder(clazz),
+                    progressListener).run();
+        } catch (ElasticsearchException e) {
+            log.error("重建索引切换别名失败, 别名: {}, 类型: {}", alias, clazz.getName(), e);
+            throw e;
+        } finally {
+            // 别名已指向新索引，分片数可能变化
+            routingShards.remove(alias);
+            invalidateCache(alias);
+        }
+    }
+
     @Override
     public boolean deleteIndex(String indexName) {
         if (StringUtils.isEmpty(indexName)) {
@@ -115,6 +212,9 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         try {
             DeleteIndexRequest deleteRequest = new DeleteIndexRequest.Builder().index(indexName).build();
             DeleteIndexResponse response = elasticsearchService.deleteIndex(deleteRequest);
+            // 同名索引重建后分片数可能不同
+            routingShards.remove(indexName);
+            invalidateCache(indexName);
             return response.acknowledged();
         } catch (ElasticsearchException e) {
             log.error("删除索引失败, 索引名称: {}", indexName, e);
@@ -137,6 +237,7 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
                     .index(indexName)
                     .build();
             DeleteByQueryResponse delete = elasticsearchService.delete(deleteByQueryRequest);
+            invalidateCache(indexName);
             return CollectionUtils.isEmpty(delete.failures());
         } catch (ElasticsearchException e) {
             log.error("删除文档失败, 索引名称: {}", indexName, e);
@@ -171,47 +272,54 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
 
         try {
-            Field idField = getId(ts.get(0).getClass());
-            List<BulkOperation> operationList = new ArrayList<>(ts.size());
-            for (T t : ts) {
-                if (t == null) {
-                    log.warn("批量插入数据中存在空对象, 跳过");
-                    continue;
-                }
-                try {
-                    Object idValue = idField.get(t);
-                    if (idValue == null) {
-                        log.warn("文档ID为空, 跳过该文档");
-                        continue;
-                    }
-                    String id = idValue.toString();
-                    BulkOperation bulkOperation = new BulkOperation.Builder()
-                            .index(new IndexOperation.Builder<>().document(t).id(id).build())
-                            .build();
-                    operationList.add(bulkOperation);
-                } catch (IllegalAccessException e) {
-                    log.error("获取文档ID失败", e);
-                    throw new ElasticsearchException("获取文档ID失败: " + e.getMessage(), e);
-                }
-            }
-            
+            List<BulkOperation> operationList = ElasticsearchRequests.indexOperations(ts);
             if (CollectionUtils.isEmpty(operationList)) {
                 log.warn("批量插入操作列表为空");
                 return false;
             }
 
-            BulkRequest bulkRequest = new BulkRequest.Builder()
-                    .index(indexName)
-                    .operations(operationList)
-                    .build();
-            BulkResponse bulkResponse = elasticsearchService.bulk(bulkRequest);
-            return !bulkResponse.errors();
+            return executeBulk(indexName, operationList).isSuccess();
+        } catch (ElasticsearchException e) {
+            log.error("批量插入失败, 索引名称: {}", indexName, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> BulkResult bulkWithResult(String indexName, List<T> ts) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (CollectionUtils.isEmpty(ts)) {
+            log.warn("批量插入数据为空, 索引名称: {}", indexName);
+            return new BulkResult();
+        }
+
+        try {
+            List<BulkOperation> operationList = ElasticsearchRequests.indexOperations(ts);
+            if (CollectionUtils.isEmpty(operationList)) {
+                log.warn("批量插入操作列表为空");
+                return new BulkResult();
+            }
+
+            return executeBulk(indexName, operationList);
         } catch (ElasticsearchException e) {
             log.error("批量插入失败, 索引名称: {}", indexName, e);
             throw e;
         }
     }
 
+    @Override
+    public <T> boolean bulk(List<T> ts) {
+        if (CollectionUtils.isEmpty(ts)) {
+            log.warn("批量插入数据为空");
+            return false;
+        }
+        T first = ts.stream().filter(Objects::nonNull).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("批量插入数据不能全部为空"));
+        return bulk(indexNameResolver.writeIndex(first.getClass()), ts);
+    }
+
     @Override
     public <T> boolean bulk(String indexName, List<T> ts, boolean ignoreEsId) {
         if (StringUtils.isEmpty(indexName)) {
@@ -228,35 +336,152 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
 
         try {
-            List<BulkOperation> operationList = new ArrayList<>(ts.size());
-            for (T t : ts) {
-                if (t == null) {
-                    log.warn("批量插入数据中存在空对象, 跳过");
-                    continue;
-                }
-                BulkOperation bulkOperation = new BulkOperation.Builder()
-                        .index(new IndexOperation.Builder<>().document(t).build())
-                        .build();
-                operationList.add(bulkOperation);
-            }
-            
+            List<BulkOperation> operationList = ElasticsearchRequests.indexOperationsWithoutId(ts);
             if (CollectionUtils.isEmpty(operationList)) {
                 log.warn("批量插入操作列表为空");
                 return false;
             }
 
-            BulkRequest bulkRequest = new BulkRequest.Builder()
-                    .index(indexName)
-                    .operations(operationList)
-                    .build();
-            BulkResponse bulkResponse = elasticsearchService.bulk(bulkRequest);
-            return !bulkResponse.errors();
+            return executeBulk(indexName, operationList).isSuccess();
         } catch (ElasticsearchException e) {
             log.error("批量插入失败, 索引名称: {}", indexName, e);
             throw e;
         }
     }
 
+    @Override
+    public <T> BulkResult bulkUpdate(String indexName, List<T> ts) {
+        return executeBulk(indexName, ts, "更新", (data, documents) -> ElasticsearchRequests.updateOperations(data, false));
+    }
+
+    @Override
+    public <T> BulkResult bulkUpsert(String indexName, List<T> ts) {
+        return executeBulk(indexName, ts, "upsert", (data, documents) -> ElasticsearchRequests.updateOperations(data, true));
+    }
+
+    @Override
+    public <T> BulkResult bulkScriptedUpdate(String indexName, List<T> ts, Function<? super T, Script> scriptFunction, boolean upsert) {
+        if (scriptFunction == null) {
+            throw new IllegalArgumentException("更新脚本不能为空");
+        }
+        return executeBulk(indexName, ts, "脚本更新",
+                (data, documents) -> ElasticsearchRequests.scriptedUpdateOperations(data, scriptFunction, upsert, documents));
+    }
+
+    @Override
+    public <T> BulkResult bulkDelete(String indexName, List<T> ts) {
+        return executeBulk(indexName, ts, "删除", (data, documents) -> ElasticsearchRequests.deleteOperations(data));
+    }
+
+    @Override
+    public BulkResult bulkDeleteByIds(String indexName, Collection<String> ids) {
+        return executeBulk(indexName, ids, "删除", (data, documents) -> ElasticsearchRequests.deleteOperationsByIds(data));
+    }
+
+    @Override
+    public <T> TrackedDocument<T> track(T document) {
+        if (!(mapper instanceof JacksonJsonpMapper)) {
+            throw new IllegalStateException("字段变更跟踪需要使用 JacksonJsonpMapper");
+        }
+        return new TrackedDocument<>(document, ((JacksonJsonpMapper) mapper).objectMapper());
+    }
+
+    @Override
+    public <T> BulkResult bulkUpdateChanged(String indexName, List<TrackedDocument<T>> trackedDocuments) {
+        BulkResult result = executeBulk(indexName, trackedDocuments, "更新", ElasticsearchRequests::changedOperations);
+        Set<String> failedIds = result.getFailures().stream().map(BulkFailure::getId).collect(Collectors.toSet());
+        for (TrackedDocument<T> trackedDocument : trackedDocuments) {
+            if (trackedDocument != null && !failedIds.contains(trackedDocument.getId())) {
+                trackedDocument.markClean();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <R> R bulkLoad(String indexName, Supplier<R> loader) {
+        return bulkLoad(indexName, loader, 0);
+    }
+
+    @Override
+    public <R> R bulkLoad(String indexName, Supplier<R> loader, int maxNumSegments) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (loader == null) {
+            throw new IllegalArgumentException("导入逻辑不能为空");
+        }
+
+        Map<String, IngestSettings> snapshots = new LinkedHashMap<>();
+        GetIndicesSettingsRequest request = new GetIndicesSettingsRequest.Builder().index(indexName).build();
+        elasticsearchService.getSettings(request).result()
+                .forEach((index, state) -> snapshots.put(index, IngestSettings.of(state.settings())));
+        Map<String, IngestSettings> applied = new LinkedHashMap<>();
+        R result;
+        try {
+            snapshots.forEach((index, snapshot) -> {
+                putSettings(index, snapshot.loading());
+                applied.put(index, snapshot);
+            });
+            log.info("进入导入模式, 索引名称: {}", snapshots.keySet());
+            result = loader.get();
+        } catch (Throwable e) {
+            // Error（如 OutOfMemoryError）同样需要恢复配置，否则索引一直不刷新、没有副本
+            try {
+                finishLoad(indexName, applied, maxNumSegments);
+            } catch (RuntimeException restoreFailure) {
+                e.addSuppressed(restoreFailure);
+            }
+            throw e;
+        }
+        finishLoad(indexName, applied, maxNumSegments);
+        return result;
+    }
+
+    /**
+     * 强制合并后恢复导入前的配置，全部索引都尝试恢复后再抛出第一个失败；强制合并与 refresh 失败只记录日志
+     * <p>
+     * 强制合并在恢复副本前执行，副本直接复制合并后的段，不用在每个副本上重复合并
+     */
+    private void finishLoad(String indexName, Map<String, IngestSettings> applied, int maxNumSegments) {
+        if (maxNumSegments > 0) {
+            try {
+                elasticsearchService.forcemerge(new ForcemergeRequest.Builder()
+                        .index(indexName)
+                        .maxNumSegments((long) maxNumSegments)
+                        .build());
+            } catch (ElasticsearchException e) {
+                log.warn("强制合并未完成, 服务端可能仍在合并, 索引名称: {}", indexName, e);
+            }
+        }
+        ElasticsearchException failure = null;
+        for (Map.Entry<String, IngestSettings> entry : applied.entrySet()) {
+            try {
+                putSettings(entry.getKey(), entry.getValue().restore());
+            } catch (ElasticsearchException e) {
+                log.error("恢复索引配置失败, 请手动恢复 refresh_interval、number_of_replicas、translog.durability, 索引名称: {}",
+                        entry.getKey(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        invalidateCache(indexName);
+        if (failure != null) {
+            throw failure;
+        }
+        try {
+            elasticsearchService.refresh(new RefreshRequest.Builder().index(indexName).build());
+        } catch (ElasticsearchException e) {
+            log.warn("导入后刷新索引失败, 按恢复后的 refresh_interval 刷新, 索引名称: {}", indexName, e);
+        }
+        log.info("退出导入模式, 索引配置已恢复, 索引名称: {}", applied.keySet());
+    }
+
+    private void putSettings(String indexName, IndexSettings settings) {
+        elasticsearchService.putSettings(new PutIndicesSettingsRequest.Builder().index(indexName).settings(settings).build());
+    }
+
     @Override
     public <T> SearchResponse<T> search(String indexName, Query query, Class<T> tClass) {
         if (StringUtils.isEmpty(indexName)) {
@@ -270,11 +495,11 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
         }
 
         try {
-            SearchRequest searchRequest = new SearchRequest.Builder()
+            SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
                     .index(indexName)
-                    .query(query)
-                    .build();
-            return elasticsearchService.search(searchRequest, tClass);
+                    .query(query);
+            ElasticsearchRequests.hitMetadata(searchBuilder, tClass);
+            return search(searchBuilder.build(), tClass);
         } catch (ElasticsearchException e) {
             log.error("查询失败, 索引名称: {}", indexName, e);
             throw e;
@@ -282,117 +507,336 @@ public class Elasticsearch7SimpleServiceImpl implements ElasticsearchSimpleServi
     }
 
     @Override
-    public <T> SearchResponse<T> search(String indexName, Query query, Integer from, Integer size, Class<T> tClass) {
-        if (StringUtils.isEmpty(indexName)) {
-            throw new IllegalArgumentException("索引名称不能为空");
-        }
-        if (query == null) {
-            throw new IllegalArgumentException("查询条件不能为空");
-        }
+    public <T> SearchResponse<T> search(Class<T> tClass, Query query) {
         if (tClass == null) {
             throw new IllegalArgumentException("文档类型不能为空");
         }
-        if (from != null && from < 0) {
-            throw new IllegalArgumentException("分页起始位置不能小于0");
-        }
-        if (size != null && size < 0) {
-            throw new IllegalArgumentException("分页大小不能小于0");
+        return search(indexNameResolver.searchIndex(tClass), query, tClass);
+    }
+
+    @Override
+    public <T> SearchResponse<T> search(String indexName, Query query, Integer from, Integer size, Class<T> tClass) {
+        SearchRequest searchRequest = ElasticsearchRequests.searchRequest(indexName, query, from, size, tClass);
+        try {
+            return search(searchRequest, tClass);
+        } catch (ElasticsearchException e) {
+            log.error("查询失败, 索引名称: {}, from: {}, size: {}", indexName, from, size, e);
+            throw e;
         }
+    }
 
+    @Override
+    public <T> SearchResponse<T> search(SearchInput<T> input) {
+        SearchRequest searchRequest = ElasticsearchRequests.searchRequest(input);
         try {
-            SearchRequest.Builder builder = new SearchRequest.Builder()
-                    .index(indexName)
-                    .query(query)
-                    .trackTotalHits(new TrackHits.Builder().enabled(true).build());
-            if (from != null) {
-                builder.from(from);
+            if (searchCoalescer == null) {
+                return search(searchRequest, input.getTClass());
             }
-            if (size != null) {
-                builder.size(size);
+            if (searchResultCache == null) {
+                return coalesce(input);
             }
-            return elasticsearchService.search(builder.build(), tClass);
+            return searchResultCache.search(searchRequest, input.getTClass(), () -> coalesce(input));
         } catch (ElasticsearchException e) {
-            log.error("查询失败, 索引名称: {}, from: {}, size: {}", indexName, from, size, e);
+            log.error("搜索失败, 索引: {}", searchRequest.index(), e);
             throw e;
         }
     }
 
     @Override
-    public <T> SearchResponse<T> search(SearchInput<T> input) {
-        if (input == null) {
-            throw new IllegalArgumentException("搜索输入参数不能为空");
+    @SuppressWarnings("unchecked")
+    public List<SearchResponse<?>> multiSearch(List<? extends SearchInput<?>> inputs) {
+        MsearchRequest request = ElasticsearchRequests.multiSearchRequest(inputs);
+        List<Class<?>> documentClasses = inputs.stream().<Class<?>>map(input -> input.getTClass()).collect(Collectors.toList());
+        List<MultiSearchResponseItem<?>> items = elasticsearchService.msearch(request, documentClasses);
+
+        List<SearchResponse<?>> responses = new ArrayList<>(items.size());
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            MultiSearchResponseItem<?> item = items.get(i);
+            if (item.isFailure()) {
+                failures.add(String.format("[%d] %s", i, MultiSearchResponses.reason(item)));
+            } else {
+                responses.add(MultiSearchResponses.toSearchResponse((MultiSearchItem<Object>) item.result()));
+            }
         }
-        if (input.getTClass() == null) {
-            throw new IllegalArgumentException("搜索的泛型不能为空");
+        if (!failures.isEmpty()) {
+            String errorMsg = String.format("批量查询部分失败, 失败数量: %d, 错误: %s", failures.size(), failures);
+            log.error(errorMsg);
+            throw new ElasticsearchException(errorMsg);
         }
-        
-        // 检查索引名称
-        List<String> indexNameList = new ArrayList<>();
-        if (!CollectionUtils.isEmpty(input.getIndexNames())) {
-            indexNameList.addAll(input.getIndexNames());
+        if (responses.size() != inputs.size()) {
+            throw new ElasticsearchException(String.format("批量查询响应数量与查询数量不一致: %d != %d", responses.size(), inputs.size()));
         }
-        if (!StringUtils.isEmpty(input.getIndexName())) {
-            indexNameList.add(input.getIndexName());
+        return responses;
+    }
+
+    @Override
+    public SearchResponse<TokenBuffer> searchRaw(SearchInput<?> input) {
+        SearchRequest searchRequest = ElasticsearchRequests.rawSearchRequest(input);
+        try {
+            return elasticsearchService.search(searchRequest, TokenBuffer.class);
+        } catch (ElasticsearchException e) {
+            log.error("搜索失败, 索引: {}", searchRequest.index(), e);
+            throw e;
         }
-        if (CollectionUtils.isEmpty(indexNameList)) {
-            throw new IllegalArgumentException("索引名称不能为空");
+    }
+
+    @Override
+    public long writeHitsTo(SearchInput<?> input, OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("输出流不能为空");
+        }
+        SearchRequest searchRequest = ElasticsearchRequests.rawSearchRequest(input);
+        try {
+            return elasticsearchService.searchTo(searchRequest, out);
+        } catch (ElasticsearchException e) {
+            log.error("搜索失败, 索引: {}", searchRequest.index(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> Stream<T> stream(SearchInput<T> input) {
+        int size = ElasticsearchRequests.streamPageSize(input, properties.getSearch().getPageSize());
+        PointInTimeIterator<T> iterator = new PointInTimeIterator<>(elasticsearchService, elasticsearchAsyncService,
+                input, properties.getSearch().getKeepAlive(), size);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public Stream<CompositeBucket> compositeBuckets(SearchInput<?> input, String aggregationName) {
+        return compositeBuckets(input, aggregationName, true);
+    }
+
+    @Override
+    public Stream<CompositeBucket> compositeBuckets(SearchInput<?> input, String aggregationName, boolean prefetch) {
+        if (input == null) {
+            throw new IllegalArgumentException("搜索输入参数不能为空");
         }
+        CompositeAggregationIterator iterator = new CompositeAggregationIterator(elasticsearchAsyncService, input, aggregationName, prefetch);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    @Override
+    public <T> long export(SearchInput<T> input, BiConsumer<Integer, T> consumer) {
+        return export(input, 0, null, consumer);
+    }
 
-        // 检查分页参数
-        if (input.getFrom() != null && input.getFrom() < 0) {
-            throw new IllegalArgumentException("分页起始位置不能小于0");
+    @Override
+    public <T> long export(SearchInput<T> input, int slices, Executor executor, BiConsumer<Integer, T> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("导出回调不能为空");
         }
-        if (input.getSize() != null && input.getSize() < 0) {
-            throw new IllegalArgumentException("分页大小不能小于0");
+        return slicedExport(input, slices, executor).run(consumer);
+    }
+
+    @Override
+    public <T> Stream<T> exportStream(SearchInput<T> input) {
+        return exportStream(input, 0, null);
+    }
+
+    @Override
+    public <T> Stream<T> exportStream(SearchInput<T> input, int slices, Executor executor) {
+        Integer queueCapacity = properties.getSearch().getQueueCapacity();
+        if (queueCapacity == null || queueCapacity <= 0) {
+            throw new IllegalArgumentException("elasticsearch.search.queueCapacity 必须大于0");
+        }
+        SlicedExport<T>.QueueIterator iterator = slicedExport(input, slices, executor).iterator(queueCapacity);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * 切片数依次取：参数、elasticsearch.search.slices、目标索引的主分片数（多个索引取最大值）
+     */
+    private <T> SlicedExport<T> slicedExport(SearchInput<T> input, int slices, Executor executor) {
+        int size = ElasticsearchRequests.streamPageSize(input, properties.getSearch().getPageSize());
+        if (slices <= 0) {
+            Integer defaultSlices = properties.getSearch().getSlices();
+            slices = defaultSlices != null && defaultSlices > 0 ? defaultSlices : primaryShards(input);
+        }
+        return new SlicedExport<>(elasticsearchService, elasticsearchAsyncService, input,
+                properties.getSearch().getKeepAlive(), size, slices, executor);
+    }
+
+    private int primaryShards(SearchInput<?> input) {
+        GetIndicesSettingsRequest request = new GetIndicesSettingsRequest.Builder()
+                .index(ElasticsearchRequests.indexNames(input))
+                .build();
+        int shards = 1;
+        for (IndexState state : elasticsearchService.getSettings(request).result().values()) {
+            shards = Math.max(shards, numberOfShards(state.settings()));
         }
+        return shards;
+    }
 
-        try {
-            SearchRequest.Builder searchBuilder = new SearchRequest.Builder().index(indexNameList);
-            if (input.getQuery() != null) {
-                searchBuilder.query(input.getQuery());
-            }
-            if (input.getAggregations() != null) {
-                searchBuilder.aggregations(input.getAggregations());
-            }
-            if (input.getFrom() != null) {
-                searchBuilder.from(input.getFrom());
-            }
-            if (input.getSize() != null) {
-                searchBuilder.size(input.getSize());
+    /**
+     * 读取索引的主分片数与 routing 分片数并缓存，别名指向多个索引时为空数组
+     *
+     * @param indexName 索引名称
+     * @return [主分片数, number_of_routing_shards（未设置时为 0）]
+     */
+    private int[] routingShards(String indexName) {
+        return routingShards.computeIfAbsent(indexName, name -> {
+            GetIndicesSettingsRequest request = new GetIndicesSettingsRequest.Builder().index(name).build();
+            Map<String, IndexState> result = elasticsearchService.getSettings(request).result();
+            if (result.size() != 1) {
+                return new int[0];
             }
-            if (input.getHighlight() != null) {
-                searchBuilder.highlight(input.getHighlight());
+            IndexSettings settings = result.values().iterator().next().settings();
+            int shards = numberOfShards(settings);
+            if (shards <= 0) {
+                return new int[0];
             }
-            if (input.getSortOptions() != null) {
-                searchBuilder.sort(input.getSortOptions());
+            Integer routing = settings.index() != null && settings.index().numberOfRoutingShards() != null
+                    ? settings.index().numberOfRoutingShards() : settings.numberOfRoutingShards();
+            return new int[]{shards, routing == null ? 0 : routing};
+        });
+    }
+
+    /**
+     * @return 主分片数，未返回时为 0
+     */
+    private static int numberOfShards(IndexSettings settings) {
+        if (settings == null) {
+            return 0;
+        }
+        String numberOfShards = settings.index() != null && settings.index().numberOfShards() != null
+                ? settings.index().numberOfShards() : settings.numberOfShards();
+        return StringUtils.hasText(numberOfShards) ? Integer.parseInt(numberOfShards) : 0;
+    }
+
+    /**
+     * 按 elasticsearch.bulk.maxOperations / maxBytes 拆分为多个 bulk 请求依次发送，避免单个请求体超过 http.max_content_length，
+     * 被拒绝的文档按 elasticsearch.bulk.retry 重试
+     *
+     * @param indexName     索引名称
+     * @param operationList 操作列表
+     * @return 执行结果
+     */
+    private BulkResult executeBulk(String indexName, List<BulkOperation> operationList) {
+        return executeBulk(indexName, operationList, null);
+    }
+
+    /**
+     * @param indexName     索引名称
+     * @param operationList 操作列表
+     * @param documents     与操作一一对应的原始文档，写入成功后回填乐观并发控制字段；为空时从操作中取
+     * @return 执行结果
+     */
+    private BulkResult executeBulk(String indexName, List<BulkOperation> operationList, List<Object> documents) {
+        // 按分片排列和拆分后操作的顺序会变化，按操作对象找回对应的文档
+        Map<BulkOperation, Object> documentsByOperation = null;
+        if (documents != null) {
+            documentsByOperation = new IdentityHashMap<>(operationList.size());
+            for (int i = 0; i < operationList.size(); i++) {
+                documentsByOperation.put(operationList.get(i), documents.get(i));
             }
-            if (input.getCollapse() != null) {
-                searchBuilder.collapse(input.getCollapse());
+        }
+        if (Boolean.TRUE.equals(properties.getBulk().getGroupByShard())) {
+            operationList = groupByShard(indexName, operationList);
+        }
+        BulkResult result = new BulkResult();
+        try {
+            for (BulkRequest bulkRequest : ElasticsearchRequests.splitBulk(indexName, operationList, properties.getBulk(), mapper)) {
+                List<Object> requestDocuments = null;
+                if (documentsByOperation != null) {
+                    requestDocuments = new ArrayList<>(bulkRequest.operations().size());
+                    for (BulkOperation operation : bulkRequest.operations()) {
+                        requestDocuments.add(documentsByOperation.get(operation));
+                    }
+                }
+                result.merge(bulkRetrier.execute(bulkRequest, requestDocuments));
             }
-            if (input.getTrackHits() != null) {
-                searchBuilder.trackTotalHits(input.getTrackHits());
+        } finally {
+            // 请求失败时也可能已部分写入
+            invalidateCache(indexName);
+        }
+        return result;
+    }
+
+    /**
+     * 校验后构建操作并执行，数据为空或没有可执行的操作时返回空结果
+     *
+     * @param indexName    索引名称
+     * @param data         数据
+     * @param action       操作名称，用于日志
+     * @param toOperations 构建操作列表，第二个参数按操作顺序收集每个操作对应的文档（可不填）
+     * @return 执行结果
+     */
+    private <C extends Collection<?>> BulkResult executeBulk(String indexName, C data, String action,
+                                                             BiFunction<C, List<Object>, List<BulkOperation>> toOperations) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (CollectionUtils.isEmpty(data)) {
+            log.warn("批量{}数据为空, 索引名称: {}", action, indexName);
+            return new BulkResult();
+        }
+
+        try {
+            List<Object> documents = new ArrayList<>();
+            List<BulkOperation> operationList = toOperations.apply(data, documents);
+            if (CollectionUtils.isEmpty(operationList)) {
+                log.warn("批量{}操作列表为空", action);
+                return new BulkResult();
             }
-            return elasticsearchService.search(searchBuilder.build(), input.getTClass());
+
+            // 未收集文档时从操作中取
+            return executeBulk(indexName, operationList, documents.isEmpty() ? null : documents);
         } catch (ElasticsearchException e) {
-            log.error("搜索失败, 索引: {}", indexNameList, e);
+            log.error("批量{}失败, 索引名称: {}", action, indexName, e);
             throw e;
         }
     }
 
-    private <T> Field getId(Class<T> clazz) {
-        if (clazz == null) {
-            throw new IllegalArgumentException("类不能为空");
+    /**
+     * 按目标分片重新排列操作，读取分片数失败时保持原顺序
+     */
+    private List<BulkOperation> groupByShard(String indexName, List<BulkOperation> operationList) {
+        int[] shards;
+        try {
+            shards = routingShards(indexName);
+        } catch (ElasticsearchException e) {
+            log.warn("读取索引分片数失败, 不按分片排列, 索引名称: {}", indexName, e);
+            return operationList;
+        }
+        if (shards.length == 0 || shards[0] <= 1) {
+            return operationList;
+        }
+        return ElasticsearchRequests.groupByShard(operationList, shards[0], shards[1]);
+    }
+
+    /**
+     * 查询，开启查询结果缓存时先读缓存
+     */
+    private <T> SearchResponse<T> search(SearchRequest searchRequest, Class<T> tClass) {
+        if (searchResultCache == null) {
+            return elasticsearchService.search(searchRequest, tClass);
         }
+        return searchResultCache.search(searchRequest, tClass, () -> elasticsearchService.search(searchRequest, tClass));
+    }
 
-        Field[] declaredFields = clazz.getDeclaredFields();
-        for (Field field : declaredFields) {
-            field.setAccessible(true);
-            Id esId = field.getAnnotation(Id.class);
-            if (esId != null) {
-                return field;
+    /**
+     * 通过 SearchCoalescer 与其他并发查询合并为 _msearch 发送
+     */
+    private <T> SearchResponse<T> coalesce(SearchInput<T> input) {
+        try {
+            return searchCoalescer.submit(input).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e.getCause();
             }
+            throw new ElasticsearchException("搜索失败", e.getCause());
+        }
+    }
+
+    private void invalidateCache(String indexName) {
+        if (searchResultCache != null) {
+            searchResultCache.invalidate(indexName);
         }
-        throw new ElasticsearchException("未发现对应的@Id注解, 类: " + clazz.getName());
     }
 
 }
@@ -0,0 +1,798 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.SlicedScroll;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregation;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperationBase;
+import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
+import co.elastic.clients.elasticsearch.core.msearch.MultisearchBody;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
+import co.elastic.clients.elasticsearch.core.search.TrackHits;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.json.JsonpMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.bulk.BulkSizeEstimator;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.dto.TrackedDocument;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import ooo.github.io.es.util.ShardRouting;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 同步/异步简化服务共用的请求构建与参数校验
+ *
+ * @author kaiqin
+ */
+@Slf4j
+final class ElasticsearchRequests {
+
+    /**
+     * point in time 下每个文档唯一的排序字段
+     */
+    private static final SortOptions SHARD_DOC_SORT = new SortOptions.Builder()
+            .field(f -> f.field("_shard_doc").order(SortOrder.Asc))
+            .build();
+
+    private static final TrackHits TRACK_HITS_DISABLED = new TrackHits.Builder().enabled(false).build();
+
+    private ElasticsearchRequests() {
+    }
+
+    /**
+     * 构建创建索引请求，使用 elasticsearch.index 中的配置
+     *
+     * @param indexName   索引名称
+     * @param typeMapping 字段类型，可为空
+     * @param properties  配置
+     * @return 创建索引请求
+     */
+    static CreateIndexRequest createIndexRequest(String indexName, TypeMapping typeMapping, ElasticsearchProperties properties) {
+        return createIndexRequest(indexName, typeMapping, null, properties);
+    }
+
+    /**
+     * 构建创建索引请求，writeAlias 不为空时同时创建写别名（rollover）
+     *
+     * @param indexName   索引名称
+     * @param typeMapping 字段类型，可为空
+     * @param writeAlias  写别名，可为空
+     * @param properties  配置
+     * @return 创建索引请求
+     */
+    static CreateIndexRequest createIndexRequest(String indexName, TypeMapping typeMapping, String writeAlias,
+                                                 ElasticsearchProperties properties) {
+        CreateIndexRequest.Builder createRequest = new CreateIndexRequest.Builder()
+                .index(indexName)
+                .settings(indexSettings(properties).build());
+        if (typeMapping != null) {
+            createRequest.mappings(typeMapping);
+        }
+        if (writeAlias != null) {
+            createRequest.aliases(writeAlias, a -> a.isWriteIndex(true));
+        }
+        return createRequest.build();
+    }
+
+    /**
+     * 构建重建索引目标索引的创建请求：写入期间不刷新（refresh_interval=-1）、不分配副本，复制完成后再恢复
+     *
+     * @param indexName   索引名称
+     * @param typeMapping 字段类型
+     * @param properties  配置
+     * @return 创建索引请求
+     */
+    static CreateIndexRequest reindexTargetRequest(String indexName, TypeMapping typeMapping, ElasticsearchProperties properties) {
+        return new CreateIndexRequest.Builder()
+                .index(indexName)
+                .settings(indexSettings(properties)
+                        .refreshInterval(Time.of(t -> t.time("-1")))
+                        .numberOfReplicas("0")
+                        .build())
+                .mappings(typeMapping)
+                .build();
+    }
+
+    private static IndexSettings.Builder indexSettings(ElasticsearchProperties properties) {
+        return new IndexSettings.Builder()
+                .maxResultWindow(properties.getIndex().getMaxResultWindow())
+                .numberOfShards(properties.getIndex().getNumberOfShards());
+    }
+
+    /**
+     * 根据 @Id 字段构建 index 操作，空对象和ID为空的文档跳过；带上 @Routing 的值，有 @SeqNo / @Version 的值时带上乐观并发控制
+     *
+     * @param ts  数据数组
+     * @param <T> 数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> indexOperations(List<T> ts) {
+        return documentOperations(ts, (t, id, metadata) -> new BulkOperation.Builder()
+                .index(metadata.concurrencyControl(new IndexOperation.Builder<>().document(t).id(id).routing(metadata.getRouting(t)), t).build())
+                .build());
+    }
+
+    /**
+     * 构建不带ID的 index 操作，ID由 Elasticsearch 生成
+     *
+     * @param ts  数据数组
+     * @param <T> 数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> indexOperationsWithoutId(List<T> ts) {
+        List<BulkOperation> operationList = new ArrayList<>(ts.size());
+        for (T t : ts) {
+            if (t == null) {
+                log.warn("批量插入数据中存在空对象, 跳过");
+                continue;
+            }
+            BulkOperation bulkOperation = new BulkOperation.Builder()
+                    .index(new IndexOperation.Builder<>().document(t).routing(DocumentMetadata.of(t.getClass()).getRouting(t)).build())
+                    .build();
+            operationList.add(bulkOperation);
+        }
+        return operationList;
+    }
+
+    /**
+     * 根据 @Id 字段构建 update 操作，文档作为部分文档（doc）发送，值为 null 的字段不序列化，不会覆盖已有值
+     *
+     * @param ts          数据数组
+     * @param docAsUpsert 文档不存在时是否以 doc 插入，否则返回 404
+     * @param <T>         数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> updateOperations(List<T> ts, boolean docAsUpsert) {
+        return documentOperations(ts, (t, id, metadata) -> new BulkOperation.Builder()
+                .update(u -> metadata.concurrencyControl(u.id(id).routing(metadata.getRouting(t)), t)
+                        .action(a -> a.doc(t).docAsUpsert(docAsUpsert ? Boolean.TRUE : null)))
+                .build());
+    }
+
+    /**
+     * 根据 @Id 字段构建脚本 update 操作
+     *
+     * @param ts             数据数组
+     * @param scriptFunction 每个文档对应的脚本，通常把文档中的值作为 params 传入
+     * @param upsert         文档不存在时是否以该文档插入（不执行脚本），否则返回 404
+     * @param documents      按操作顺序追加每个操作对应的文档，用于写入成功后回填乐观并发控制字段
+     * @param <T>            数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> scriptedUpdateOperations(List<T> ts, Function<? super T, Script> scriptFunction, boolean upsert,
+                                                            List<Object> documents) {
+        return documentOperations(ts, documents, (t, id, metadata) -> {
+            Script script = scriptFunction.apply(t);
+            if (script == null) {
+                throw new IllegalArgumentException("更新脚本不能为空, 文档ID: " + id);
+            }
+            return new BulkOperation.Builder()
+                    .update(u -> metadata.concurrencyControl(u.id(id).routing(metadata.getRouting(t)), t)
+                            .action(a -> a.script(script).upsert(upsert ? t : null)))
+                    .build();
+        });
+    }
+
+    /**
+     * 只发送变化字段的 update 操作，没有变化的文档跳过
+     *
+     * @param trackedDocuments 跟踪的文档
+     * @param documents        按操作顺序追加每个操作对应的文档（doc 只有变化的字段，无法从操作中取回文档）
+     * @param <T>              数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> changedOperations(List<TrackedDocument<T>> trackedDocuments, List<Object> documents) {
+        List<BulkOperation> operationList = new ArrayList<>(trackedDocuments.size());
+        for (TrackedDocument<T> trackedDocument : trackedDocuments) {
+            if (trackedDocument == null) {
+                log.warn("批量更新数据中存在空对象, 跳过");
+                continue;
+            }
+            ObjectNode changes = trackedDocument.changes();
+            if (changes.size() == 0) {
+                continue;
+            }
+            T document = trackedDocument.getDocument();
+            DocumentMetadata metadata = DocumentMetadata.of(document.getClass());
+            operationList.add(new BulkOperation.Builder()
+                    .update(u -> metadata.concurrencyControl(u.id(trackedDocument.getId()).routing(metadata.getRouting(document)), document)
+                            .action(a -> a.doc(changes)))
+                    .build());
+            documents.add(document);
+        }
+        return operationList;
+    }
+
+    /**
+     * 根据 @Id 字段构建 delete 操作
+     *
+     * @param ts  数据数组
+     * @param <T> 数据对象
+     * @return 操作列表
+     */
+    static <T> List<BulkOperation> deleteOperations(List<T> ts) {
+        return documentOperations(ts, (t, id, metadata) -> new BulkOperation.Builder()
+                .delete(d -> metadata.concurrencyControl(d.id(id).routing(metadata.getRouting(t)), t))
+                .build());
+    }
+
+    /**
+     * 根据文档ID构建 delete 操作，空ID跳过；不带 routing，使用 @Routing 的索引需使用 {@link #deleteOperations(List)}
+     *
+     * @param ids 文档ID
+     * @return 操作列表
+     */
+    static List<BulkOperation> deleteOperationsByIds(Collection<String> ids) {
+        List<BulkOperation> operationList = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (StringUtils.isEmpty(id)) {
+                log.warn("文档ID为空, 跳过该文档");
+                continue;
+            }
+            operationList.add(new BulkOperation.Builder().delete(d -> d.id(id)).build());
+        }
+        return operationList;
+    }
+
+    /**
+     * 读取 @Id 字段后构建操作，空对象和ID为空的文档跳过
+     */
+    private static <T> List<BulkOperation> documentOperations(List<T> ts, DocumentOperation<T> operation) {
+        return documentOperations(ts, null, operation);
+    }
+
+    /**
+     * @param documents 按操作顺序追加每个操作对应的文档，可为空
+     */
+    private static <T> List<BulkOperation> documentOperations(List<T> ts, List<Object> documents, DocumentOperation<T> operation) {
+        List<BulkOperation> operationList = new ArrayList<>(ts.size());
+        for (T t : ts) {
+            if (t == null) {
+                log.warn("批量操作数据中存在空对象, 跳过");
+                continue;
+            }
+            DocumentMetadata metadata = DocumentMetadata.of(t.getClass());
+            String id = metadata.getId(t);
+            if (id == null) {
+                log.warn("文档ID为空, 跳过该文档");
+                continue;
+            }
+            operationList.add(operation.apply(t, id, metadata));
+            if (documents != null) {
+                documents.add(t);
+            }
+        }
+        return operationList;
+    }
+
+    @FunctionalInterface
+    private interface DocumentOperation<T> {
+        BulkOperation apply(T document, String id, DocumentMetadata metadata);
+    }
+
+    /**
+     * 按目标分片重新排列操作，相邻的操作落在同一分片，拆分后的每个 bulk 请求只涉及少数分片（节点）
+     * 同一分片内保持原顺序，同一文档的多个操作一定在同一分片，因此先后顺序不变；没有ID的操作（ID由 ES 生成）放在最后
+     *
+     * @param operationList  操作列表
+     * @param numberOfShards 主分片数
+     * @param routingShards  index.number_of_routing_shards，未设置时为 0
+     * @return 重新排列的操作列表
+     */
+    static List<BulkOperation> groupByShard(List<BulkOperation> operationList, int numberOfShards, int routingShards) {
+        List<List<BulkOperation>> shards = new ArrayList<>(numberOfShards);
+        for (int i = 0; i < numberOfShards; i++) {
+            shards.add(new ArrayList<>());
+        }
+        List<BulkOperation> unrouted = new ArrayList<>();
+        for (BulkOperation operation : operationList) {
+            BulkOperationBase base = (BulkOperationBase) operation._get();
+            String routing = base.routing() != null ? base.routing() : base.id();
+            if (routing == null) {
+                unrouted.add(operation);
+            } else {
+                shards.get(ShardRouting.shardId(routing, numberOfShards, routingShards)).add(operation);
+            }
+        }
+        List<BulkOperation> grouped = new ArrayList<>(operationList.size());
+        shards.forEach(grouped::addAll);
+        grouped.addAll(unrouted);
+        return grouped;
+    }
+
+    /**
+     * 按 elasticsearch.bulk.maxOperations / maxBytes 拆分为多个 bulk 请求，避免单个请求体超过 http.max_content_length
+     *
+     * @param indexName     索引名称
+     * @param operationList 操作列表
+     * @param bulk          批量写入配置
+     * @param mapper        用于估算请求体大小，见 {@link BulkSizeEstimator}
+     * @return bulk 请求列表
+     */
+    static List<BulkRequest> splitBulk(String indexName, List<BulkOperation> operationList,
+                                       ElasticsearchProperties.Bulk bulk, JsonpMapper mapper) {
+        int maxOperations = bulk.getMaxOperations() == null || bulk.getMaxOperations() <= 0
+                ? operationList.size() : bulk.getMaxOperations();
+        BulkSizeEstimator estimator = new BulkSizeEstimator(mapper, bulk.getMaxBytes() == null ? 0 : bulk.getMaxBytes());
+
+        List<BulkRequest> requests = new ArrayList<>();
+        int from = 0;
+        long bytes = 0;
+        for (int i = 0; i < operationList.size(); i++) {
+            bytes += estimator.sizeOf(operationList.get(i), bytes);
+            boolean last = i == operationList.size() - 1;
+            if (last || i + 1 - from >= maxOperations || estimator.isFull(bytes)) {
+                requests.add(new BulkRequest.Builder()
+                        .index(indexName)
+                        .operations(operationList.subList(from, i + 1))
+                        .build());
+                from = i + 1;
+                bytes = 0;
+                estimator.reset();
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * 校验并构建分页查询请求
+     *
+     * @param indexName 索引名称
+     * @param query     查询条件
+     * @param from      from，可为空
+     * @param size      size，可为空
+     * @param tClass    类
+     * @return 查询请求
+     */
+    static SearchRequest searchRequest(String indexName, Query query, Integer from, Integer size, Class<?> tClass) {
+        if (StringUtils.isEmpty(indexName)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        if (query == null) {
+            throw new IllegalArgumentException("查询条件不能为空");
+        }
+        if (tClass == null) {
+            throw new IllegalArgumentException("文档类型不能为空");
+        }
+        if (from != null && from < 0) {
+            throw new IllegalArgumentException("分页起始位置不能小于0");
+        }
+        if (size != null && size < 0) {
+            throw new IllegalArgumentException("分页大小不能小于0");
+        }
+
+        SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index(indexName)
+                .query(query)
+                .trackTotalHits(new TrackHits.Builder().enabled(true).build());
+        if (from != null) {
+            builder.from(from);
+        }
+        if (size != null) {
+            builder.size(size);
+        }
+        hitMetadata(builder, tClass);
+        return builder.build();
+    }
+
+    /**
+     * 校验并构建 SearchInput 对应的查询请求
+     *
+     * @param input 搜索入参
+     * @return 查询请求
+     */
+    static SearchRequest searchRequest(SearchInput<?> input) {
+        if (input != null && input.getTClass() == null) {
+            throw new IllegalArgumentException("搜索的泛型不能为空");
+        }
+        return rawSearchRequest(input);
+    }
+
+    /**
+     * 校验并构建 SearchInput 对应的查询请求，不要求 tClass（_source 不反序列化为对象）
+     *
+     * @param input 搜索入参
+     * @return 查询请求
+     */
+    static SearchRequest rawSearchRequest(SearchInput<?> input) {
+        if (input == null) {
+            throw new IllegalArgumentException("搜索输入参数不能为空");
+        }
+        List<String> indexNameList = indexNames(input);
+
+        // 检查分页参数
+        if (input.getFrom() != null && input.getFrom() < 0) {
+            throw new IllegalArgumentException("分页起始位置不能小于0");
+        }
+        if (input.getSize() != null && input.getSize() < 0) {
+            throw new IllegalArgumentException("分页大小不能小于0");
+        }
+
+        SearchRequest.Builder searchBuilder = new SearchRequest.Builder().index(indexNameList);
+        if (input.getQuery() != null) {
+            searchBuilder.query(input.getQuery());
+        }
+        if (input.getAggregations() != null) {
+            searchBuilder.aggregations(input.getAggregations());
+        }
+        if (input.getFrom() != null) {
+            searchBuilder.from(input.getFrom());
+        }
+        if (input.getSize() != null) {
+            searchBuilder.size(input.getSize());
+        }
+        if (input.getHighlight() != null) {
+            searchBuilder.highlight(input.getHighlight());
+        }
+        if (input.getSortOptions() != null) {
+            searchBuilder.sort(input.getSortOptions());
+        }
+        if (input.getCollapse() != null) {
+            searchBuilder.collapse(input.getCollapse());
+        }
+        if (input.getTrackHits() != null) {
+            searchBuilder.trackTotalHits(input.getTrackHits());
+        }
+        String routing = routing(input);
+        if (routing != null) {
+            searchBuilder.routing(routing);
+        }
+        fields(searchBuilder, input);
+        return searchBuilder.build();
+    }
+
+    /**
+     * _source 过滤、stored_fields、docvalue_fields
+     *
+     * @param searchBuilder 查询请求构造器
+     * @param input         搜索入参
+     */
+    private static void fields(SearchRequest.Builder searchBuilder, SearchInput<?> input) {
+        SourceConfig source = sourceConfig(input);
+        if (source != null) {
+            searchBuilder.source(source);
+        }
+        if (!CollectionUtils.isEmpty(input.getStoredFields())) {
+            searchBuilder.storedFields(input.getStoredFields());
+        }
+        if (!CollectionUtils.isEmpty(input.getDocvalueFields())) {
+            searchBuilder.docvalueFields(docvalueFields(input));
+        }
+        if (input.getTClass() != null) {
+            hitMetadata(searchBuilder, input.getTClass());
+        }
+    }
+
+    /**
+     * 文档类有 @Version / @SeqNo 字段时要求返回 _version / _seq_no 与 _primary_term，用于回填
+     *
+     * @param searchBuilder 查询请求构造器
+     * @param tClass        文档类型
+     */
+    static void hitMetadata(SearchRequest.Builder searchBuilder, Class<?> tClass) {
+        DocumentMetadata metadata = DocumentMetadata.of(tClass);
+        if (metadata.hasVersion()) {
+            searchBuilder.version(true);
+        }
+        if (metadata.hasSeqNo()) {
+            searchBuilder.seqNoPrimaryTerm(true);
+        }
+    }
+
+    /**
+     * @return _source 配置，未指定时为 null
+     */
+    private static SourceConfig sourceConfig(SearchInput<?> input) {
+        boolean hasIncludes = !CollectionUtils.isEmpty(input.getSourceIncludes());
+        boolean hasExcludes = !CollectionUtils.isEmpty(input.getSourceExcludes());
+        if (Boolean.FALSE.equals(input.getFetchSource())) {
+            if (hasIncludes || hasExcludes) {
+                throw new IllegalArgumentException("fetchSource 为 false 时不能指定 sourceIncludes/sourceExcludes");
+            }
+            return SourceConfig.of(s -> s.fetch(false));
+        }
+        if (!hasIncludes && !hasExcludes) {
+            return null;
+        }
+        return SourceConfig.of(s -> s.filter(f -> {
+            if (hasIncludes) {
+                f.includes(input.getSourceIncludes());
+            }
+            if (hasExcludes) {
+                f.excludes(input.getSourceExcludes());
+            }
+            return f;
+        }));
+    }
+
+    private static List<FieldAndFormat> docvalueFields(SearchInput<?> input) {
+        return input.getDocvalueFields().stream()
+                .map(field -> FieldAndFormat.of(f -> f.field(field)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 校验并构建多个 SearchInput 对应的 msearch 请求，每个 SearchInput 一个 header + body
+     *
+     * @param inputs 搜索入参
+     * @return msearch 请求
+     */
+    static MsearchRequest multiSearchRequest(List<? extends SearchInput<?>> inputs) {
+        if (CollectionUtils.isEmpty(inputs)) {
+            throw new IllegalArgumentException("搜索输入参数不能为空");
+        }
+        List<RequestItem> items = new ArrayList<>(inputs.size());
+        for (SearchInput<?> input : inputs) {
+            items.add(multiSearchItem(input));
+        }
+        return new MsearchRequest.Builder().searches(items).build();
+    }
+
+    /**
+     * 校验并构建 SearchInput 对应的 msearch 条目，由 {@link #searchRequest(SearchInput)} 的请求转换而来，两者内容一致
+     *
+     * @param input 搜索入参
+     * @return msearch 条目
+     */
+    static RequestItem multiSearchItem(SearchInput<?> input) {
+        SearchRequest request = searchRequest(input);
+        return RequestItem.of(r -> r
+                .header(h -> h.index(request.index()).routing(request.routing()).preference(request.preference())
+                        .requestCache(request.requestCache()).searchType(request.searchType()))
+                .body(multiSearchBody(request)));
+    }
+
+    /**
+     * 查询请求的请求体部分转换为 msearch 的 body，集合类参数为空时不设置（避免序列化为空数组）
+     */
+    private static MultisearchBody multiSearchBody(SearchRequest request) {
+        MultisearchBody.Builder body = new MultisearchBody.Builder()
+                .query(request.query())
+                .postFilter(request.postFilter())
+                .from(request.from())
+                .size(request.size())
+                .highlight(request.highlight())
+                .collapse(request.collapse())
+                .trackTotalHits(request.trackTotalHits())
+                .trackScores(request.trackScores())
+                .source(request.source())
+                .version(request.version())
+                .seqNoPrimaryTerm(request.seqNoPrimaryTerm())
+                .minScore(request.minScore())
+                .terminateAfter(request.terminateAfter())
+                .explain(request.explain())
+                .profile(request.profile())
+                .pit(request.pit())
+                .suggest(request.suggest());
+        if (!request.aggregations().isEmpty()) {
+            body.aggregations(request.aggregations());
+        }
+        if (!request.sort().isEmpty()) {
+            body.sort(request.sort());
+        }
+        if (!request.searchAfter().isEmpty()) {
+            body.searchAfter(request.searchAfter());
+        }
+        if (!request.storedFields().isEmpty()) {
+            body.storedFields(request.storedFields());
+        }
+        if (!request.docvalueFields().isEmpty()) {
+            body.docvalueFields(request.docvalueFields());
+        }
+        if (!request.fields().isEmpty()) {
+            body.fields(request.fields());
+        }
+        if (!request.scriptFields().isEmpty()) {
+            body.scriptFields(request.scriptFields());
+        }
+        if (!request.runtimeMappings().isEmpty()) {
+            body.runtimeMappings(request.runtimeMappings());
+        }
+        if (!request.rescore().isEmpty()) {
+            body.rescore(request.rescore());
+        }
+        if (!request.indicesBoost().isEmpty()) {
+            body.indicesBoost(request.indicesBoost());
+        }
+        if (!request.stats().isEmpty()) {
+            body.stats(request.stats());
+        }
+        return body.build();
+    }
+
+    /**
+     * 校验流式查询入参，search_after 不支持 from，也不支持 collapse 和聚合
+     *
+     * @param input    搜索入参
+     * @param pageSize 默认每页大小
+     * @return 每页大小
+     */
+    static int streamPageSize(SearchInput<?> input, Integer pageSize) {
+        if (input == null) {
+            throw new IllegalArgumentException("搜索输入参数不能为空");
+        }
+        if (input.getTClass() == null) {
+            throw new IllegalArgumentException("搜索的泛型不能为空");
+        }
+        indexNames(input);
+        if (input.getFrom() != null && input.getFrom() != 0) {
+            throw new IllegalArgumentException("流式查询不支持 from 参数");
+        }
+        if (input.getCollapse() != null) {
+            throw new IllegalArgumentException("流式查询不支持 collapse");
+        }
+        if (!CollectionUtils.isEmpty(input.getAggregations())) {
+            throw new IllegalArgumentException("流式查询不支持聚合");
+        }
+        if (!CollectionUtils.isEmpty(input.getRouting())) {
+            throw new IllegalArgumentException("流式查询不支持 routing");
+        }
+        int size = input.getSize() != null ? input.getSize() : (pageSize == null ? 0 : pageSize);
+        if (size <= 0) {
+            throw new IllegalArgumentException("流式查询每页大小必须大于0");
+        }
+        return size;
+    }
+
+    /**
+     * 构建基于 point in time 的 search_after 查询请求，排序末尾追加 _shard_doc 作为唯一的决胜排序
+     *
+     * @param input       搜索入参
+     * @param pitId       point in time id
+     * @param keepAlive   保活时间
+     * @param size        每页大小
+     * @param slice       切片，不切片时为空
+     * @param searchAfter 上一页最后一条文档的排序值，首页为空
+     * @return 查询请求
+     */
+    static SearchRequest searchAfterRequest(SearchInput<?> input, String pitId, String keepAlive,
+                                            int size, SlicedScroll slice, List<String> searchAfter) {
+        List<SortOptions> sortOptions = new ArrayList<>();
+        if (input.getSortOptions() != null) {
+            sortOptions.addAll(input.getSortOptions());
+        }
+        sortOptions.add(SHARD_DOC_SORT);
+
+        // 使用 point in time 时不能再指定索引
+        SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
+                .pit(p -> p.id(pitId).keepAlive(t -> t.time(keepAlive)))
+                .size(size)
+                .sort(sortOptions)
+                .trackTotalHits(input.getTrackHits() != null ? input.getTrackHits() : TRACK_HITS_DISABLED);
+        if (input.getQuery() != null) {
+            searchBuilder.query(input.getQuery());
+        }
+        if (input.getHighlight() != null) {
+            searchBuilder.highlight(input.getHighlight());
+        }
+        if (slice != null) {
+            searchBuilder.slice(slice);
+        }
+        if (!CollectionUtils.isEmpty(searchAfter)) {
+            searchBuilder.searchAfter(searchAfter);
+        }
+        fields(searchBuilder, input);
+        return searchBuilder.build();
+    }
+
+    /**
+     * composite 聚合翻页请求：size 为 0 不返回命中、不统计总数，只保留指定的 composite 聚合（其余聚合每页都会重复计算，因此忽略）
+     *
+     * @param input           搜索入参
+     * @param aggregationName composite 聚合名称
+     * @param after           上一页的 after_key，第一页为空
+     * @return 查询请求
+     */
+    static SearchRequest compositePageRequest(SearchInput<?> input, String aggregationName, Map<String, FieldValue> after) {
+        Aggregation aggregation = input.getAggregations() == null ? null : input.getAggregations().get(aggregationName);
+        if (aggregation == null || !aggregation.isComposite()) {
+            throw new IllegalArgumentException("composite 聚合不存在: " + aggregationName);
+        }
+        CompositeAggregation composite = aggregation.composite();
+        Aggregation page = new Aggregation.Builder()
+                .composite(c -> {
+                    c.sources(composite.sources()).size(composite.size());
+                    if (!CollectionUtils.isEmpty(after)) {
+                        c.after(after);
+                    }
+                    return c;
+                })
+                .aggregations(aggregation.aggregations())
+                .build();
+
+        SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
+                .index(indexNames(input))
+                .size(0)
+                .trackTotalHits(TRACK_HITS_DISABLED)
+                .aggregations(aggregationName, page);
+        if (input.getQuery() != null) {
+            searchBuilder.query(input.getQuery());
+        }
+        String routing = routing(input);
+        if (routing != null) {
+            searchBuilder.routing(routing);
+        }
+        return searchBuilder.build();
+    }
+
+    /**
+     * @param input 搜索入参
+     * @return 逗号分隔的 routing，未指定时为 null
+     */
+    private static String routing(SearchInput<?> input) {
+        if (CollectionUtils.isEmpty(input.getRouting())) {
+            return null;
+        }
+        String routing = input.getRouting().stream().filter(StringUtils::hasText).distinct().collect(Collectors.joining(","));
+        return routing.isEmpty() ? null : routing;
+    }
+
+    /**
+     * 合并 SearchInput 中的索引名称
+     *
+     * @param input 搜索入参
+     * @return 索引名称列表
+     */
+    static List<String> indexNames(SearchInput<?> input) {
+        List<String> indexNameList = new ArrayList<>();
+        if (!CollectionUtils.isEmpty(input.getIndexNames())) {
+            indexNameList.addAll(input.getIndexNames());
+        }
+        if (!StringUtils.isEmpty(input.getIndexName())) {
+            indexNameList.add(input.getIndexName());
+        }
+        if (CollectionUtils.isEmpty(indexNameList)) {
+            throw new IllegalArgumentException("索引名称不能为空");
+        }
+        return indexNameList;
+    }
+
+    /**
+     * bulk 请求涉及的索引，请求未指定默认索引时取各操作的索引（去重，逗号分隔），用于日志和指标
+     *
+     * @param bulkRequest bulk 请求
+     * @return 索引名称，没有时为 null
+     */
+    static String bulkIndex(BulkRequest bulkRequest) {
+        if (!StringUtils.isEmpty(bulkRequest.index())) {
+            return bulkRequest.index();
+        }
+        if (CollectionUtils.isEmpty(bulkRequest.operations())) {
+            return null;
+        }
+        Set<String> indexNames = new LinkedHashSet<>();
+        for (BulkOperation operation : bulkRequest.operations()) {
+            Object variant = operation._get();
+            if (variant instanceof BulkOperationBase && ((BulkOperationBase) variant).index() != null) {
+                indexNames.add(((BulkOperationBase) variant).index());
+            }
+        }
+        return indexNames.isEmpty() ? null : String.join(",", indexNames);
+    }
+
+}
@@ -0,0 +1,99 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.Time;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.TranslogDurability;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.JsonValue;
+import org.springframework.util.StringUtils;
+
+/**
+ * 批量导入期间调整的索引配置快照：刷新间隔、副本数（或 auto_expand_replicas）与 translog 持久化方式
+ * <p>
+ * 原索引未设置 refresh_interval 时恢复为 null（重置为默认值），而不是写入 1s：显式设置后空闲分片不再跳过定时刷新；
+ * 副本数与 translog 持久化方式未设置时写入 ES 的默认值
+ *
+ * @author kaiqin
+ */
+final class IngestSettings {
+
+    private static final String DEFAULT_REPLICAS = "1";
+
+    private static final String REFRESH_INTERVAL = "refresh_interval";
+
+    private static final String AUTO_EXPAND_DISABLED = "false";
+
+    private final String numberOfReplicas;
+    /**
+     * 原索引未设置时为空
+     */
+    private final Time refreshInterval;
+    private final TranslogDurability durability;
+
+    /**
+     * 未开启时为空
+     */
+    private final String autoExpandReplicas;
+
+    private IngestSettings(String numberOfReplicas, Time refreshInterval, TranslogDurability durability,
+                           String autoExpandReplicas) {
+        this.numberOfReplicas = numberOfReplicas;
+        this.refreshInterval = refreshInterval;
+        this.durability = durability;
+        this.autoExpandReplicas = autoExpandReplicas;
+    }
+
+    /**
+     * 读取索引当前的配置
+     *
+     * @param settings getSettings 返回的配置，可为空
+     * @return 快照
+     */
+    static IngestSettings of(IndexSettings settings) {
+        IndexSettings index = settings != null && settings.index() != null ? settings.index() : settings;
+        if (index == null) {
+            return new IngestSettings(DEFAULT_REPLICAS, null, TranslogDurability.Request, null);
+        }
+        String autoExpand = index.autoExpandReplicas();
+        return new IngestSettings(
+                StringUtils.hasText(index.numberOfReplicas()) ? index.numberOfReplicas() : DEFAULT_REPLICAS,
+                index.refreshInterval(),
+                index.translog() != null && index.translog().durability() != null
+                        ? index.translog().durability() : TranslogDurability.Request,
+                StringUtils.hasText(autoExpand) && !AUTO_EXPAND_DISABLED.equals(autoExpand) ? autoExpand : null);
+    }
+
+    /**
+     * @return 导入期间的配置：不刷新、不分配副本、translog 异步刷盘
+     */
+    IndexSettings loading() {
+        IndexSettings.Builder builder = new IndexSettings.Builder()
+                .refreshInterval(Time.of(t -> t.time("-1")))
+                .numberOfReplicas("0")
+                .translog(t -> t.durability(TranslogDurability.Async));
+        if (autoExpandReplicas != null) {
+            builder.autoExpandReplicas(AUTO_EXPAND_DISABLED);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return 恢复为快照时的配置
+     */
+    IndexSettings restore() {
+        IndexSettings.Builder builder = new IndexSettings.Builder()
+                .translog(t -> t.durability(durability));
+        if (refreshInterval != null) {
+            builder.refreshInterval(refreshInterval);
+        } else {
+            builder.otherSettings(REFRESH_INTERVAL, JsonData.of(JsonValue.NULL));
+        }
+        if (autoExpandReplicas != null) {
+            builder.autoExpandReplicas(autoExpandReplicas);
+        } else {
+            builder.numberOfReplicas(numberOfReplicas);
+        }
+        return builder.build();
+    }
+
+}
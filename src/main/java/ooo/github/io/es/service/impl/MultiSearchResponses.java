@@ -0,0 +1,115 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpDeserializerBase;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpUtils;
+import co.elastic.clients.transport.endpoints.SimpleEndpoint;
+import jakarta.json.stream.JsonParser;
+import ooo.github.io.es.util.SearchResponseUtil;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * msearch 响应按条目类型反序列化：客户端自带的 msearch 只能指定一个文档类型，这里第 i 个响应使用第 i 个查询的文档类型
+ *
+ * @author kaiqin
+ */
+final class MultiSearchResponses {
+
+    private MultiSearchResponses() {
+    }
+
+    /**
+     * @param documentClasses 各查询的文档类型，与 msearch 请求中的查询一一对应
+     * @return msearch endpoint
+     */
+    static SimpleEndpoint<MsearchRequest, List<MultiSearchResponseItem<?>>> endpoint(List<Class<?>> documentClasses) {
+        return MsearchRequest._ENDPOINT.withResponseDeserializer(new ItemsDeserializer(documentClasses));
+    }
+
+    /**
+     * @param request msearch 请求
+     * @return 各查询的索引名称，用于日志与指标
+     */
+    static String indexNames(MsearchRequest request) {
+        return request.searches().stream()
+                .flatMap(item -> item.header().index().stream())
+                .distinct()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * msearch 的单个结果转换为 SearchResponse，与单独查询的返回值类型一致
+     *
+     * @param item msearch 的单个结果
+     * @param <T>  文档类型
+     * @return 查询结果
+     */
+    static <T> SearchResponse<T> toSearchResponse(MultiSearchItem<T> item) {
+        return SearchResponseUtil.fillHitMetadata(SearchResponse.of(r -> r
+                .took(item.took())
+                .timedOut(item.timedOut())
+                .shards(item.shards())
+                .hits(item.hits())
+                .aggregations(item.aggregations())
+                .clusters(item.clusters())
+                .fields(item.fields())
+                .maxScore(item.maxScore())
+                .numReducePhases(item.numReducePhases())
+                .profile(item.profile())
+                .pitId(item.pitId())
+                .scrollId(item.scrollId())
+                .suggest(item.suggest())
+                .terminatedEarly(item.terminatedEarly())));
+    }
+
+    /**
+     * @param item 失败的 msearch 条目
+     * @return 失败原因，如 index_not_found_exception: no such index [xxx]
+     */
+    static String reason(MultiSearchResponseItem<?> item) {
+        ErrorCause error = item.failure().error();
+        return error.reason() == null ? error.type() : error.type() + ": " + error.reason();
+    }
+
+    private static final class ItemsDeserializer extends JsonpDeserializerBase<List<MultiSearchResponseItem<?>>> {
+
+        private final List<Class<?>> documentClasses;
+
+        ItemsDeserializer(List<Class<?>> documentClasses) {
+            super(EnumSet.of(JsonParser.Event.START_OBJECT));
+            this.documentClasses = documentClasses;
+        }
+
+        @Override
+        public List<MultiSearchResponseItem<?>> deserialize(JsonParser parser, JsonpMapper mapper, JsonParser.Event event) {
+            List<MultiSearchResponseItem<?>> items = new ArrayList<>(documentClasses.size());
+            while ((event = parser.next()) == JsonParser.Event.KEY_NAME) {
+                if (!"responses".equals(parser.getString())) {
+                    JsonpUtils.skipValue(parser);
+                    continue;
+                }
+                JsonpUtils.expectNextEvent(parser, JsonParser.Event.START_ARRAY);
+                while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                    if (items.size() >= documentClasses.size()) {
+                        throw new IllegalStateException("msearch 响应数量多于查询数量: " + documentClasses.size());
+                    }
+                    JsonpDeserializer<? extends MultiSearchResponseItem<?>> itemDeserializer = MultiSearchResponseItem
+                            .createMultiSearchResponseItemDeserializer(JsonpDeserializer.of(documentClasses.get(items.size())));
+                    items.add(itemDeserializer.deserialize(parser, mapper, event));
+                }
+            }
+            return items;
+        }
+    }
+
+}
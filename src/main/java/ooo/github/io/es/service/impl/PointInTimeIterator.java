@@ -0,0 +1,193 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.SlicedScroll;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.service.ElasticsearchService;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 基于 point in time + search_after 的流式迭代器
+ * 拿到一页结果后立即异步请求下一页，调用方消费当前页时下一页已在路上，内存中最多保留两页；
+ * 遍历结束、出错或调用 close() 时关闭自己打开的 point in time；切片导出时多个迭代器共用一个 point in time，由调用方关闭
+ *
+ * @author kaiqin
+ */
+@Slf4j
+final class PointInTimeIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final ElasticsearchService elasticsearchService;
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final SearchInput<T> input;
+    private final String keepAlive;
+    private final int size;
+    private final SlicedScroll slice;
+
+    /**
+     * point in time 由本迭代器打开时为 true
+     */
+    private final boolean ownsPit;
+
+    /**
+     * 每次响应都可能返回新的 pit id，以最新的为准
+     */
+    private String pitId;
+
+    private CompletableFuture<SearchResponse<T>> prefetch;
+
+    private Iterator<Hit<T>> current = Collections.emptyIterator();
+
+    private boolean closed;
+
+    PointInTimeIterator(ElasticsearchService elasticsearchService, ElasticsearchAsyncService elasticsearchAsyncService,
+                        SearchInput<T> input, String keepAlive, int size) {
+        this(elasticsearchService, elasticsearchAsyncService, input,
+                openPointInTime(elasticsearchService, input, keepAlive), true, keepAlive, size, null);
+    }
+
+    /**
+     * 使用已打开的 point in time 遍历其中一个切片
+     */
+    PointInTimeIterator(ElasticsearchService elasticsearchService, ElasticsearchAsyncService elasticsearchAsyncService,
+                        SearchInput<T> input, String pitId, String keepAlive, int size, SlicedScroll slice) {
+        this(elasticsearchService, elasticsearchAsyncService, input, pitId, false, keepAlive, size, slice);
+    }
+
+    private PointInTimeIterator(ElasticsearchService elasticsearchService, ElasticsearchAsyncService elasticsearchAsyncService,
+                                SearchInput<T> input, String pitId, boolean ownsPit, String keepAlive, int size,
+                                SlicedScroll slice) {
+        this.elasticsearchService = elasticsearchService;
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.input = input;
+        this.pitId = pitId;
+        this.ownsPit = ownsPit;
+        this.keepAlive = keepAlive;
+        this.size = size;
+        this.slice = slice;
+        try {
+            this.prefetch = fetch(null);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开 point in time
+     *
+     * @param elasticsearchService ElasticsearchService
+     * @param input                搜索入参
+     * @param keepAlive            保活时间
+     * @return pit id
+     */
+    static String openPointInTime(ElasticsearchService elasticsearchService, SearchInput<?> input, String keepAlive) {
+        OpenPointInTimeRequest openRequest = new OpenPointInTimeRequest.Builder()
+                .index(ElasticsearchRequests.indexNames(input))
+                .keepAlive(t -> t.time(keepAlive))
+                .build();
+        return elasticsearchService.openPointInTime(openRequest).id();
+    }
+
+    /**
+     * 关闭 point in time，失败时只记录日志
+     *
+     * @param elasticsearchService ElasticsearchService
+     * @param pitId                pit id
+     * @param keepAlive            保活时间
+     */
+    static void closePointInTime(ElasticsearchService elasticsearchService, String pitId, String keepAlive) {
+        try {
+            elasticsearchService.closePointInTime(new ClosePointInTimeRequest.Builder().id(pitId).build());
+        } catch (Exception e) {
+            // point in time 到期后会自动释放，这里不影响调用方
+            log.warn("关闭 point in time 失败, 将在 {} 后自动过期", keepAlive, e);
+        }
+    }
+
+    /**
+     * @return 最近一次响应返回的 pit id，可能与打开时的不同
+     */
+    String getPitId() {
+        return pitId;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (prefetch == null) {
+                close();
+                return false;
+            }
+            SearchResponse<T> response = await(prefetch);
+            prefetch = null;
+            if (response.pitId() != null) {
+                pitId = response.pitId();
+            }
+
+            List<Hit<T>> hits = response.hits().hits();
+            if (hits.size() >= size) {
+                // 不足一页说明已到末尾，无需再请求
+                prefetch = fetch(hits.get(hits.size() - 1).sort());
+            }
+            current = hits.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next().source();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = Collections.emptyIterator();
+        if (prefetch != null) {
+            prefetch.cancel(false);
+            prefetch = null;
+        }
+        if (ownsPit) {
+            closePointInTime(elasticsearchService, pitId, keepAlive);
+        }
+    }
+
+    private CompletableFuture<SearchResponse<T>> fetch(List<String> searchAfter) {
+        if (closed) {
+            throw new IllegalStateException("流式查询已关闭");
+        }
+        return elasticsearchAsyncService.search(
+                ElasticsearchRequests.searchAfterRequest(input, pitId, keepAlive, size, slice, searchAfter), input.getTClass());
+    }
+
+    private SearchResponse<T> await(CompletableFuture<SearchResponse<T>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            close();
+            if (e.getCause() instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e.getCause();
+            }
+            throw new ElasticsearchException("流式查询失败: " + e.getMessage(), e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.RequestItem;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询合并：把并发的单个查询在 maxWait 毫秒内攒成一批，通过一次 _msearch 发送，减少高并发小查询的请求数与连接占用
+ * 批次达到 maxBatchSize 时立即发送；单个查询失败只影响对应调用方，不影响同批的其他查询
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class SearchCoalescer implements AutoCloseable {
+
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final int maxBatchSize;
+    private final long maxWait;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<Pending<?>> batch = new ArrayList<>();
+    private ScheduledFuture<?> timer;
+
+    /**
+     * @param elasticsearchAsyncService 异步服务，用于发送 msearch
+     * @param maxBatchSize              每批最多合并的查询数
+     * @param maxWait                   批次中第一个查询的最长等待时间（毫秒）
+     */
+    public SearchCoalescer(ElasticsearchAsyncService elasticsearchAsyncService, int maxBatchSize, long maxWait) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize 必须大于 0");
+        }
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait 不能小于 0");
+        }
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-search-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交一个查询，与同一时间窗口内的其他查询合并发送
+     *
+     * @param input 搜索入参
+     * @param <T>   数据对象
+     * @return 查询结果，失败时以 {@link ElasticsearchException} 结束
+     */
+    public <T> CompletableFuture<SearchResponse<T>> submit(SearchInput<T> input) {
+        Pending<T> pending = new Pending<>(ElasticsearchRequests.multiSearchItem(input), input.getTClass());
+        List<Pending<?>> full = null;
+        synchronized (lock) {
+            batch.add(pending);
+            if (batch.size() >= maxBatchSize) {
+                full = drain();
+            } else if (batch.size() == 1) {
+                timer = scheduler.schedule(this::flush, maxWait, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return pending.future;
+    }
+
+    /**
+     * 立即发送当前批次
+     */
+    public void flush() {
+        List<Pending<?>> pending;
+        synchronized (lock) {
+            pending = drain();
+        }
+        send(pending);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    private List<Pending<?>> drain() {
+        List<Pending<?>> drained = batch;
+        batch = new ArrayList<>();
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        return drained;
+    }
+
+    private void send(List<Pending<?>> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<RequestItem> searches = new ArrayList<>(pending.size());
+        List<Class<?>> documentClasses = new ArrayList<>(pending.size());
+        for (Pending<?> item : pending) {
+            searches.add(item.request);
+            documentClasses.add(item.documentClass);
+        }
+        log.debug("合并查询发送, 查询数量: {}", pending.size());
+        CompletableFuture<List<MultiSearchResponseItem<?>>> future;
+        try {
+            future = elasticsearchAsyncService.msearch(new MsearchRequest.Builder().searches(searches).build(), documentClasses);
+        } catch (RuntimeException e) {
+            pending.forEach(item -> item.future.completeExceptionally(e));
+            return;
+        }
+        future.whenComplete((items, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            for (int i = 0; i < pending.size(); i++) {
+                Pending<?> item = pending.get(i);
+                // 单个响应转换失败时只影响对应的查询，其余查询仍需完成
+                try {
+                    if (cause != null) {
+                        item.future.completeExceptionally(cause);
+                    } else if (i >= items.size()) {
+                        item.future.completeExceptionally(new ElasticsearchException("合并查询缺少第 " + i + " 个查询的响应"));
+                    } else {
+                        item.complete(items.get(i));
+                    }
+                } catch (RuntimeException ex) {
+                    item.future.completeExceptionally(ex);
+                }
+            }
+        });
+    }
+
+    private static final class Pending<T> {
+        private final RequestItem request;
+        private final Class<T> documentClass;
+        private final CompletableFuture<SearchResponse<T>> future = new CompletableFuture<>();
+
+        private Pending(RequestItem request, Class<T> documentClass) {
+            this.request = request;
+            this.documentClass = documentClass;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(MultiSearchResponseItem<?> item) {
+            if (item.isFailure()) {
+                future.completeExceptionally(new ElasticsearchException(
+                        String.format("查询ES数据失败, 索引: %s, 错误: %s", request.header().index(), MultiSearchResponses.reason(item))));
+            } else {
+                future.complete(MultiSearchResponses.toSearchResponse((MultiSearchItem<T>) item.result()));
+            }
+        }
+    }
+
+}
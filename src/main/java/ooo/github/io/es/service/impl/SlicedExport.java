@@ -0,0 +1,275 @@
+package ooo.github.io.es.service.impl;
+
+import co.elastic.clients.elasticsearch._types.SlicedScroll;
+import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.service.ElasticsearchService;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 切片并行导出：所有切片共用一个 point in time，每个切片在自己的线程上用 search_after 翻页，
+ * 全部切片结束（或任一切片失败）后关闭 point in time；ES 可能在翻页时返回新的 pit id，关闭时使用各切片最后拿到的 id
+ *
+ * @author kaiqin
+ */
+@Slf4j
+final class SlicedExport<T> {
+
+    private static final Object END = new Object();
+
+    /**
+     * 队列不能放 null，_source 为空的文档用它占位
+     */
+    private static final Object NULL_SOURCE = new Object();
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final ElasticsearchService elasticsearchService;
+    private final ElasticsearchAsyncService elasticsearchAsyncService;
+    private final SearchInput<T> input;
+    private final String keepAlive;
+    private final int size;
+    private final int slices;
+    private final Executor executor;
+
+    /**
+     * 未指定线程池时按切片数创建，导出结束后关闭
+     */
+    private final ExecutorService ownExecutor;
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * 任一切片失败或消费端关闭时为 true，其余切片尽快结束
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 消费端已关闭，不再向队列写入
+     */
+    private volatile boolean consumerClosed;
+
+    private String pitId;
+
+    /**
+     * 各切片最后一次响应返回的 pit id
+     */
+    private final Set<String> pitIds = ConcurrentHashMap.newKeySet();
+
+    SlicedExport(ElasticsearchService elasticsearchService, ElasticsearchAsyncService elasticsearchAsyncService,
+                 SearchInput<T> input, String keepAlive, int size, int slices, Executor executor) {
+        this.elasticsearchService = elasticsearchService;
+        this.elasticsearchAsyncService = elasticsearchAsyncService;
+        this.input = input;
+        this.keepAlive = keepAlive;
+        this.size = size;
+        this.slices = slices;
+        if (executor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("es-export-");
+            threadFactory.setDaemon(true);
+            this.ownExecutor = Executors.newFixedThreadPool(slices, threadFactory);
+            this.executor = ownExecutor;
+        } else {
+            this.ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * 在调用线程阻塞直到所有切片导出完成，consumer 会被多个切片线程并发调用
+     *
+     * @param consumer 参数为切片编号和文档
+     * @return 导出的文档数
+     */
+    long run(BiConsumer<Integer, T> consumer) {
+        try {
+            return start(consumer).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ElasticsearchException("切片导出失败: " + e.getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 切片线程写入有界队列，调用方单线程消费；队列满时切片线程等待，关闭迭代器时停止导出
+     *
+     * @param queueCapacity 队列容量
+     * @return 文档迭代器
+     */
+    QueueIterator iterator(int queueCapacity) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        start((sliceId, document) -> put(queue, document == null ? NULL_SOURCE : document))
+                .whenComplete((total, e) -> {
+                    if (e != null) {
+                        failure.set(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                    put(queue, END);
+                });
+        return new QueueIterator(queue, failure);
+    }
+
+    private CompletableFuture<Long> start(BiConsumer<Integer, T> consumer) {
+        try {
+            pitId = PointInTimeIterator.openPointInTime(elasticsearchService, input, keepAlive);
+        } catch (RuntimeException e) {
+            shutdownExecutor();
+            throw e;
+        }
+        log.debug("切片导出开始, 索引: {}, 切片数: {}, 每页大小: {}", ElasticsearchRequests.indexNames(input), slices, size);
+
+        List<CompletableFuture<?>> tasks = new ArrayList<>(slices);
+        try {
+            for (int i = 0; i < slices; i++) {
+                int sliceId = i;
+                tasks.add(CompletableFuture.runAsync(() -> runSlice(sliceId, consumer), executor)
+                        .whenComplete((v, e) -> {
+                            if (e != null) {
+                                // 任一切片失败时通知其余切片尽快结束
+                                cancelled = true;
+                            }
+                        }));
+            }
+        } catch (RuntimeException e) {
+            // 调用方的线程池拒绝任务：已提交的切片结束后再关闭 point in time，否则其余切片仍在使用
+            cancelled = true;
+            consumerClosed = true;
+            try {
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException ignored) {
+                // 以提交失败的异常为准
+            }
+            finish();
+            throw e;
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> count.sum())
+                .whenComplete((total, e) -> finish());
+    }
+
+    /**
+     * 关闭 point in time 和自建的线程池
+     */
+    private void finish() {
+        if (pitIds.isEmpty()) {
+            pitIds.add(pitId);
+        }
+        pitIds.forEach(id -> PointInTimeIterator.closePointInTime(elasticsearchService, id, keepAlive));
+        shutdownExecutor();
+        log.debug("切片导出结束, 索引: {}, 文档数量: {}", ElasticsearchRequests.indexNames(input), count.sum());
+    }
+
+    private void runSlice(int sliceId, BiConsumer<Integer, T> consumer) {
+        // 只有一个切片时不能指定 slice（max 必须大于 1）
+        SlicedScroll slice = slices > 1 ? SlicedScroll.of(s -> s.id(sliceId).max(slices)) : null;
+        try (PointInTimeIterator<T> iterator = new PointInTimeIterator<>(elasticsearchService, elasticsearchAsyncService,
+                input, pitId, keepAlive, size, slice)) {
+            try {
+                while (!cancelled && iterator.hasNext()) {
+                    consumer.accept(sliceId, iterator.next());
+                    count.increment();
+                }
+            } finally {
+                pitIds.add(iterator.getPitId());
+            }
+        }
+    }
+
+    private void put(BlockingQueue<Object> queue, Object element) {
+        try {
+            while (!consumerClosed) {
+                if (queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("切片导出写入队列时被中断", e);
+        }
+    }
+
+    private void shutdownExecutor() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 有界队列的消费端，close() 时停止所有切片
+     */
+    final class QueueIterator implements Iterator<T>, AutoCloseable {
+
+        private final BlockingQueue<Object> queue;
+        private final AtomicReference<Throwable> failure;
+        private Object next;
+        private boolean done;
+
+        private QueueIterator(BlockingQueue<Object> queue, AtomicReference<Throwable> failure) {
+            this.queue = queue;
+            this.failure = failure;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ElasticsearchException("切片导出读取队列时被中断", e);
+            }
+            if (next == END) {
+                next = null;
+                done = true;
+                Throwable e = failure.get();
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                if (e != null) {
+                    throw new ElasticsearchException("切片导出失败: " + e.getMessage(), e);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object document = next;
+            next = null;
+            return document == NULL_SOURCE ? null : (T) document;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            consumerClosed = true;
+            cancelled = true;
+            queue.clear();
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package ooo.github.io.es.util;
+
+import co.elastic.clients.elasticsearch._types.aggregations.*;
+import ooo.github.io.es.dto.aggregation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 聚合结果读取：按聚合类型返回 key 与文档数的平行数组（long[]、double[]），不构建装箱的 Map，适合桶数量很多的报表查询
+ * 入参 aggregations 为 SearchResponse#aggregations() 或 {@link BucketCounts#aggregations(int)}（子聚合）；
+ * 聚合不存在或类型不符时抛出 IllegalArgumentException，信息中包含实际类型
+ *
+ * @author kaiqin
+ */
+public final class AggregationReader {
+
+    private AggregationReader() {
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         terms 聚合名称（keyword 字段）
+     * @return sterms 的桶
+     */
+    public static StringBucketCounts stringTerms(Map<String, Aggregate> aggregations, String name) {
+        List<StringTermsBucket> buckets = buckets(variant(aggregations, name, StringTermsAggregate.class, "sterms").buckets());
+        String[] keys = new String[buckets.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = buckets.get(i).key().isString() ? buckets.get(i).key().stringValue() : String.valueOf(buckets.get(i).key()._get());
+        }
+        return new StringBucketCounts(buckets, keys);
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         terms 聚合名称（integer、long 等整数字段）
+     * @return lterms 的桶
+     */
+    public static LongBucketCounts longTerms(Map<String, Aggregate> aggregations, String name) {
+        List<LongTermsBucket> buckets = buckets(variant(aggregations, name, LongTermsAggregate.class, "lterms").buckets());
+        long[] keys = new long[buckets.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = parseLong(buckets.get(i).key());
+        }
+        return new LongBucketCounts(buckets, keys);
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         terms 聚合名称（double、float 等浮点字段）
+     * @return dterms 的桶
+     */
+    public static DoubleBucketCounts doubleTerms(Map<String, Aggregate> aggregations, String name) {
+        List<DoubleTermsBucket> buckets = buckets(variant(aggregations, name, DoubleTermsAggregate.class, "dterms").buckets());
+        double[] keys = new double[buckets.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = buckets.get(i).key();
+        }
+        return new DoubleBucketCounts(buckets, keys);
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         histogram 聚合名称
+     * @return 桶，key 为区间下界
+     */
+    public static DoubleBucketCounts histogram(Map<String, Aggregate> aggregations, String name) {
+        List<HistogramBucket> buckets = buckets(variant(aggregations, name, HistogramAggregate.class, "histogram").buckets());
+        double[] keys = new double[buckets.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = buckets.get(i).key();
+        }
+        return new DoubleBucketCounts(buckets, keys);
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         date_histogram 聚合名称
+     * @return 桶，key 为区间起点的毫秒时间戳
+     */
+    public static LongBucketCounts dateHistogram(Map<String, Aggregate> aggregations, String name) {
+        List<DateHistogramBucket> buckets = buckets(variant(aggregations, name, DateHistogramAggregate.class, "date_histogram").buckets());
+        long[] keys = new long[buckets.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = parseLong(buckets.get(i).key());
+        }
+        return new LongBucketCounts(buckets, keys);
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         composite 聚合名称
+     * @return 桶与下一页的 afterKey
+     */
+    public static CompositeBucketCounts composite(Map<String, Aggregate> aggregations, String name) {
+        CompositeAggregate composite = variant(aggregations, name, CompositeAggregate.class, "composite");
+        return new CompositeBucketCounts(buckets(composite.buckets()), composite.afterKey());
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         cardinality 聚合名称
+     * @return 去重数量（近似值）
+     */
+    public static long cardinality(Map<String, Aggregate> aggregations, String name) {
+        return variant(aggregations, name, CardinalityAggregate.class, "cardinality").value();
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         stats 或 extended_stats 聚合名称
+     * @return count、min、max、avg、sum，没有文档时 min/max/avg 为 NaN 或无穷
+     */
+    public static StatsAggregate stats(Map<String, Aggregate> aggregations, String name) {
+        return variant(aggregations, name, StatsAggregate.class, "stats");
+    }
+
+    /**
+     * @param aggregations 聚合结果
+     * @param name         percentiles 聚合名称（tdigest 或 hdr）
+     * @return 百分位与取值
+     */
+    public static PercentileValues percentiles(Map<String, Aggregate> aggregations, String name) {
+        Percentiles values = variant(aggregations, name, PercentilesAggregateBase.class, "percentiles").values();
+        if (values.isArray()) {
+            List<ArrayPercentilesItem> items = values.array();
+            double[] percents = new double[items.size()];
+            double[] result = new double[items.size()];
+            for (int i = 0; i < percents.length; i++) {
+                percents[i] = Double.parseDouble(items.get(i).key());
+                result[i] = items.get(i).value();
+            }
+            return new PercentileValues(percents, result);
+        }
+        Map<String, String> keyed = values.keyed();
+        double[] percents = new double[keyed.size()];
+        double[] result = new double[keyed.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : keyed.entrySet()) {
+            percents[i] = Double.parseDouble(entry.getKey());
+            result[i++] = entry.getValue() == null ? Double.NaN : Double.parseDouble(entry.getValue());
+        }
+        return new PercentileValues(percents, result);
+    }
+
+    /**
+     * 单桶聚合（nested、reverse_nested、filter 等）的文档数
+     *
+     * @param aggregations 聚合结果
+     * @param name         单桶聚合名称
+     * @return 文档数
+     */
+    public static long docCount(Map<String, Aggregate> aggregations, String name) {
+        return variant(aggregations, name, SingleBucketAggregateBase.class, "nested/filter").docCount();
+    }
+
+    /**
+     * 单桶聚合（nested、reverse_nested、filter 等）的子聚合
+     *
+     * @param aggregations 聚合结果
+     * @param name         单桶聚合名称
+     * @return 子聚合，key 为聚合名称
+     */
+    public static Map<String, Aggregate> subAggregations(Map<String, Aggregate> aggregations, String name) {
+        return variant(aggregations, name, SingleBucketAggregateBase.class, "nested/filter").aggregations();
+    }
+
+    private static <A> A variant(Map<String, Aggregate> aggregations, String name, Class<A> type, String expected) {
+        Aggregate aggregate = aggregations == null ? null : aggregations.get(name);
+        if (aggregate == null) {
+            throw new IllegalArgumentException("聚合不存在: " + name + ", 已有: " + (aggregations == null ? "[]" : aggregations.keySet()));
+        }
+        Object variant = aggregate._get();
+        if (!type.isInstance(variant)) {
+            throw new IllegalArgumentException(String.format("聚合 %s 的类型为 %s, 不是 %s", name, aggregate._kind().jsonValue(), expected));
+        }
+        return type.cast(variant);
+    }
+
+    /**
+     * keyed=true 时桶以对象返回，按响应顺序转为列表
+     */
+    private static <B> List<B> buckets(Buckets<B> buckets) {
+        return buckets.isArray() ? buckets.array() : new ArrayList<>(buckets.keyed().values());
+    }
+
+    /**
+     * 客户端将 lterms 与 date_histogram 的 key 反序列化为字符串
+     */
+    private static long parseLong(String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(key);
+        }
+    }
+
+}
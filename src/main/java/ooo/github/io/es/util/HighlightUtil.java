@@ -3,9 +3,10 @@ package ooo.github.io.es.util;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import lombok.extern.slf4j.Slf4j;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import ooo.github.io.es.metadata.FieldMetadata;
 import org.springframework.util.CollectionUtils;
 
-import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
 
@@ -20,7 +21,7 @@ public class HighlightUtil {
 
     /**
      * 高亮替换
-     * 递归查找字段（包括当前类和所有父类），将高亮结果替换到文档对象中
+     * 按文档字段名（@JsonProperty）或 Java 字段名查找字段（包括当前类和所有父类），将高亮结果替换到文档对象中
      *
      * @param searchResponse 搜索响应结果
      * @param <T>            文档类型
@@ -49,6 +50,7 @@ public class HighlightUtil {
                 continue;
             }
 
+            DocumentMetadata metadata = DocumentMetadata.of(source.getClass());
             for (Map.Entry<String, List<String>> entry : highlight.entrySet()) {
                 String fieldName = entry.getKey();
                 List<String> highlightValues = entry.getValue();
@@ -56,47 +58,18 @@ public class HighlightUtil {
                     continue;
                 }
 
-                try {
-                    Field field = findField(source.getClass(), fieldName);
-                    if (field != null) {
-                        field.setAccessible(true);
-                        // 取第一个高亮值
-                        field.set(source, highlightValues.get(0));
-                        log.debug("高亮替换成功, 字段: {}, 类: {}", fieldName, source.getClass().getSimpleName());
-                    } else {
-                        log.warn("未找到字段: {}, 类: {}", fieldName, source.getClass().getName());
-                    }
-                } catch (IllegalAccessException e) {
-                    log.error("设置高亮字段失败, 字段: {}, 类: {}", fieldName, source.getClass().getName(), e);
+                FieldMetadata field = metadata.getField(fieldName);
+                if (field == null) {
+                    log.warn("未找到字段: {}, 类: {}", fieldName, source.getClass().getName());
+                } else if (!field.isWritable(String.class)) {
+                    log.warn("字段不是可写的 String 类型, 跳过高亮替换, 字段: {}, 类: {}", fieldName, source.getClass().getName());
+                } else {
+                    // 取第一个高亮值
+                    field.set(source, highlightValues.get(0));
+                    log.debug("高亮替换成功, 字段: {}, 类: {}", fieldName, source.getClass().getName());
                 }
             }
         }
     }
 
-    /**
-     * 递归查找字段（包括当前类和所有父类）
-     *
-     * @param clazz     类
-     * @param fieldName 字段名
-     * @return 字段对象，如果未找到返回 null
-     */
-    private static Field findField(Class<?> clazz, String fieldName) {
-        if (clazz == null || fieldName == null) {
-            return null;
-        }
-
-        // 在当前类中查找
-        try {
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            // 如果当前类未找到，递归查找父类
-            Class<?> superClass = clazz.getSuperclass();
-            if (superClass != null && !superClass.equals(Object.class)) {
-                return findField(superClass, fieldName);
-            }
-        }
-
-        return null;
-    }
-
 }
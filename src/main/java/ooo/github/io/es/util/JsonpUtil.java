@@ -0,0 +1,242 @@
+package ooo.github.io.es.util;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.JsonpSerializable;
+import co.elastic.clients.json.NdJsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * JsonP 序列化工具类
+ * 将 ES 客户端的 Request/Response 序列化为 JSON 字符串（主要用于日志输出），输出大小受上限约束
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class JsonpUtil {
+
+    /**
+     * 截断提示
+     */
+    private static final String TRUNCATED_SUFFIX = "...(已截断, 上限 %d 字节)";
+
+    private static final MethodType SERIALIZE_TYPE = MethodType.methodType(void.class, JsonGenerator.class, JsonpMapper.class);
+
+    /**
+     * 各类型的 serialize(JsonGenerator, JsonpMapper) 方法句柄，每个类只反射解析一次；不存在该方法时为 null
+     */
+    private static final ClassValue<MethodHandle> SERIALIZE_HANDLES = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findVirtual(type, "serialize", SERIALIZE_TYPE)
+                        .asType(MethodType.methodType(void.class, Object.class, JsonGenerator.class, JsonpMapper.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    };
+
+    /**
+     * 序列化对象为 JSON，超过 maxBytes 时截断
+     *
+     * @param source   待序列化对象
+     * @param mapper   JsonpMapper
+     * @param maxBytes 最大字节数，小于等于 0 表示不限制
+     * @return JSON 字符串
+     */
+    public static String toJson(Object source, JsonpMapper mapper, int maxBytes) {
+        if (source == null) {
+            return "null";
+        }
+        BoundedOutputStream out = new BoundedOutputStream(maxBytes);
+        try {
+            // JacksonJsonpMapper.serialize() 要求 JsonGenerator 必须由 JacksonJsonpProvider 创建，否则抛 IllegalArgumentException
+            JsonGenerator generator = createJsonGenerator(mapper, out);
+            try {
+                // ES 7.17 的 Request/Response 可能未实现 JsonpSerializable 接口，但多有 serialize(JsonGenerator, JsonpMapper)
+                if (!serializeWithJsonp(source, generator, mapper)) {
+                    // ES 包内类型若没有 serialize 方法，不要交给 Jackson（会报 No serializer），直接 toString
+                    if (source.getClass().getName().startsWith("co.elastic.clients.")) {
+                        return source.toString();
+                    }
+                    mapper.serialize(source, generator);
+                }
+                generator.close();
+            } catch (RuntimeException e) {
+                // 达到上限时输出流会中断序列化，此时返回已写入的部分
+                if (!out.isTruncated()) {
+                    throw e;
+                }
+            }
+            return out.isTruncated()
+                    ? out.toUtf8String() + String.format(TRUNCATED_SUFFIX, maxBytes)
+                    : out.toUtf8String();
+        } catch (Exception e) {
+            log.warn("序列化对象为 JSON 时发生异常, fallback 使用 toString, 对象类型: {}", source.getClass().getName(), e);
+            return source.toString();
+        }
+    }
+
+    /**
+     * 计算对象按 ndjson（bulk 请求体格式）序列化后的字节数，只计数不保留内容
+     *
+     * @param value  bulk 操作等 ndjson 对象
+     * @param mapper JsonpMapper
+     * @return 字节数
+     */
+    public static long ndJsonSize(NdJsonpSerializable value, JsonpMapper mapper) {
+        CountingOutputStream out = new CountingOutputStream();
+        writeNdJson(value, mapper, out);
+        return out.count;
+    }
+
+    private static void writeNdJson(NdJsonpSerializable value, JsonpMapper mapper, CountingOutputStream out) {
+        Iterator<?> values = value._serializables();
+        while (values.hasNext()) {
+            Object item = values.next();
+            if (item instanceof NdJsonpSerializable && item != value) {
+                writeNdJson((NdJsonpSerializable) item, mapper, out);
+            } else {
+                JsonGenerator generator = createJsonGenerator(mapper, out);
+                mapper.serialize(item, generator);
+                generator.close();
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * 对 ES 客户端类型调用其 serialize(JsonGenerator, JsonpMapper) 方法（7.17 中部分类型未实现 JsonpSerializable，但方法存在）。
+     *
+     * @return true 表示已成功用 JsonP 序列化，false 表示需走 mapper.serialize
+     */
+    private static boolean serializeWithJsonp(Object source, JsonGenerator generator, JsonpMapper mapper) {
+        if (source instanceof JsonpSerializable) {
+            ((JsonpSerializable) source).serialize(generator, mapper);
+            return true;
+        }
+        MethodHandle handle = SERIALIZE_HANDLES.get(source.getClass());
+        if (handle == null) {
+            return false;
+        }
+        try {
+            handle.invokeExact(source, generator, mapper);
+            return true;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 使用与当前 JsonpMapper 配套的 JsonProvider 创建 JsonGenerator。
+     * JacksonJsonpMapper 要求 generator 必须由其 jsonProvider() 创建，否则 serialize 会抛 IllegalArgumentException。
+     */
+    private static JsonGenerator createJsonGenerator(JsonpMapper mapper, OutputStream out) {
+        if (mapper instanceof JacksonJsonpMapper) {
+            return ((JacksonJsonpMapper) mapper).jsonProvider().createGenerator(out);
+        }
+        return JsonProvider.provider().createGenerator(out);
+    }
+
+    /**
+     * 只计数的输出流
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * 有上限的输出流，写满后抛出 IOException 中断序列化，避免大请求被完整序列化
+     */
+    private static class BoundedOutputStream extends OutputStream {
+
+        private final int limit;
+        private byte[] buf = new byte[256];
+        private int count;
+        private boolean truncated;
+
+        BoundedOutputStream(int limit) {
+            this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (truncated || count >= limit) {
+                truncated = true;
+                throw new IOException("超过日志输出上限");
+            }
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (truncated) {
+                throw new IOException("超过日志输出上限");
+            }
+            int writable = Math.min(len, limit - count);
+            ensureCapacity(count + writable);
+            System.arraycopy(b, off, buf, count, writable);
+            count += writable;
+            if (writable < len) {
+                truncated = true;
+                throw new IOException("超过日志输出上限");
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buf.length) {
+                byte[] copy = new byte[Math.min(Math.max(buf.length << 1, capacity), limit)];
+                System.arraycopy(buf, 0, copy, 0, count);
+                buf = copy;
+            }
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        String toUtf8String() {
+            int end = count;
+            if (truncated) {
+                // 回退到完整的 UTF-8 字符边界，避免中文被截成乱码
+                int lead = end - 1;
+                while (lead >= 0 && (buf[lead] & 0xC0) == 0x80) {
+                    lead--;
+                }
+                if (lead >= 0 && (buf[lead] & 0x80) != 0) {
+                    int expected = (buf[lead] & 0xE0) == 0xC0 ? 1 : (buf[lead] & 0xF0) == 0xE0 ? 2 : 3;
+                    if (end - lead - 1 < expected) {
+                        end = lead;
+                    }
+                }
+            }
+            return new String(buf, 0, end, StandardCharsets.UTF_8);
+        }
+    }
+
+}
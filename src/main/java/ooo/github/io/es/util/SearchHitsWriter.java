@@ -0,0 +1,143 @@
+package ooo.github.io.es.util;
+
+import co.elastic.clients.json.JsonpDeserializerBase;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpParser;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.json.stream.JsonParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+
+/**
+ * 查询响应的流式反序列化器：边解析边把每个命中的 _source 按 token 复制到输出流，不构建 SearchResponse 和文档对象，
+ * 输出格式与 {@link SearchResponseUtil#writeHits} 相同：{"total":命中总数,"hits":[_source, ...]}
+ * 需使用 JacksonJsonpMapper（直接读取底层的 Jackson JsonParser），只 flush 不关闭输出流
+ *
+ * @author kaiqin
+ */
+public class SearchHitsWriter extends JsonpDeserializerBase<Long> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final OutputStream out;
+
+    /**
+     * @param out 输出流，每个实例只能用于一次请求
+     */
+    public SearchHitsWriter(OutputStream out) {
+        super(EnumSet.of(JsonParser.Event.START_OBJECT));
+        this.out = out;
+    }
+
+    /**
+     * @return 写出的命中数
+     */
+    @Override
+    public Long deserialize(JsonParser parser, JsonpMapper mapper, JsonParser.Event event) {
+        if (!(parser instanceof JacksonJsonpParser)) {
+            throw new IllegalStateException("流式写出查询结果需要使用 JacksonJsonpMapper");
+        }
+        com.fasterxml.jackson.core.JsonParser jackson = ((JacksonJsonpParser) parser).jacksonParser();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            long written = -1;
+            while (jackson.nextToken() == JsonToken.FIELD_NAME) {
+                String name = jackson.getCurrentName();
+                JsonToken token = jackson.nextToken();
+                if ("hits".equals(name) && token == JsonToken.START_OBJECT) {
+                    written = hits(jackson, generator);
+                } else {
+                    jackson.skipChildren();
+                }
+            }
+            if (written < 0) {
+                generator.writeArrayFieldStart("hits");
+                generator.writeEndArray();
+                written = 0;
+            }
+            generator.writeEndObject();
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * hits 对象：total 为对象（或 rest_total_hits_as_int 时为数字），hits 为命中数组
+     */
+    private static long hits(com.fasterxml.jackson.core.JsonParser jackson, JsonGenerator generator) throws IOException {
+        long written = 0;
+        boolean hitsWritten = false;
+        while (jackson.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jackson.getCurrentName();
+            JsonToken token = jackson.nextToken();
+            if ("total".equals(name)) {
+                Long total = total(jackson, token);
+                if (total != null) {
+                    generator.writeNumberField("total", total);
+                }
+            } else if ("hits".equals(name) && token == JsonToken.START_ARRAY) {
+                generator.writeArrayFieldStart("hits");
+                while (jackson.nextToken() == JsonToken.START_OBJECT) {
+                    source(jackson, generator);
+                    written++;
+                }
+                generator.writeEndArray();
+                hitsWritten = true;
+            } else {
+                jackson.skipChildren();
+            }
+        }
+        if (!hitsWritten) {
+            generator.writeArrayFieldStart("hits");
+            generator.writeEndArray();
+        }
+        return written;
+    }
+
+    private static Long total(com.fasterxml.jackson.core.JsonParser jackson, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return jackson.getLongValue();
+        }
+        Long total = null;
+        if (token == JsonToken.START_OBJECT) {
+            while (jackson.nextToken() == JsonToken.FIELD_NAME) {
+                String name = jackson.getCurrentName();
+                jackson.nextToken();
+                if ("value".equals(name)) {
+                    total = jackson.getLongValue();
+                } else {
+                    jackson.skipChildren();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 复制一个命中的 _source，没有 _source 时写 null
+     */
+    private static void source(com.fasterxml.jackson.core.JsonParser jackson, JsonGenerator generator) throws IOException {
+        boolean found = false;
+        while (jackson.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jackson.getCurrentName();
+            jackson.nextToken();
+            if ("_source".equals(name)) {
+                generator.copyCurrentStructure(jackson);
+                found = true;
+            } else {
+                jackson.skipChildren();
+            }
+        }
+        if (!found) {
+            generator.writeNull();
+        }
+    }
+
+}
@@ -2,9 +2,17 @@ package ooo.github.io.es.util;
 
 import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHits;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import lombok.Data;
+import ooo.github.io.es.metadata.DocumentMetadata;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -15,8 +23,11 @@ import java.util.Map;
 @Data
 public class SearchResponseUtil {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     /**
-     * 读取聚合结果集
+     * 读取聚合结果集，只支持 sterms；其他类型或桶较多时使用 {@link AggregationReader}
      *
      * @param searchResponse  查询结果
      * @param aggregetionName 聚合分组名
@@ -43,4 +54,66 @@ public class SearchResponseUtil {
 
     }
 
+
+    /**
+     * 把命中的 _version、_seq_no、_primary_term 回填到文档的 @Version、@SeqNo、@PrimaryTerm 字段，
+     * 本 Starter 的查询已自动回填，直接使用 ElasticsearchClient 查询时可调用
+     *
+     * @param searchResponse 查询结果，请求需开启 version / seq_no_primary_term
+     * @param <T>            数据对象
+     * @return 查询结果
+     */
+    public static <T> SearchResponse<T> fillHitMetadata(SearchResponse<T> searchResponse) {
+        if (searchResponse == null || searchResponse.hits() == null) {
+            return searchResponse;
+        }
+        DocumentMetadata metadata = null;
+        for (Hit<T> hit : searchResponse.hits().hits()) {
+            T source = hit.source();
+            if (source == null) {
+                continue;
+            }
+            if (metadata == null || metadata.getType() != source.getClass()) {
+                metadata = DocumentMetadata.of(source.getClass());
+            }
+            if (metadata.hasHitMetadata()) {
+                metadata.setHitMetadata(source, hit.version(), hit.seqNo(), hit.primaryTerm());
+            }
+        }
+        return searchResponse;
+    }
+
+
+    /**
+     * 将 searchRaw 的命中写为 {"total":命中总数,"hits":[_source, ...]}，_source 按原始 token 回放，不经过对象；
+     * track_total_hits 关闭时没有 total，没有 _source 的命中写为 null。只 flush 不关闭输出流
+     *
+     * @param searchResponse searchRaw 的查询结果
+     * @param out            输出流，如 HttpServletResponse#getOutputStream()
+     * @return 写出的命中数
+     * @throws IOException 写出失败
+     */
+    public static long writeHits(SearchResponse<TokenBuffer> searchResponse, OutputStream out) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            TotalHits total = searchResponse.hits().total();
+            if (total != null) {
+                generator.writeNumberField("total", total.value());
+            }
+            generator.writeArrayFieldStart("hits");
+            for (Hit<TokenBuffer> hit : searchResponse.hits().hits()) {
+                if (hit.source() == null) {
+                    generator.writeNull();
+                } else {
+                    hit.source().serialize(generator);
+                }
+                written++;
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return written;
+    }
+
 }
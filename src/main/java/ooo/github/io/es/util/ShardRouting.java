@@ -0,0 +1,97 @@
+package ooo.github.io.es.util;
+
+/**
+ * 与 Elasticsearch 7.x 一致的文档分片计算：shard = floorMod(murmur3(routing), routingShards) / (routingShards / shards)，
+ * routing 未指定时取文档ID；不考虑 routing_partition_size 大于 1 的索引
+ *
+ * @author kaiqin
+ */
+public final class ShardRouting {
+
+    /**
+     * 7.x 默认的 number_of_routing_shards 上限
+     */
+    private static final int LOG2_MAX_ROUTING_SHARDS = 10;
+
+    private ShardRouting() {
+    }
+
+    /**
+     * 计算文档所在的分片
+     *
+     * @param routing        routing，未指定时为文档ID
+     * @param numberOfShards 主分片数
+     * @param routingShards  index.number_of_routing_shards，小于等于 0 时使用 7.x 的默认值
+     * @return 分片编号
+     */
+    public static int shardId(String routing, int numberOfShards, int routingShards) {
+        if (routing == null) {
+            throw new IllegalArgumentException("routing 不能为空");
+        }
+        if (numberOfShards <= 0) {
+            throw new IllegalArgumentException("主分片数必须大于0");
+        }
+        int routingNumShards = routingShards > 0 ? routingShards : defaultRoutingShards(numberOfShards);
+        return Math.floorMod(hash(routing), routingNumShards) / (routingNumShards / numberOfShards);
+    }
+
+    /**
+     * 7.x 创建索引时默认的 number_of_routing_shards：不超过 1024 的 numberOfShards * 2^n，且至少可拆分一次
+     *
+     * @param numberOfShards 主分片数
+     * @return routing 分片数
+     */
+    public static int defaultRoutingShards(int numberOfShards) {
+        int log2Shards = 32 - Integer.numberOfLeadingZeros(numberOfShards - 1);
+        int splits = Math.max(1, LOG2_MAX_ROUTING_SHARDS - log2Shards);
+        return numberOfShards << splits;
+    }
+
+    /**
+     * ES 的 Murmur3HashFunction：每个 char 按小端拆为两个字节后计算 murmur3_x86_32（seed 为 0）
+     *
+     * @param routing routing
+     * @return hash
+     */
+    public static int hash(String routing) {
+        byte[] bytes = new byte[routing.length() * 2];
+        for (int i = 0; i < routing.length(); i++) {
+            char c = routing.charAt(i);
+            bytes[i * 2] = (byte) c;
+            bytes[i * 2 + 1] = (byte) (c >>> 8);
+        }
+        return murmurhash3(bytes);
+    }
+
+    private static int murmurhash3(byte[] data) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h1 = 0;
+        int roundedEnd = data.length & 0xfffffffc;
+        for (int i = 0; i < roundedEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            h1 ^= mixK1(k1, c1, c2);
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        // routing 按 char 拆为两个字节，长度总是偶数，尾部只可能是 2 个字节
+        if ((data.length & 0x03) != 0) {
+            int k1 = (data[roundedEnd] & 0xff) | ((data[roundedEnd + 1] & 0xff) << 8);
+            h1 ^= mixK1(k1, c1, c2);
+        }
+        h1 ^= data.length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixK1(int k1, int c1, int c2) {
+        k1 *= c1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * c2;
+    }
+
+}
@@ -1,12 +1,12 @@
 package ooo.github.io.es.util;
 
 import co.elastic.clients.elasticsearch._types.mapping.*;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.extern.slf4j.Slf4j;
 import ooo.github.io.es.anno.Type;
+import ooo.github.io.es.metadata.DocumentMetadata;
+import ooo.github.io.es.metadata.FieldMetadata;
 import org.springframework.util.StringUtils;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -22,7 +22,7 @@ import java.util.Map;
 public class TypeMappingBuilder {
 
     /**
-     * 根据类构建类型映射
+     * 根据类构建类型映射，结果按类缓存在 {@link DocumentMetadata} 中
      *
      * @param clazz 文档类
      * @param <T>   泛型
@@ -32,41 +32,24 @@ public class TypeMappingBuilder {
         if (clazz == null) {
             throw new IllegalArgumentException("类不能为空");
         }
-
-        TypeMapping.Builder builder = new TypeMapping.Builder();
-        
-        // 处理当前类的字段
-        processFields(clazz, builder);
-        
-        // 递归处理父类的字段
-        Class<?> superClass = clazz.getSuperclass();
-        while (superClass != null && !superClass.equals(Object.class)) {
-            processFields(superClass, builder);
-            superClass = superClass.getSuperclass();
-        }
-
-        return builder.build();
+        return DocumentMetadata.of(clazz).getTypeMapping();
     }
 
     /**
-     * 处理类的字段
+     * 根据元数据构建类型映射（包括父类字段）
      *
-     * @param clazz   类
-     * @param builder 映射构建器
+     * @param metadata 文档类元数据
+     * @return 类型映射
      */
-    private static void processFields(Class<?> clazz, TypeMapping.Builder builder) {
-        Field[] declaredFields = clazz.getDeclaredFields();
-        for (Field field : declaredFields) {
-            Type esType = field.getAnnotation(Type.class);
-            if (esType != null) {
-                String fieldName = field.getName();
-                JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
-                if (jsonProperty != null && StringUtils.hasText(jsonProperty.value())) {
-                    fieldName = jsonProperty.value();
-                }
-                typeMapping(builder, fieldName, esType);
+    public static TypeMapping build(DocumentMetadata metadata) {
+        TypeMapping.Builder builder = new TypeMapping.Builder();
+        // 与字段顺序一致：当前类在前，父类在后
+        for (FieldMetadata field : metadata.getFields()) {
+            if (field.getType() != null) {
+                typeMapping(builder, field.getJsonName(), field.getType());
             }
         }
+        return builder.build();
     }
 
     /**
@@ -0,0 +1,31 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.dto.aggregation.LongBucketCounts;
+import ooo.github.io.es.util.AggregationReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AggregationReaderTest extends StubTransportTestSupport {
+
+    @Test
+    public void aggregationReaderReadsTypedBuckets() {
+        transport.respondWithFixture("es/search", "aggregations");
+        SearchResponse<QyDocument> response = simpleService.search(INDEX_NAME, QueryBuilders.matchAll().build()._toQuery(), QyDocument.class);
+
+        LongBucketCounts years = AggregationReader.longTerms(response.aggregations(), "by_year");
+        Assertions.assertArrayEquals(new long[]{2023, 2024}, years.keys());
+        Assertions.assertArrayEquals(new long[]{2, 1}, years.counts());
+        Assertions.assertEquals(2, AggregationReader.cardinality(years.aggregations(0), "qy"));
+        Assertions.assertEquals(1704067200000L, AggregationReader.dateHistogram(response.aggregations(), "by_day").key(0));
+        Assertions.assertEquals(5, AggregationReader.docCount(response.aggregations(), "items"));
+        Assertions.assertEquals(25.0, AggregationReader.stats(AggregationReader.subAggregations(response.aggregations(), "items"), "price").sum(), 0);
+        Assertions.assertEquals(80.5, AggregationReader.percentiles(response.aggregations(), "latency").valueOf(99.0), 0);
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AggregationReader.stringTerms(response.aggregations(), "by_year"));
+        Assertions.assertTrue(e.getMessage().contains("lterms"));
+    }
+
+}
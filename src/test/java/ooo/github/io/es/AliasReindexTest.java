@@ -0,0 +1,65 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.dto.DpResourceDataDocument;
+import ooo.github.io.es.dto.ReindexProgress;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.stub.StubElasticsearchTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class AliasReindexTest extends StubTransportTestSupport {
+
+    @Test
+    public void reindexWithAliasSwapReplacesIndex() {
+        transport.respond("es/indices.exists", 200, "");
+        transport.respondWithFixture("es/indices.get_settings", "dp_resource_data");
+        transport.respondInOrderWithFixtures("es/tasks.get", "running", "completed");
+
+        List<ReindexProgress> progress = new ArrayList<>();
+        String index = simpleService.reindexWithAliasSwap(DpResourceDataDocument.class, progress::add);
+        Assertions.assertTrue(index.startsWith("dp_resource_data_v"));
+        Assertions.assertEquals(2, progress.size());
+        Assertions.assertEquals(40, progress.get(0).getPercent(), 0.001);
+        Assertions.assertTrue(progress.get(1).isCompleted());
+        Assertions.assertEquals(100, progress.get(1).getPercent(), 0.001);
+        Assertions.assertTrue(requestBody("es/indices.create").contains("\"number_of_replicas\":\"0\",\"refresh_interval\":\"-1\""));
+        Assertions.assertTrue(requestBody("es/reindex").contains("\"source\":{\"index\":[\"dp_resource_data\"]}"));
+        // 复制前原索引只读，原索引与新索引同名时在切换别名的请求中删除，不再解除只读
+        Assertions.assertEquals(Arrays.asList("{\"blocks\":{\"write\":true}}",
+                "{\"number_of_replicas\":\"2\",\"refresh_interval\":\"30s\",\"translog\":{\"durability\":\"request\"}}"),
+                bodies("es/indices.put_settings"));
+        Assertions.assertEquals(2, transport.count("es/count"));
+        Assertions.assertEquals("{\"actions\":[{\"add\":{\"alias\":\"dp_resource_data\",\"index\":\"" + index + "\"}},"
+                + "{\"remove_index\":{\"index\":\"dp_resource_data\"}}]}", requestBody("es/indices.update_aliases"));
+    }
+
+    @Test
+    public void countMismatchKeepsSourceIndex() {
+        transport.respond("es/indices.exists", 200, "");
+        transport.respondWithFixture("es/indices.get_settings", "dp_resource_data");
+        transport.respondInOrderWithFixtures("es/tasks.get", "completed");
+        transport.respondInOrderWithFixtures("es/count", "default", "missing-one");
+        transport.respond("es/indices.delete", 200, "{\"acknowledged\":true}");
+
+        Assertions.assertThrows(ElasticsearchException.class,
+                () -> simpleService.reindexWithAliasSwap(DpResourceDataDocument.class));
+        Assertions.assertEquals(0, transport.count("es/indices.update_aliases"));
+        Assertions.assertEquals(1, transport.count("es/indices.delete"));
+        List<String> settings = bodies("es/indices.put_settings");
+        Assertions.assertEquals("{\"blocks\":{\"write\":true}}", settings.get(0));
+        Assertions.assertEquals("{\"blocks\":{\"write\":false}}", settings.get(settings.size() - 1));
+    }
+
+    private List<String> bodies(String endpointId) {
+        return transport.requests().stream()
+                .filter(r -> r.getEndpointId().equals(endpointId))
+                .map(StubElasticsearchTransport.RecordedRequest::getBody)
+                .collect(Collectors.toList());
+    }
+
+}
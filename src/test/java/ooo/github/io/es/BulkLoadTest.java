@@ -0,0 +1,55 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.stub.StubElasticsearchTransport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BulkLoadTest extends StubTransportTestSupport {
+
+    @Test
+    public void bulkLoadRestoresSettingsEvenOnFailure() {
+        transport.respondWithFixture("es/indices.get_settings", "aaa");
+
+        BulkResult result = simpleService.bulkLoad(INDEX_NAME,
+                () -> simpleService.bulkWithResult(INDEX_NAME, Collections.singletonList(new QyDocument())), 1);
+        Assertions.assertNotNull(result);
+        List<String> endpoints = transport.requests().stream()
+                .map(StubElasticsearchTransport.RecordedRequest::getEndpointId)
+                .filter(id -> !id.equals("es/bulk"))
+                .collect(Collectors.toList());
+        // 先强制合并再恢复副本
+        Assertions.assertEquals(Arrays.asList("es/indices.get_settings", "es/indices.put_settings", "es/indices.forcemerge",
+                "es/indices.put_settings", "es/indices.refresh"), endpoints);
+        List<String> settings = transport.requests().stream()
+                .filter(r -> r.getEndpointId().equals("es/indices.put_settings"))
+                .map(StubElasticsearchTransport.RecordedRequest::getBody)
+                .collect(Collectors.toList());
+        Assertions.assertEquals("{\"number_of_replicas\":\"0\",\"refresh_interval\":\"-1\",\"translog\":{\"durability\":\"async\"}}",
+                settings.get(0));
+        // 原索引未设置 refresh_interval，恢复为 null 而不是 1s
+        Assertions.assertEquals("{\"refresh_interval\":null,\"number_of_replicas\":\"2\",\"translog\":{\"durability\":\"request\"}}",
+                settings.get(1));
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                () -> simpleService.bulkLoad(INDEX_NAME, () -> {
+                    throw new IllegalStateException("导入失败");
+                }));
+        Assertions.assertEquals("导入失败", e.getMessage());
+        Assertions.assertEquals(4, transport.count("es/indices.put_settings"));
+
+        AssertionError error = Assertions.assertThrows(AssertionError.class,
+                () -> simpleService.bulkLoad(INDEX_NAME, () -> {
+                    throw new AssertionError("导入中断");
+                }));
+        Assertions.assertEquals("导入中断", error.getMessage());
+        Assertions.assertEquals(6, transport.count("es/indices.put_settings"));
+    }
+
+}
@@ -0,0 +1,51 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch._types.aggregations.CompositeBucket;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.dto.SearchInput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class CompositeAggregationTest extends StubTransportTestSupport {
+
+    @Test
+    public void compositeBucketsFollowAfterKey() {
+        transport.respondInOrderWithFixtures("es/search", "composite-page-1", "composite-page-2", "composite-page-last");
+        SearchInput<QyDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.addCompositeAggregation("by_mc", 2, "qyMc");
+
+        List<String> keys;
+        try (Stream<CompositeBucket> buckets = simpleService.compositeBuckets(input, "by_mc")) {
+            keys = buckets.map(bucket -> bucket.key().get("qyMc").stringValue()).collect(Collectors.toList());
+        }
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), keys);
+        Assertions.assertEquals(3, transport.count("es/search"));
+        Assertions.assertFalse(transport.requests().get(0).getBody().contains("\"after\""));
+        Assertions.assertTrue(transport.requests().get(1).getBody().contains("\"after\":{\"qyMc\":\"b\"}"));
+    }
+
+    @Test
+    public void shortPageWithAfterKeyContinues() {
+        // bucket_selector 在翻页后过滤了 b，第一页不足 size 但仍有 after_key
+        transport.respondInOrderWithFixtures("es/search", "composite-page-short", "composite-page-2", "composite-page-last");
+        SearchInput<QyDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.addCompositeAggregation("by_mc", 2, "qyMc");
+
+        List<String> keys;
+        try (Stream<CompositeBucket> buckets = simpleService.compositeBuckets(input, "by_mc", false)) {
+            keys = buckets.map(bucket -> bucket.key().get("qyMc").stringValue()).collect(Collectors.toList());
+        }
+        Assertions.assertEquals(Arrays.asList("a", "c"), keys);
+        Assertions.assertEquals(3, transport.count("es/search"));
+        Assertions.assertTrue(transport.requests().get(1).getBody().contains("\"after\":{\"qyMc\":\"b\"}"));
+        Assertions.assertTrue(transport.requests().get(2).getBody().contains("\"after\":{\"qyMc\":\"c\"}"));
+    }
+
+}
@@ -0,0 +1,75 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.dto.QyPrimitiveVersionedDocument;
+import ooo.github.io.es.dto.QyVersionedDocument;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.dto.TrackedDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ConcurrencyControlTest extends StubTransportTestSupport {
+
+    @Test
+    public void versionedDocumentsUseConcurrencyControl() {
+        transport.respondWithFixture("es/search", "versioned");
+        SearchInput<QyVersionedDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.setTClass(QyVersionedDocument.class);
+        QyVersionedDocument document = simpleService.search(input).hits().hits().get(0).source();
+        Assertions.assertTrue(requestBody("es/search").contains("\"seq_no_primary_term\":true"));
+        Assertions.assertEquals(Long.valueOf(3), document.getVersion());
+        Assertions.assertEquals(Long.valueOf(7), document.getSeqNo());
+        Assertions.assertEquals(Long.valueOf(2), document.getPrimaryTerm());
+        transport.reset();
+
+        QyVersionedDocument external = new QyVersionedDocument();
+        external.setQyId("2");
+        external.setVersion(10L);
+        simpleService.bulkWithResult(INDEX_NAME, Arrays.asList(document, external));
+        String body = requestBody("es/bulk");
+        Assertions.assertTrue(body.startsWith("{\"index\":{\"_id\":\"1\",\"if_primary_term\":2,\"if_seq_no\":7}}\n"
+                + "{\"qyId\":\"1\",\"qyMc\":\"企业1\"}\n"));
+        Assertions.assertTrue(body.contains("{\"index\":{\"_id\":\"2\",\"version\":10,\"version_type\":\"external\"}}\n{\"qyId\":\"2\"}"));
+    }
+
+    @Test
+    public void unsetPrimitiveFieldsAreIgnored() {
+        QyPrimitiveVersionedDocument unset = new QyPrimitiveVersionedDocument();
+        unset.setQyId("1");
+        QyPrimitiveVersionedDocument versioned = new QyPrimitiveVersionedDocument();
+        versioned.setQyId("2");
+        versioned.setSeqNo(0);
+        versioned.setPrimaryTerm(1);
+        simpleService.bulkWithResult(INDEX_NAME, Arrays.asList(unset, versioned));
+        String body = requestBody("es/bulk");
+        Assertions.assertTrue(body.startsWith("{\"index\":{\"_id\":\"1\"}}\n{\"qyId\":\"1\"}\n"));
+        Assertions.assertTrue(body.contains("{\"index\":{\"_id\":\"2\",\"if_primary_term\":1,\"if_seq_no\":0}}\n"));
+    }
+
+    @Test
+    public void changedUpdateWritesBackSeqNo() {
+        QyVersionedDocument document = new QyVersionedDocument();
+        document.setQyId("1");
+        document.setQyMc("企业1");
+        document.setSeqNo(7L);
+        document.setPrimaryTerm(2L);
+        TrackedDocument<QyVersionedDocument> tracked = simpleService.track(document);
+
+        document.setQyMc("企业2");
+        Assertions.assertTrue(simpleService.bulkUpdateChanged(INDEX_NAME, Collections.singletonList(tracked)).isSuccess());
+        Assertions.assertTrue(requestBody("es/bulk").contains("\"if_primary_term\":2,\"if_seq_no\":7"));
+        // 只发送变化字段的 update 也要回填新的 _seq_no / _primary_term
+        long seqNo = document.getSeqNo();
+        Assertions.assertNotEquals(7L, seqNo);
+        Assertions.assertEquals(Long.valueOf(1), document.getPrimaryTerm());
+        transport.reset();
+
+        document.setQyMc("企业3");
+        simpleService.bulkUpdateChanged(INDEX_NAME, Collections.singletonList(tracked));
+        Assertions.assertTrue(requestBody("es/bulk").contains("\"if_primary_term\":1,\"if_seq_no\":" + seqNo + "}"));
+    }
+
+}
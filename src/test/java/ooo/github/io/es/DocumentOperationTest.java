@@ -0,0 +1,38 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.dto.TrackedDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class DocumentOperationTest extends StubTransportTestSupport {
+
+    @Test
+    public void bulkUpdateSendsOnlyChangedFields() {
+        QyDocument document = new QyDocument("1", "企业1", "108.121307", "29.992445", null);
+        simpleService.bulkUpsert(INDEX_NAME, Collections.singletonList(document));
+        Assertions.assertTrue(transport.requests().get(0).getBody().contains("{\"update\":{\"_id\":\"1\"}}\n"
+                + "{\"doc\":{\"qyId\":\"1\",\"qyMc\":\"企业1\",\"jd\":\"108.121307\",\"wd\":\"29.992445\"},\"doc_as_upsert\":true}"));
+        transport.reset();
+
+        TrackedDocument<QyDocument> tracked = simpleService.track(document);
+        Assertions.assertFalse(tracked.isDirty());
+        document.setQyMc("企业2");
+        document.setJd(null);
+        BulkResult result = simpleService.bulkUpdateChanged(INDEX_NAME, Collections.singletonList(tracked));
+        Assertions.assertEquals(1, result.getTotal());
+        Assertions.assertTrue(transport.requests().get(0).getBody()
+                .contains("{\"update\":{\"_id\":\"1\"}}\n{\"doc\":{\"qyMc\":\"企业2\",\"jd\":null}}"));
+        Assertions.assertFalse(tracked.isDirty());
+        Assertions.assertEquals(0, simpleService.bulkUpdateChanged(INDEX_NAME, Collections.singletonList(tracked)).getTotal());
+        transport.reset();
+
+        simpleService.bulkDeleteByIds(INDEX_NAME, Arrays.asList("1", "2"));
+        Assertions.assertTrue(transport.requests().get(0).getBody().startsWith("{\"delete\":{\"_id\":\"1\"}}\n{\"delete\":{\"_id\":\"2\"}}"));
+    }
+
+}
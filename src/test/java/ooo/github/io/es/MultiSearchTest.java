@@ -0,0 +1,96 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.dto.QyNameView;
+import ooo.github.io.es.dto.QyVersionedDocument;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.impl.SearchCoalescer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class MultiSearchTest extends StubTransportTestSupport {
+
+    @Test
+    public void multiSearchKeepsOrderAndTypes() {
+        transport.respondWithFixture("es/msearch", "two-hits");
+        SearchInput<QyDocument> documents = new SearchInput<>();
+        documents.setIndexName(INDEX_NAME);
+        documents.setTClass(QyDocument.class);
+        SearchInput<QyNameView> names = new SearchInput<>();
+        names.setIndexName(INDEX_NAME);
+        names.projection(QyNameView.class);
+
+        List<SearchResponse<?>> responses = simpleService.multiSearch(Arrays.asList(documents, names));
+        Assertions.assertEquals(2, responses.size());
+        Assertions.assertTrue(responses.get(0).hits().hits().get(0).source() instanceof QyDocument);
+        Assertions.assertEquals("企业2", ((QyNameView) responses.get(1).hits().hits().get(0).source()).getQyMc());
+        Assertions.assertEquals(1, transport.count("es/msearch"));
+    }
+
+    @Test
+    public void multiSearchFailsOnItemError() {
+        transport.respondWithFixture("es/msearch", "hit-and-error");
+        SearchInput<QyDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.setTClass(QyDocument.class);
+        Assertions.assertThrows(ElasticsearchException.class, () -> simpleService.multiSearch(Arrays.asList(input, input)));
+    }
+
+    @Test
+    public void coalescerBatchesConcurrentSearches() {
+        transport.respondWithFixture("es/msearch", "two-hits-and-error");
+        try (SearchCoalescer coalescer = new SearchCoalescer(asyncService, 3, 60000)) {
+            List<CompletableFuture<SearchResponse<QyNameView>>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                SearchInput<QyNameView> input = new SearchInput<>();
+                input.setIndexName(INDEX_NAME);
+                input.projection(QyNameView.class);
+                futures.add(coalescer.submit(input));
+            }
+            Assertions.assertEquals("企业1", futures.get(0).join().hits().hits().get(0).source().getQyMc());
+            Assertions.assertEquals("企业2", futures.get(1).join().hits().hits().get(0).source().getQyMc());
+            CompletionException e = Assertions.assertThrows(CompletionException.class, () -> futures.get(2).join());
+            Assertions.assertTrue(e.getCause() instanceof ElasticsearchException);
+            Assertions.assertEquals(1, transport.count("es/msearch"));
+        }
+    }
+
+    @Test
+    public void multiSearchBodyMatchesSearchBody() throws Exception {
+        SearchInput<QyVersionedDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.setTClass(QyVersionedDocument.class);
+        input.setQuery(QueryBuilders.match().field("qyMc").query("企业").build()._toQuery());
+        input.setFrom(10);
+        input.setSize(5);
+        input.setSortOptions(Arrays.asList(SortOptions.of(o -> o.field(f -> f.field("qyId").order(SortOrder.Desc)))));
+        input.setSourceIncludes(Arrays.asList("qyId", "qyMc"));
+        input.setRouting(Arrays.asList("t1"));
+
+        transport.respondWithFixture("es/search", "versioned");
+        simpleService.search(input);
+        String searchBody = requestBody("es/search");
+        transport.respond("es/msearch", 200, "{\"took\":1,\"responses\":[{\"took\":1,\"timed_out\":false,"
+                + "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},\"hits\":{\"hits\":[]},\"status\":200}]}");
+        simpleService.multiSearch(Collections.singletonList(input));
+        String[] lines = requestBody("es/msearch").split("\n");
+        // 合并查询与单独查询发送的内容一致
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assertions.assertEquals(objectMapper.readTree(searchBody), objectMapper.readTree(lines[1]));
+        Assertions.assertEquals("{\"index\":[\"" + INDEX_NAME + "\"],\"routing\":\"t1\"}", lines[0]);
+    }
+
+}
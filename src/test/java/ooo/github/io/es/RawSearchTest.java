@@ -0,0 +1,34 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import ooo.github.io.es.dto.SearchInput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class RawSearchTest extends StubTransportTestSupport {
+
+    @Test
+    public void searchRawKeepsSourceAsTokens() {
+        SearchInput<Object> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        SearchResponse<TokenBuffer> response = simpleService.searchRaw(input);
+        Assertions.assertEquals(2, response.hits().hits().size());
+        Assertions.assertNotNull(response.hits().hits().get(0).source());
+    }
+
+    @Test
+    public void writeHitsToPassesSourceThrough() {
+        SearchInput<Object> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = simpleService.writeHitsTo(input, out);
+        Assertions.assertEquals(2, written);
+        Assertions.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8)
+                .startsWith("{\"total\":2,\"hits\":[{\"qyId\":\"1\",\"qyMc\":\"企业1\""));
+    }
+
+}
@@ -0,0 +1,41 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.dto.QyRoutedDocument;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.util.ShardRouting;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class RoutingTest extends StubTransportTestSupport {
+
+    @Test
+    public void routedDocumentsCarryRouting() {
+        QyRoutedDocument document = new QyRoutedDocument();
+        document.setQyId("1");
+        document.setTenantId("t1");
+        document.setQyMc("企业1");
+        simpleService.bulkWithResult(INDEX_NAME, Collections.singletonList(document));
+        Assertions.assertTrue(requestBody("es/bulk")
+                .startsWith("{\"index\":{\"_id\":\"1\",\"routing\":\"t1\"}}\n{\"qyId\":\"1\",\"tenantId\":\"t1\""));
+        transport.reset();
+
+        transport.respondWithFixture("es/search", "empty");
+        SearchInput<QyRoutedDocument> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.setTClass(QyRoutedDocument.class);
+        input.setRouting(Arrays.asList("t1", "t2", "t1"));
+        simpleService.search(input);
+        Assertions.assertEquals("t1,t2", transport.requests().get(0).getQueryParameters().get("routing"));
+    }
+
+    @Test
+    public void shardIdMatchesOperationRouting() {
+        // 与 ES 7.x 的 OperationRouting 一致：5 个主分片时默认 number_of_routing_shards 为 640
+        Assertions.assertEquals(640, ShardRouting.defaultRoutingShards(5));
+        Assertions.assertEquals(ShardRouting.shardId("1", 5, 640), ShardRouting.shardId("1", 5, 0));
+    }
+
+}
@@ -0,0 +1,77 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.cache.SearchResultCache;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.dto.SearchInput;
+import ooo.github.io.es.service.ElasticsearchSimpleAsyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.CompletionException;
+
+public class SearchResultCacheTest extends StubTransportTestSupport {
+
+    @Autowired
+    private ElasticsearchSimpleAsyncService simpleAsyncService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @AfterEach
+    public void clearCache() {
+        searchResultCache.invalidateAll();
+    }
+
+    @Test
+    public void cacheServesRepeatedSearchUntilWrite() {
+        transport.respondWithFixture("es/search", "cached-terms");
+        SearchInput<QyDocument> input = new SearchInput<>();
+        input.setIndexName(CACHED_INDEX_NAME);
+        input.setTClass(QyDocument.class);
+
+        SearchResponse<QyDocument> first = simpleService.search(input);
+        first.hits().hits().get(0).source().setQyMc("修改");
+        SearchResponse<QyDocument> second = simpleService.search(input);
+        Assertions.assertEquals(1, transport.count("es/search"));
+        Assertions.assertEquals("企业1", second.hits().hits().get(0).source().getQyMc());
+        Assertions.assertEquals(1, second.aggregations().get("by_mc").sterms().buckets().array().size());
+
+        simpleService.bulk(CACHED_INDEX_NAME, QyDocument.mock());
+        simpleService.search(input);
+        Assertions.assertEquals(2, transport.count("es/search"));
+    }
+
+    @Test
+    public void asyncWriteInvalidatesCache() {
+        transport.respondWithFixture("es/search", "cached-terms");
+        SearchInput<QyDocument> input = new SearchInput<>();
+        input.setIndexName(CACHED_INDEX_NAME);
+        input.setTClass(QyDocument.class);
+
+        simpleService.search(input);
+        simpleService.search(input);
+        Assertions.assertEquals(1, transport.count("es/search"));
+
+        simpleAsyncService.bulk(CACHED_INDEX_NAME, QyDocument.mock()).join();
+        simpleService.search(input);
+        Assertions.assertEquals(2, transport.count("es/search"));
+
+        // delete_by_query 没有 fixture，请求失败时同样失效
+        Assertions.assertThrows(CompletionException.class,
+                () -> simpleAsyncService.delete(CACHED_INDEX_NAME, QueryBuilders.matchAll().build()._toQuery()).join());
+        simpleService.search(input);
+        Assertions.assertEquals(3, transport.count("es/search"));
+    }
+
+    @Test
+    public void uncachedIndexAlwaysSearches() {
+        simpleService.search(INDEX_NAME, QueryBuilders.matchAll().build()._toQuery(), QyDocument.class);
+        simpleService.search(INDEX_NAME, QueryBuilders.matchAll().build()._toQuery(), QyDocument.class);
+        Assertions.assertEquals(2, transport.count("es/search"));
+    }
+
+}
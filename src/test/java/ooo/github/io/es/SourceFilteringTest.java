@@ -0,0 +1,27 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.dto.QyNameView;
+import ooo.github.io.es.dto.SearchInput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+public class SourceFilteringTest extends StubTransportTestSupport {
+
+    @Test
+    public void projectionLimitsSource() {
+        SearchInput<QyNameView> input = new SearchInput<>();
+        input.setIndexName(INDEX_NAME);
+        input.projection(QyNameView.class);
+        input.setDocvalueFields(Collections.singletonList("qyMc"));
+        transport.respondWithFixture("es/search", "projection");
+        SearchResponse<QyNameView> response = simpleService.search(input);
+        Assertions.assertEquals("企业1", response.hits().hits().get(0).source().getQyMc());
+        String body = requestBody("es/search");
+        Assertions.assertTrue(body.contains("\"_source\":{\"includes\":[\"qyId\",\"qyMc\"]}"));
+        Assertions.assertTrue(body.contains("\"docvalue_fields\":[{\"field\":\"qyMc\"}]"));
+    }
+
+}
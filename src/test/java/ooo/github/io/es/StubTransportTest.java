@@ -0,0 +1,46 @@
+package ooo.github.io.es;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.QueryBuilders;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.exception.ElasticsearchException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StubTransportTest extends StubTransportTestSupport {
+
+    @Test
+    public void searchReplaysFixture() {
+        Query query = QueryBuilders.match().field("qyId").query("1").build()._toQuery();
+        SearchResponse<QyDocument> response = simpleService.search(INDEX_NAME, query, QyDocument.class);
+        Assertions.assertEquals(2, response.hits().hits().size());
+        Assertions.assertEquals("企业1", response.hits().hits().get(0).source().getQyMc());
+        Assertions.assertEquals(1, transport.count("es/search"));
+    }
+
+    @Test
+    public void bulkRetriesRejectedItems() {
+        // 文档足够多时至少有一个操作被拒绝，不受其他测试消耗随机数的影响
+        List<QyDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.addAll(QyDocument.mock());
+        }
+        BulkResult result = simpleService.bulkWithResult(INDEX_NAME, documents);
+        Assertions.assertEquals(documents.size(), result.getTotal());
+        Assertions.assertTrue(result.getRetries() > 0);
+        Assertions.assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void rejectedRequestFails() {
+        transport.rejectNext(1);
+        Assertions.assertThrows(ElasticsearchException.class,
+                () -> simpleService.search(INDEX_NAME, QueryBuilders.matchAll().build()._toQuery(), QyDocument.class));
+    }
+
+}
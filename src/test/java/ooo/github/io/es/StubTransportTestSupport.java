@@ -0,0 +1,55 @@
+package ooo.github.io.es;
+
+import ooo.github.io.es.service.ElasticsearchAsyncService;
+import ooo.github.io.es.service.ElasticsearchSimpleService;
+import ooo.github.io.es.stub.AutoConfigureStubTransport;
+import ooo.github.io.es.stub.StubElasticsearchTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * 离线测试的公共配置，子类共用同一个 Spring 上下文；响应放在 src/test/resources/es-fixtures 下，
+ * 通过 {@link StubElasticsearchTransport#respondWithFixture(String, String)} 注册
+ *
+ * @author kaiqin
+ */
+@SpringBootTest(classes = {ElasticsearchAutoConfiguration.class},
+        properties = {"elasticsearch.bulk.retry.initialBackoff=1", "elasticsearch.bulk.retry.maxRetries=10",
+                "elasticsearch.reindex.pollInterval=1",
+                "elasticsearch.search.cache.enabled=true",
+                "elasticsearch.search.cache.indices=" + StubTransportTestSupport.CACHED_INDEX_NAME})
+@AutoConfigureStubTransport(bulkItemFailureRate = 0.3)
+public abstract class StubTransportTestSupport {
+
+    protected static final String INDEX_NAME = "aaa";
+
+    protected static final String CACHED_INDEX_NAME = "cached";
+
+    @Autowired
+    protected ElasticsearchSimpleService simpleService;
+
+    @Autowired
+    protected ElasticsearchAsyncService asyncService;
+
+    @Autowired
+    protected StubElasticsearchTransport transport;
+
+    @AfterEach
+    public void reset() {
+        transport.reset();
+    }
+
+    /**
+     * @param endpointId endpoint id
+     * @return 该 endpoint 收到的第一个请求的请求体
+     */
+    protected String requestBody(String endpointId) {
+        return transport.requests().stream()
+                .filter(r -> r.getEndpointId().equals(endpointId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("未发送请求: " + endpointId))
+                .getBody();
+    }
+
+}
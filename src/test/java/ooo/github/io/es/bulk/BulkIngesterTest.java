@@ -0,0 +1,73 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.util.JsonpUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BulkIngesterTest {
+
+    @Test
+    public void missingMaxOperationsMeansNoLimit() {
+        BulkRetrier retrier = Mockito.mock(BulkRetrier.class);
+        Mockito.when(retrier.execute(Mockito.any())).thenReturn(new BulkResult());
+        ElasticsearchProperties.Bulk properties = new ElasticsearchProperties.Bulk();
+        properties.setMaxOperations(null);
+        properties.setMaxBytes(0L);
+        properties.setMaxConcurrentRequests(0);
+        properties.setFlushInterval(0L);
+
+        try (BulkIngester ingester = new BulkIngester(retrier, new JacksonJsonpMapper(), properties, Collections.emptyList())) {
+            for (QyDocument document : QyDocument.mock()) {
+                ingester.add("aaa", document.getQyId(), document);
+            }
+            Mockito.verify(retrier, Mockito.never()).execute(Mockito.any());
+            ingester.flush();
+        }
+        ArgumentCaptor<BulkRequest> request = ArgumentCaptor.forClass(BulkRequest.class);
+        Mockito.verify(retrier).execute(request.capture());
+        Assertions.assertEquals(QyDocument.mock().size(), request.getValue().operations().size());
+    }
+
+    @Test
+    public void maxBytesSplitsNearLimit() {
+        BulkRetrier retrier = Mockito.mock(BulkRetrier.class);
+        Mockito.when(retrier.execute(Mockito.any())).thenReturn(new BulkResult());
+        ElasticsearchProperties.Bulk properties = new ElasticsearchProperties.Bulk();
+        properties.setMaxOperations(0);
+        properties.setMaxBytes(2048L);
+        properties.setMaxConcurrentRequests(0);
+        properties.setFlushInterval(0L);
+
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper();
+        try (BulkIngester ingester = new BulkIngester(retrier, mapper, properties, Collections.emptyList())) {
+            for (int i = 0; i < 200; i++) {
+                ingester.add("aaa", String.valueOf(i), new QyDocument(String.valueOf(i), "企业" + i, "108.121307", "29.992445", null));
+            }
+        }
+        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+        Mockito.verify(retrier, Mockito.atLeast(2)).execute(captor.capture());
+        List<BulkRequest> requests = captor.getAllValues();
+        int total = 0;
+        for (BulkRequest request : requests.subList(0, requests.size() - 1)) {
+            long bytes = 0;
+            for (int i = 0; i < request.operations().size() - 1; i++) {
+                bytes += JsonpUtil.ndJsonSize(request.operations().get(i), mapper);
+            }
+            // 除最后一个操作外未达到上限
+            Assertions.assertTrue(bytes < 2048);
+            total += request.operations().size();
+        }
+        Assertions.assertEquals(200, total + requests.get(requests.size() - 1).operations().size());
+    }
+
+}
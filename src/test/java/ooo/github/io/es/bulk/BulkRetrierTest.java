@@ -0,0 +1,125 @@
+package ooo.github.io.es.bulk;
+
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.dto.BulkResult;
+import ooo.github.io.es.dto.QyDocument;
+import ooo.github.io.es.service.ElasticsearchService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkRetrierTest {
+
+    private final ElasticsearchService elasticsearchService = Mockito.mock(ElasticsearchService.class);
+
+    @Test
+    public void retriesOnlyRejectedItems() {
+        BulkRetrier retrier = new BulkRetrier(elasticsearchService, retry(3, 1L, 30000L));
+        Mockito.when(elasticsearchService.bulk(Mockito.any()))
+                .thenReturn(response(item("1", 200, null), item("2", 429, "es_rejected_execution_exception"),
+                        item("3", 400, "mapper_parsing_exception")))
+                .thenReturn(response(item("2", 201, null)));
+
+        BulkResult result = retrier.execute(request("1", "2", "3"));
+        ArgumentCaptor<BulkRequest> requests = ArgumentCaptor.forClass(BulkRequest.class);
+        Mockito.verify(elasticsearchService, Mockito.times(2)).bulk(requests.capture());
+        List<BulkOperation> retried = requests.getAllValues().get(1).operations();
+        Assertions.assertEquals(1, retried.size());
+        Assertions.assertEquals("2", retried.get(0).index().id());
+        Assertions.assertEquals("aaa", requests.getAllValues().get(1).index());
+
+        Assertions.assertEquals(3, result.getTotal());
+        Assertions.assertEquals(1, result.getRetries());
+        Assertions.assertEquals(1, result.getRetriedItems());
+        Assertions.assertEquals(1, result.getFailures().size());
+        Assertions.assertEquals("3", result.getFailures().get(0).getId());
+        Assertions.assertEquals("mapper_parsing_exception", result.getFailures().get(0).getErrorType());
+        Assertions.assertEquals("3", result.getFailures().get(0).getOperation().index().id());
+    }
+
+    @Test
+    public void stopsAfterMaxRetries() {
+        BulkRetrier retrier = new BulkRetrier(elasticsearchService, retry(2, 1L, 30000L));
+        Mockito.when(elasticsearchService.bulk(Mockito.any())).thenReturn(response(item("1", 503, "unavailable_shards_exception")));
+
+        BulkResult result = retrier.execute(request("1"));
+        Mockito.verify(elasticsearchService, Mockito.times(3)).bulk(Mockito.any());
+        Assertions.assertEquals(2, result.getRetries());
+        Assertions.assertEquals(2, result.getRetriedItems());
+        Assertions.assertEquals(503, result.getFailures().get(0).getStatus());
+    }
+
+    @Test
+    public void stopsWhenBudgetIsExhausted() {
+        BulkRetrier retrier = new BulkRetrier(elasticsearchService, retry(10, 1000L, 10L));
+        Mockito.when(elasticsearchService.bulk(Mockito.any())).thenReturn(response(item("1", 429, "es_rejected_execution_exception")));
+
+        BulkResult result = retrier.execute(request("1"));
+        Mockito.verify(elasticsearchService, Mockito.times(1)).bulk(Mockito.any());
+        Assertions.assertEquals(0, result.getRetries());
+        Assertions.assertEquals(1, result.getFailures().size());
+    }
+
+    @Test
+    public void backoffGrowsWithJitterUpToMax() {
+        ElasticsearchProperties.Retry properties = retry(3, 100L, 30000L);
+        properties.setMaxBackoff(1000L);
+        BulkRetrier retrier = new BulkRetrier(elasticsearchService, properties);
+        for (int i = 0; i < 100; i++) {
+            long first = retrier.backoff(0);
+            Assertions.assertTrue(first >= 50 && first <= 100, String.valueOf(first));
+            long third = retrier.backoff(2);
+            Assertions.assertTrue(third >= 200 && third <= 400, String.valueOf(third));
+            long capped = retrier.backoff(40);
+            Assertions.assertTrue(capped >= 500 && capped <= 1000, String.valueOf(capped));
+        }
+    }
+
+    private static ElasticsearchProperties.Retry retry(int maxRetries, long initialBackoff, long budget) {
+        ElasticsearchProperties.Retry retry = new ElasticsearchProperties.Retry();
+        retry.setMaxRetries(maxRetries);
+        retry.setInitialBackoff(initialBackoff);
+        retry.setBudget(budget);
+        return retry;
+    }
+
+    private static BulkRequest request(String... ids) {
+        List<BulkOperation> operations = new ArrayList<>();
+        for (String id : ids) {
+            QyDocument document = new QyDocument(id, "企业" + id);
+            operations.add(BulkOperation.of(o -> o.index(i -> i.id(id).document(document))));
+        }
+        return BulkRequest.of(b -> b.index("aaa").operations(operations));
+    }
+
+    private static BulkResponseItem item(String id, int status, String errorType) {
+        return BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index("aaa").id(id).status(status);
+            if (errorType != null) {
+                i.error(e -> e.type(errorType).reason(errorType));
+            }
+            return i;
+        });
+    }
+
+    private static BulkResponse response(BulkResponseItem... items) {
+        return BulkResponse.of(b -> {
+            boolean errors = false;
+            for (BulkResponseItem item : items) {
+                errors |= item.error() != null;
+                b.items(item);
+            }
+            return b.took(1).errors(errors);
+        });
+    }
+
+}
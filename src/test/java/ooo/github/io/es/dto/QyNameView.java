@@ -0,0 +1,17 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+
+/**
+ * QyDocument 的列表页投影，只包含企业 ID 和名称
+ *
+ * @author kaiqin
+ */
+@Data
+public class QyNameView {
+
+    private String qyId;
+
+    private String qyMc;
+
+}
@@ -0,0 +1,29 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.anno.PrimaryTerm;
+import ooo.github.io.es.anno.SeqNo;
+import ooo.github.io.es.anno.Version;
+
+/**
+ * 乐观并发控制字段为基本类型的企业文档
+ *
+ * @author kaiqin
+ */
+@Data
+public class QyPrimitiveVersionedDocument {
+
+    @Id
+    private String qyId;
+
+    @Version
+    private long version;
+
+    @SeqNo
+    private long seqNo;
+
+    @PrimaryTerm
+    private long primaryTerm;
+
+}
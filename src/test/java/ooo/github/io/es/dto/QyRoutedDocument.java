@@ -0,0 +1,23 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.anno.Routing;
+
+/**
+ * 按租户 routing 的企业文档
+ *
+ * @author kaiqin
+ */
+@Data
+public class QyRoutedDocument {
+
+    @Id
+    private String qyId;
+
+    @Routing
+    private String tenantId;
+
+    private String qyMc;
+
+}
@@ -0,0 +1,31 @@
+package ooo.github.io.es.dto;
+
+import lombok.Data;
+import ooo.github.io.es.anno.Id;
+import ooo.github.io.es.anno.PrimaryTerm;
+import ooo.github.io.es.anno.SeqNo;
+import ooo.github.io.es.anno.Version;
+
+/**
+ * 带乐观并发控制字段的企业文档
+ *
+ * @author kaiqin
+ */
+@Data
+public class QyVersionedDocument {
+
+    @Id
+    private String qyId;
+
+    private String qyMc;
+
+    @Version
+    private Long version;
+
+    @SeqNo
+    private Long seqNo;
+
+    @PrimaryTerm
+    private Long primaryTerm;
+
+}
@@ -0,0 +1,45 @@
+package ooo.github.io.es.health;
+
+import co.elastic.clients.elasticsearch._types.HealthStatus;
+import co.elastic.clients.elasticsearch.cluster.HealthResponse;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.exception.ElasticsearchException;
+import ooo.github.io.es.service.ElasticsearchService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.StringReader;
+import java.time.Clock;
+
+public class ElasticsearchClusterProbeTest {
+
+    private final ElasticsearchService elasticsearchService = Mockito.mock(ElasticsearchService.class);
+
+    @Test
+    public void threadPoolFailureKeepsClusterStatus() {
+        Mockito.when(elasticsearchService.clusterHealth(Mockito.any())).thenReturn(health("green"));
+        Mockito.when(elasticsearchService.nodesStats(Mockito.any())).thenThrow(new ElasticsearchException("读取节点统计超时"));
+
+        ElasticsearchClusterProbe probe = new ElasticsearchClusterProbe(elasticsearchService, null,
+                new ElasticsearchProperties.Health(), Clock.systemUTC());
+        ElasticsearchClusterProbe.ClusterSnapshot snapshot = probe.snapshot();
+        Assertions.assertNull(snapshot.getError());
+        Assertions.assertEquals(HealthStatus.Green, snapshot.getStatus());
+        Assertions.assertEquals("读取节点统计超时", snapshot.getDetails().get("threadPoolsError"));
+        Assertions.assertFalse(snapshot.getDetails().containsKey("threadPools"));
+    }
+
+    private static HealthResponse health(String status) {
+        String json = "{\"cluster_name\":\"es\",\"status\":\"" + status + "\",\"timed_out\":false,"
+                + "\"number_of_nodes\":1,\"number_of_data_nodes\":1,\"active_primary_shards\":1,\"active_shards\":1,"
+                + "\"relocating_shards\":0,\"initializing_shards\":0,\"unassigned_shards\":0,\"delayed_unassigned_shards\":0,"
+                + "\"number_of_pending_tasks\":0,\"number_of_in_flight_fetch\":0,\"task_max_waiting_in_queue_millis\":0,"
+                + "\"active_shards_percent_as_number\":100.0}";
+        JsonpMapper mapper = new JacksonJsonpMapper();
+        return HealthResponse._DESERIALIZER.deserialize(mapper.jsonProvider().createParser(new StringReader(json)), mapper);
+    }
+
+}
@@ -0,0 +1,128 @@
+package ooo.github.io.es.http;
+
+import com.sun.net.httpserver.HttpServer;
+import ooo.github.io.es.ElasticsearchAutoConfiguration;
+import ooo.github.io.es.config.ElasticsearchProperties;
+import ooo.github.io.es.metrics.ElasticsearchMetrics;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 通过自动配置创建的 RestClient 向本地 HTTP 服务发送请求，验证实际发送的请求体、请求头和指标
+ */
+public class GzipRequestCompressorTest {
+
+    private final List<String> contentEncodings = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<String> acceptEncodings = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> bulkBytes = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Long> savedBytes = Collections.synchronizedList(new ArrayList<>());
+
+    private HttpServer server;
+
+    private RestClient restClient;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            byte[] body = StreamUtils.copyToByteArray(exchange.getRequestBody());
+            InputStream content = new ByteArrayInputStream(body);
+            if ("gzip".equals(contentEncoding)) {
+                content = new GZIPInputStream(content);
+            }
+            contentEncodings.add(contentEncoding);
+            acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            bodies.add(StreamUtils.copyToString(content, StandardCharsets.UTF_8));
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        ElasticsearchProperties properties = new ElasticsearchProperties();
+        properties.setVersion("7.17.7");
+        properties.setHosts(Collections.singletonList("127.0.0.1:" + server.getAddress().getPort()));
+        properties.getCompression().setEnabled(true);
+        properties.getCompression().setMinSize(1024L);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("metrics", new ElasticsearchMetrics() {
+            @Override
+            public void bulkBytes(long bytes) {
+                bulkBytes.add(bytes);
+            }
+
+            @Override
+            public void compressionSavedBytes(long bytes) {
+                savedBytes.add(bytes);
+            }
+        });
+        ElasticsearchAutoConfiguration configuration = new ElasticsearchAutoConfiguration(properties);
+        restClient = configuration.restClient(beanFactory.getBeanProvider(RestClient.FailureListener.class),
+                beanFactory.getBeanProvider(ElasticsearchMetrics.class), configuration.connectionManager());
+    }
+
+    @AfterEach
+    public void stop() throws IOException {
+        restClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void smallBodyIsSentAsIs() throws IOException {
+        perform("/aaa/_bulk", "{\"index\":{}}\n{\"qyId\":\"1\"}\n");
+        Assertions.assertNull(contentEncodings.get(0));
+        Assertions.assertEquals("gzip", acceptEncodings.get(0));
+        Assertions.assertEquals(Collections.singletonList(26L), bulkBytes);
+        Assertions.assertTrue(savedBytes.isEmpty());
+    }
+
+    @Test
+    public void largeBodyIsCompressedAfterBulkBytesAreRecorded() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            body.append("{\"index\":{\"_id\":\"").append(i).append("\"}}\n{\"qyMc\":\"企业").append(i).append("\"}\n");
+        }
+        long length = body.toString().getBytes(StandardCharsets.UTF_8).length;
+        perform("/aaa/_bulk", body.toString());
+        Assertions.assertEquals("gzip", contentEncodings.get(0));
+        Assertions.assertEquals(body.toString(), bodies.get(0));
+        Assertions.assertEquals(Collections.singletonList(length), bulkBytes);
+        Assertions.assertEquals(1, savedBytes.size());
+        Assertions.assertTrue(savedBytes.get(0) > length / 2);
+    }
+
+    private void perform(String endpoint, String body) throws IOException {
+        Request request = new Request("POST", endpoint);
+        request.setEntity(new NStringEntity(body, ContentType.create("application/x-ndjson", StandardCharsets.UTF_8)));
+        Response response = restClient.performRequest(request);
+        Assertions.assertEquals(200, response.getStatusLine().getStatusCode());
+    }
+
+}
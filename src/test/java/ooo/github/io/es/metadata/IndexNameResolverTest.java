@@ -0,0 +1,129 @@
+package ooo.github.io.es.metadata;
+
+import ooo.github.io.es.anno.IndexName;
+import ooo.github.io.es.exception.ElasticsearchException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+public class IndexNameResolverTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private final MutableClock clock = new MutableClock(ZonedDateTime.of(2024, 1, 31, 23, 59, 58, 0, ZONE).toInstant());
+
+    @Test
+    public void fixedIndexAppendsEnvSuffix() {
+        IndexNameResolver resolver = new IndexNameResolver(" Test ", clock);
+        Assertions.assertEquals("qy_test", resolver.writeIndex(Fixed.class));
+        Assertions.assertEquals("qy_test", resolver.searchIndex(Fixed.class));
+        Assertions.assertEquals("qy", resolver.writeIndex(NoEnvSuffix.class));
+        Assertions.assertEquals("qy", new IndexNameResolver(null, clock).writeIndex(Fixed.class));
+    }
+
+    @Test
+    public void datedIndexFollowsClockZone() {
+        IndexNameResolver resolver = new IndexNameResolver("dev", clock);
+        Assertions.assertEquals("logs-2024.01.31_dev", resolver.writeIndex(Daily.class));
+        Assertions.assertEquals("logs-*_dev", resolver.searchIndex(Daily.class));
+
+        clock.advance(2000);
+        Assertions.assertEquals("logs-2024.02.01_dev", resolver.writeIndex(Daily.class));
+    }
+
+    @Test
+    public void subMinutePatternIsNotCachedForAMinute() {
+        IndexNameResolver resolver = new IndexNameResolver(null, clock);
+        Assertions.assertEquals("trace-2024.01.31-23.59.58", resolver.writeIndex(PerSecond.class));
+        Assertions.assertEquals("trace-2024.01.31-23.59.58", resolver.writeIndex(PerSecond.class));
+        clock.advance(1000);
+        Assertions.assertEquals("trace-2024.01.31-23.59.59", resolver.writeIndex(PerSecond.class));
+        Assertions.assertEquals("trace-*-*", resolver.searchIndex(PerSecond.class));
+    }
+
+    @Test
+    public void smallestUnitIgnoresQuotedLetters() {
+        Assertions.assertEquals(60_000L, IndexNameResolver.smallestUnitMillis("yyyy.MM.dd-HH.mm"));
+        Assertions.assertEquals(60_000L, IndexNameResolver.smallestUnitMillis("yyyy'ss'"));
+        Assertions.assertEquals(1000L, IndexNameResolver.smallestUnitMillis("HHmmss"));
+        Assertions.assertEquals(1L, IndexNameResolver.smallestUnitMillis("ss.SSS"));
+    }
+
+    @Test
+    public void rolloverUsesAlias() {
+        IndexNameResolver resolver = new IndexNameResolver("dev", clock);
+        Assertions.assertTrue(resolver.isRollover(Rollover.class));
+        Assertions.assertEquals("events_dev", resolver.writeIndex(Rollover.class));
+        Assertions.assertEquals("events_dev", resolver.searchIndex(Rollover.class));
+        Assertions.assertFalse(resolver.isRollover(Fixed.class));
+    }
+
+    @Test
+    public void invalidAnnotationsAreRejected() {
+        IndexNameResolver resolver = new IndexNameResolver(null, clock);
+        Assertions.assertThrows(ElasticsearchException.class, () -> resolver.writeIndex(String.class));
+        Assertions.assertThrows(ElasticsearchException.class, () -> resolver.writeIndex(DatedRollover.class));
+        Assertions.assertThrows(ElasticsearchException.class, () -> resolver.writeIndex(BadPattern.class));
+    }
+
+    @IndexName("qy")
+    static class Fixed {
+    }
+
+    @IndexName(value = "qy", isAddEnvSuffix = false)
+    static class NoEnvSuffix {
+    }
+
+    @IndexName("logs-{yyyy.MM.dd}")
+    static class Daily {
+    }
+
+    @IndexName("trace-{yyyy.MM.dd}-{HH.mm.ss}")
+    static class PerSecond {
+    }
+
+    @IndexName(value = "events", rollover = true)
+    static class Rollover {
+    }
+
+    @IndexName(value = "events-{yyyy}", rollover = true)
+    static class DatedRollover {
+    }
+
+    @IndexName("bad-{bbbb}")
+    static class BadPattern {
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(long millis) {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+}
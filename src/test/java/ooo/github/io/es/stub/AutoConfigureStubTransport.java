@@ -0,0 +1,57 @@
+package ooo.github.io.es.stub;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.properties.PropertyMapping;
+
+import java.lang.annotation.*;
+
+/**
+ * 在测试中用 {@link StubElasticsearchTransport} 替换真实集群，注入 StubElasticsearchTransport 即可注册响应、
+ * 调整耗时分布并断言收到的请求
+ * <pre>
+ * &#64;SpringBootTest(classes = ElasticsearchAutoConfiguration.class)
+ * &#64;AutoConfigureStubTransport(bulkItemFailureRate = 0.1)
+ * public class BulkTest { ... }
+ * </pre>
+ *
+ * @author kaiqin
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@ImportAutoConfiguration(StubTransportAutoConfiguration.class)
+@PropertyMapping("elasticsearch.stub")
+public @interface AutoConfigureStubTransport {
+
+    /**
+     * @return 是否启用
+     */
+    boolean enabled() default true;
+
+    /**
+     * @return 随机数种子
+     */
+    long seed() default 42L;
+
+    /**
+     * @return classpath 下 fixture 的根目录
+     */
+    String fixtures() default StubElasticsearchTransport.DEFAULT_FIXTURES;
+
+    /**
+     * @return 每个请求的固定耗时（毫秒）
+     */
+    long latencyMillis() default 0L;
+
+    /**
+     * @return 每个请求整体返回 429 的概率
+     */
+    double rejectionRate() default 0D;
+
+    /**
+     * @return 生成 bulk 响应时每个操作返回 429 的概率
+     */
+    double bulkItemFailureRate() default 0D;
+
+}
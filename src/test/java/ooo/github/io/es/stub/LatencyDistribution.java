@@ -0,0 +1,81 @@
+package ooo.github.io.es.stub;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 模拟的服务端响应耗时（毫秒），由 {@link StubElasticsearchTransport} 的随机数生成器采样，固定种子时结果可复现
+ *
+ * @author kaiqin
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * 采样一次耗时
+     *
+     * @param random 随机数生成器
+     * @return 耗时（毫秒），小于等于 0 表示不等待
+     */
+    long sample(Random random);
+
+    /**
+     * @return 不等待
+     */
+    static LatencyDistribution none() {
+        return random -> 0L;
+    }
+
+    /**
+     * @param millis 固定耗时
+     * @return 固定耗时
+     */
+    static LatencyDistribution fixed(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("耗时不能小于 0");
+        }
+        return random -> millis;
+    }
+
+    /**
+     * @param minMillis 最小耗时（含）
+     * @param maxMillis 最大耗时（含）
+     * @return [minMillis, maxMillis] 内均匀分布
+     */
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("耗时范围不合法: [" + minMillis + ", " + maxMillis + "]");
+        }
+        long bound = maxMillis - minMillis + 1;
+        return random -> minMillis + (long) (random.nextDouble() * bound);
+    }
+
+    /**
+     * 对数正态分布，贴近真实集群的长尾耗时：sigma 为 0.5 时 p99 约为中位数的 3.2 倍，为 1 时约为 10 倍
+     *
+     * @param medianMillis 中位数
+     * @param sigma        ln(耗时) 的标准差
+     * @return 对数正态分布
+     */
+    static LatencyDistribution logNormal(long medianMillis, double sigma) {
+        if (medianMillis <= 0 || sigma < 0) {
+            throw new IllegalArgumentException("中位数必须大于 0 且 sigma 不能小于 0");
+        }
+        return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    /**
+     * 从录制的耗时中随机取值，如线上慢日志或 took 的采样
+     *
+     * @param samples 录制的耗时
+     * @return 经验分布
+     */
+    static LatencyDistribution empirical(long... samples) {
+        if (samples == null || samples.length == 0) {
+            throw new IllegalArgumentException("耗时样本不能为空");
+        }
+        long[] copy = Arrays.copyOf(samples, samples.length);
+        return random -> copy[random.nextInt(copy.length)];
+    }
+
+}
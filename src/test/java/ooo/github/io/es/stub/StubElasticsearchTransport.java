@@ -0,0 +1,639 @@
+package ooo.github.io.es.stub;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperationBase;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.NdJsonpSerializable;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.JsonEndpoint;
+import co.elastic.clients.transport.TransportException;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.endpoints.BooleanEndpoint;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.transport.rest_client.RestClientOptions;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.RequestOptions;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回放录制响应的 ElasticsearchTransport，用于离线、可复现地测试和压测 bulk、查询、分页以及重试/背压逻辑
+ * <p>
+ * 响应按以下顺序查找，均以 endpoint id（如 es/search、es/bulk）区分：
+ * <ol>
+ *     <li>{@link #respond(Endpoint, Object, int, String)} 按请求注册的响应</li>
+ *     <li>{@link #respondInOrder(String, int, String...)} 注册的响应，按请求顺序依次取走</li>
+ *     <li>classpath 下 {fixtures}/{endpoint id}/{请求哈希}.json</li>
+ *     <li>{@link #respond(String, int, String)} 注册的默认响应</li>
+ *     <li>classpath 下 {fixtures}/{endpoint id}/default.json</li>
+ *     <li>bulk 请求按请求中的操作生成响应，每个操作以 bulkItemFailureRate 的概率返回 429</li>
+ * </ol>
+ * 都找不到时抛出 TransportException，异常信息中包含请求哈希与请求体，可据此录制 fixture。
+ * 请求哈希为 method、url、排序后的查询参数与请求体的 SHA-256 前 16 位。
+ * <p>
+ * 每个请求在返回前按 {@link LatencyDistribution} 等待，并以 rejectionRate 的概率（或 {@link #rejectNext(int)} 指定的次数）
+ * 整体返回 429 es_rejected_execution_exception。随机数使用固定种子，单线程下结果可复现。
+ *
+ * @author kaiqin
+ */
+@Slf4j
+public class StubElasticsearchTransport implements ElasticsearchTransport {
+
+    public static final String DEFAULT_FIXTURES = "es-fixtures";
+
+    private static final String DEFAULT_KEY = "default";
+
+    private static final String REJECTED_TYPE = "es_rejected_execution_exception";
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+
+    private final TransportOptions options = new RestClientOptions(RequestOptions.DEFAULT);
+
+    private final Random random;
+
+    private final String fixtures;
+
+    private final Map<String, Fixture> registered = new ConcurrentHashMap<>();
+
+    private final Map<String, Optional<Fixture>> classpathFixtures = new ConcurrentHashMap<>();
+
+    private final Map<String, Queue<Fixture>> queued = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyDistribution> latencies = new ConcurrentHashMap<>();
+
+    private final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger pendingRejections = new AtomicInteger();
+
+    private final AtomicLong generatedIds = new AtomicLong();
+
+    /**
+     * 成功的 bulk 操作依次分配 _seq_no，用于验证写入后回填
+     */
+    private final AtomicLong seqNos = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "es-stub-transport");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+
+    private volatile double rejectionRate;
+
+    private volatile double bulkItemFailureRate;
+
+    public StubElasticsearchTransport() {
+        this(42L, DEFAULT_FIXTURES);
+    }
+
+    /**
+     * @param seed     随机数种子
+     * @param fixtures classpath 下 fixture 的根目录
+     */
+    public StubElasticsearchTransport(long seed, String fixtures) {
+        this.random = new Random(seed);
+        this.fixtures = fixtures;
+    }
+
+    /**
+     * 所有请求的耗时分布
+     */
+    public StubElasticsearchTransport latency(LatencyDistribution latency) {
+        this.latency = Objects.requireNonNull(latency, "latency");
+        return this;
+    }
+
+    /**
+     * 指定 endpoint 的耗时分布，优先于 {@link #latency(LatencyDistribution)}
+     */
+    public StubElasticsearchTransport latency(String endpointId, LatencyDistribution latency) {
+        latencies.put(endpointId, Objects.requireNonNull(latency, "latency"));
+        return this;
+    }
+
+    /**
+     * 每个请求整体返回 429 的概率
+     */
+    public StubElasticsearchTransport rejectionRate(double rate) {
+        this.rejectionRate = checkRate(rate);
+        return this;
+    }
+
+    /**
+     * 接下来的 count 个请求整体返回 429，优先于 rejectionRate
+     */
+    public StubElasticsearchTransport rejectNext(int count) {
+        pendingRejections.set(count);
+        return this;
+    }
+
+    /**
+     * 生成 bulk 响应时每个操作返回 429 的概率
+     */
+    public StubElasticsearchTransport bulkItemFailureRate(double rate) {
+        this.bulkItemFailureRate = checkRate(rate);
+        return this;
+    }
+
+    /**
+     * 注册 endpoint 的默认响应
+     *
+     * @param endpointId endpoint id，如 es/search
+     * @param status     HTTP 状态码
+     * @param body       响应体
+     */
+    public StubElasticsearchTransport respond(String endpointId, int status, String body) {
+        registered.put(key(endpointId, DEFAULT_KEY), new Fixture(status, body));
+        return this;
+    }
+
+    /**
+     * 依次返回的响应，每个请求取走一个，取完后回到默认响应，适合翻页等每次请求结果不同的场景
+     *
+     * @param endpointId endpoint id，如 es/search
+     * @param status     HTTP 状态码
+     * @param bodies     响应体，按请求顺序
+     */
+    public StubElasticsearchTransport respondInOrder(String endpointId, int status, String... bodies) {
+        Queue<Fixture> queue = queued.computeIfAbsent(endpointId, k -> new ConcurrentLinkedQueue<>());
+        for (String body : bodies) {
+            queue.add(new Fixture(status, body));
+        }
+        return this;
+    }
+
+    /**
+     * 以 classpath 下 {fixtures}/{endpoint id}/{name}.json 作为 endpoint 的默认响应，状态码为 200
+     *
+     * @param endpointId endpoint id，如 es/search
+     * @param name       fixture 文件名（不含 .json）
+     */
+    public StubElasticsearchTransport respondWithFixture(String endpointId, String name) {
+        registered.put(key(endpointId, DEFAULT_KEY), requireFixture(endpointId, name));
+        return this;
+    }
+
+    /**
+     * 依次返回 classpath 下的 fixture，见 {@link #respondInOrder(String, int, String...)}
+     *
+     * @param endpointId endpoint id，如 es/search
+     * @param names      fixture 文件名（不含 .json），按请求顺序
+     */
+    public StubElasticsearchTransport respondInOrderWithFixtures(String endpointId, String... names) {
+        Queue<Fixture> queue = queued.computeIfAbsent(endpointId, k -> new ConcurrentLinkedQueue<>());
+        for (String name : names) {
+            queue.add(requireFixture(endpointId, name));
+        }
+        return this;
+    }
+
+    /**
+     * 注册与 request 相同的请求的响应
+     *
+     * @param endpoint 如 SearchRequest._ENDPOINT
+     * @param request  请求
+     * @param status   HTTP 状态码
+     * @param body     响应体
+     */
+    public <RequestT> StubElasticsearchTransport respond(Endpoint<RequestT, ?, ?> endpoint, RequestT request,
+                                                         int status, String body) {
+        registered.put(key(endpoint.id(), hash(request, endpoint, requestBody(request, endpoint))), new Fixture(status, body));
+        return this;
+    }
+
+    /**
+     * @return 已收到的请求，包括被拒绝的请求
+     */
+    public List<RecordedRequest> requests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    /**
+     * @param endpointId endpoint id
+     * @return 该 endpoint 已收到的请求数
+     */
+    public long count(String endpointId) {
+        return requests.stream().filter(r -> r.getEndpointId().equals(endpointId)).count();
+    }
+
+    /**
+     * 清空已注册的响应（含依次返回的响应）、已收到的请求以及待拒绝次数，耗时与概率配置保持不变
+     */
+    public void reset() {
+        registered.clear();
+        queued.clear();
+        requests.clear();
+        pendingRejections.set(0);
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(RequestT request,
+                                                                  Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                  TransportOptions options) throws IOException {
+        Exchange<ResponseT> exchange = exchange(request, endpoint);
+        if (exchange.delay > 0) {
+            try {
+                Thread.sleep(exchange.delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransportException("等待模拟耗时时被中断", endpoint.id(), e);
+            }
+        }
+        return exchange.call();
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(RequestT request,
+                                                                                          Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+                                                                                          TransportOptions options) {
+        CompletableFuture<ResponseT> future = new CompletableFuture<>();
+        Exchange<ResponseT> exchange = exchange(request, endpoint);
+        scheduler.schedule(() -> {
+            try {
+                future.complete(exchange.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }, Math.max(exchange.delay, 0), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return mapper;
+    }
+
+    @Override
+    public TransportOptions options() {
+        return options;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 在调用线程上完成记录、采样与查找，保证同一线程内的随机序列可复现；反序列化推迟到等待之后
+     */
+    private <RequestT, ResponseT> Exchange<ResponseT> exchange(RequestT request, Endpoint<RequestT, ResponseT, ?> endpoint) {
+        String id = endpoint.id();
+        String body = requestBody(request, endpoint);
+        String hash = hash(request, endpoint, body);
+        long delay;
+        boolean rejected;
+        synchronized (random) {
+            delay = latencies.getOrDefault(id, latency).sample(random);
+            rejected = reject();
+        }
+        requests.add(new RecordedRequest(id, endpoint.method(request), endpoint.requestUrl(request),
+                endpoint.queryParameters(request), hash, body, rejected));
+        if (rejected) {
+            log.debug("模拟拒绝请求, endpoint: {}, hash: {}", id, hash);
+            return new Exchange<>(delay, () -> decode(endpoint, rejection()));
+        }
+        Fixture fixture = lookup(id, hash);
+        if (fixture != null) {
+            return new Exchange<>(delay, () -> decode(endpoint, fixture));
+        }
+        if (request instanceof BulkRequest) {
+            BulkResponse response = bulkResponse((BulkRequest) request, delay);
+            @SuppressWarnings("unchecked")
+            ResponseT result = (ResponseT) response;
+            return new Exchange<>(delay, () -> result);
+        }
+        return new Exchange<>(delay, () -> {
+            throw new TransportException("未找到 fixture, hash: " + hash + ", 请求: " + endpoint.method(request) + " "
+                    + endpoint.requestUrl(request) + " " + body, id);
+        });
+    }
+
+    private boolean reject() {
+        if (pendingRejections.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            return true;
+        }
+        return rejectionRate > 0 && random.nextDouble() < rejectionRate;
+    }
+
+    private Fixture lookup(String endpointId, String hash) {
+        Fixture fixture = registered.get(key(endpointId, hash));
+        if (fixture == null && queued.containsKey(endpointId)) {
+            fixture = queued.get(endpointId).poll();
+        }
+        if (fixture == null) {
+            fixture = classpathFixture(endpointId, hash);
+        }
+        if (fixture == null) {
+            fixture = registered.get(key(endpointId, DEFAULT_KEY));
+        }
+        if (fixture == null) {
+            fixture = classpathFixture(endpointId, DEFAULT_KEY);
+        }
+        return fixture;
+    }
+
+    private Fixture requireFixture(String endpointId, String name) {
+        Fixture fixture = classpathFixture(endpointId, name);
+        if (fixture == null) {
+            throw new IllegalArgumentException("fixture 不存在: " + fixtures + "/" + endpointId + "/" + name + ".json");
+        }
+        return fixture;
+    }
+
+    private Fixture classpathFixture(String endpointId, String name) {
+        String path = fixtures + "/" + endpointId + "/" + name + ".json";
+        return classpathFixtures.computeIfAbsent(path, p -> {
+            InputStream in = getClass().getClassLoader().getResourceAsStream(p);
+            if (in == null) {
+                return Optional.empty();
+            }
+            try (InputStream input = in) {
+                return Optional.of(new Fixture(200, StreamUtils.copyToString(input, StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new IllegalStateException("读取 fixture 失败: " + p, e);
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * 与 RestClientTransport 相同的解码规则：错误状态码反序列化为 ErrorResponse 并抛出 ElasticsearchException，
+     * BooleanEndpoint 由状态码决定结果，其余按 JsonEndpoint 的反序列化器解析响应体
+     */
+    private <ResponseT, ErrorT> ResponseT decode(Endpoint<?, ResponseT, ErrorT> endpoint, Fixture fixture) throws IOException {
+        int status = fixture.status;
+        if (endpoint.isError(status)) {
+            JsonpDeserializer<ErrorT> errorDeserializer = endpoint.errorDeserializer(status);
+            if (errorDeserializer == null || fixture.body == null || fixture.body.isEmpty()) {
+                throw new TransportException("Request failed with status code '" + status + "'", endpoint.id());
+            }
+            ErrorT error = parse(errorDeserializer, fixture.body);
+            if (error instanceof ErrorResponse) {
+                throw new ElasticsearchException(endpoint.id(), (ErrorResponse) error);
+            }
+            throw new TransportException("Request failed with status code '" + status + "'", endpoint.id());
+        }
+        if (endpoint instanceof BooleanEndpoint) {
+            @SuppressWarnings("unchecked")
+            ResponseT response = (ResponseT) new BooleanResponse(((BooleanEndpoint<?>) endpoint).getResult(status));
+            return response;
+        }
+        if (endpoint instanceof JsonEndpoint) {
+            JsonpDeserializer<ResponseT> deserializer = ((JsonEndpoint<?, ResponseT, ?>) endpoint).responseDeserializer();
+            if (deserializer == null) {
+                return null;
+            }
+            return parse(deserializer, fixture.body);
+        }
+        throw new TransportException("不支持的 endpoint 类型: " + endpoint.getClass().getName(), endpoint.id());
+    }
+
+    private <T> T parse(JsonpDeserializer<T> deserializer, String json) {
+        try (JsonParser parser = mapper.jsonProvider().createParser(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            return deserializer.deserialize(parser, mapper);
+        }
+    }
+
+    /**
+     * 按请求中的操作生成 bulk 响应，每个操作以 bulkItemFailureRate 的概率返回 429，成功的操作 _seq_no 依次递增
+     */
+    private BulkResponse bulkResponse(BulkRequest request, long took) {
+        List<BulkResponseItem> items = new ArrayList<>(request.operations().size());
+        boolean errors = false;
+        for (BulkOperation operation : request.operations()) {
+            BulkOperationBase base = (BulkOperationBase) operation._get();
+            String index = base.index() != null ? base.index() : request.index();
+            String id = base.id() != null ? base.id() : "stub-" + generatedIds.incrementAndGet();
+            OperationType type = OperationType.valueOf(operation._kind().name());
+            boolean failed;
+            synchronized (random) {
+                failed = bulkItemFailureRate > 0 && random.nextDouble() < bulkItemFailureRate;
+            }
+            errors |= failed;
+            items.add(BulkResponseItem.of(b -> {
+                b.operationType(type).index(index).id(id);
+                if (failed) {
+                    return b.status(TOO_MANY_REQUESTS).error(rejectedCause());
+                }
+                return b.status(type == OperationType.Index || type == OperationType.Create ? 201 : 200)
+                        .result(result(type))
+                        .version(1L).seqNo(seqNos.getAndIncrement()).primaryTerm(1L);
+            }));
+        }
+        boolean hasErrors = errors;
+        return BulkResponse.of(b -> b.took(Math.max(took, 0)).errors(hasErrors).items(items));
+    }
+
+    private static String result(OperationType type) {
+        switch (type) {
+            case Update:
+                return "updated";
+            case Delete:
+                return "deleted";
+            default:
+                return "created";
+        }
+    }
+
+    private Fixture rejection() {
+        ErrorResponse error = ErrorResponse.of(e -> e.status(TOO_MANY_REQUESTS).error(rejectedCause()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+        error.serialize(generator, mapper);
+        generator.close();
+        return new Fixture(TOO_MANY_REQUESTS, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static ErrorCause rejectedCause() {
+        return ErrorCause.of(c -> c.type(REJECTED_TYPE).reason("rejected execution of coordinating operation [stub]"));
+    }
+
+    /**
+     * 与 RestClientTransport 相同的请求体：普通请求为 JSON，bulk 等为 ndjson
+     */
+    private <RequestT> String requestBody(RequestT request, Endpoint<RequestT, ?, ?> endpoint) {
+        if (!endpoint.hasRequestBody()) {
+            return "";
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (request instanceof NdJsonpSerializable) {
+            writeNdJson((NdJsonpSerializable) request, out);
+        } else {
+            JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+            mapper.serialize(request, generator);
+            generator.close();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void writeNdJson(NdJsonpSerializable value, ByteArrayOutputStream out) {
+        Iterator<?> values = value._serializables();
+        while (values.hasNext()) {
+            Object item = values.next();
+            if (item instanceof NdJsonpSerializable && item != value) {
+                writeNdJson((NdJsonpSerializable) item, out);
+            } else {
+                JsonGenerator generator = mapper.jsonProvider().createGenerator(out);
+                mapper.serialize(item, generator);
+                generator.close();
+                out.write('\n');
+            }
+        }
+    }
+
+    private static <RequestT> String hash(RequestT request, Endpoint<RequestT, ?, ?> endpoint, String body) {
+        StringBuilder builder = new StringBuilder()
+                .append(endpoint.method(request)).append(' ')
+                .append(endpoint.requestUrl(request)).append('?')
+                .append(new TreeMap<>(endpoint.queryParameters(request))).append('\n')
+                .append(body);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(String endpointId, String name) {
+        return endpointId + "#" + name;
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("概率必须在 [0, 1] 之间");
+        }
+        return rate;
+    }
+
+    private static final class Fixture {
+
+        private final int status;
+
+        private final String body;
+
+        Fixture(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static final class Exchange<ResponseT> {
+
+        private final long delay;
+
+        private final Callable<ResponseT> response;
+
+        Exchange(long delay, Callable<ResponseT> response) {
+            this.delay = delay;
+            this.response = response;
+        }
+
+        ResponseT call() throws IOException {
+            try {
+                return response.call();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * 收到的一次请求
+     */
+    public static final class RecordedRequest {
+
+        private final String endpointId;
+
+        private final String method;
+
+        private final String url;
+
+        private final Map<String, String> queryParameters;
+
+        private final String hash;
+
+        private final String body;
+
+        private final boolean rejected;
+
+        RecordedRequest(String endpointId, String method, String url, Map<String, String> queryParameters,
+                        String hash, String body, boolean rejected) {
+            this.endpointId = endpointId;
+            this.method = method;
+            this.url = url;
+            this.queryParameters = queryParameters;
+            this.hash = hash;
+            this.body = body;
+            this.rejected = rejected;
+        }
+
+        public String getEndpointId() {
+            return endpointId;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Map<String, String> getQueryParameters() {
+            return queryParameters;
+        }
+
+        /**
+         * @return 请求哈希，即 classpath fixture 的文件名
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return 是否被整体拒绝（429）
+         */
+        public boolean isRejected() {
+            return rejected;
+        }
+    }
+
+}
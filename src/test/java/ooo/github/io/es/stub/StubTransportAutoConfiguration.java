@@ -0,0 +1,34 @@
+package ooo.github.io.es.stub;
+
+import co.elastic.clients.transport.ElasticsearchTransport;
+import ooo.github.io.es.ElasticsearchAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 以 {@link StubElasticsearchTransport} 作为 esClient 的 transport，ElasticsearchAutoConfiguration 中的
+ * RestClient transport 因 ConditionalOnMissingBean 不再创建；只在 elasticsearch.stub.enabled=true 时生效，
+ * 避免被 ElasticsearchAutoConfiguration 的组件扫描带入其他测试
+ *
+ * @author kaiqin
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "elasticsearch.stub.enabled", havingValue = "true")
+@AutoConfigureBefore(ElasticsearchAutoConfiguration.class)
+@EnableConfigurationProperties(StubTransportProperties.class)
+public class StubTransportAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(ElasticsearchTransport.class)
+    public StubElasticsearchTransport stubElasticsearchTransport(StubTransportProperties properties) {
+        return new StubElasticsearchTransport(properties.getSeed(), properties.getFixtures())
+                .latency(LatencyDistribution.fixed(properties.getLatencyMillis()))
+                .rejectionRate(properties.getRejectionRate())
+                .bulkItemFailureRate(properties.getBulkItemFailureRate());
+    }
+
+}
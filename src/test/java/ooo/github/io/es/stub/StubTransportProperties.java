@@ -0,0 +1,45 @@
+package ooo.github.io.es.stub;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 测试用 transport 配置，前缀 elasticsearch.stub，通常由 {@link AutoConfigureStubTransport} 的属性设置
+ *
+ * @author kaiqin
+ */
+@Data
+@ConfigurationProperties(prefix = "elasticsearch.stub")
+public class StubTransportProperties {
+
+    /**
+     * 是否使用 StubElasticsearchTransport 替换 RestClient transport
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 随机数种子
+     */
+    private Long seed = 42L;
+
+    /**
+     * classpath 下 fixture 的根目录
+     */
+    private String fixtures = StubElasticsearchTransport.DEFAULT_FIXTURES;
+
+    /**
+     * 每个请求的固定耗时（毫秒），更复杂的分布通过 StubElasticsearchTransport#latency 设置
+     */
+    private Long latencyMillis = 0L;
+
+    /**
+     * 每个请求整体返回 429 的概率
+     */
+    private Double rejectionRate = 0D;
+
+    /**
+     * 生成 bulk 响应时每个操作返回 429 的概率
+     */
+    private Double bulkItemFailureRate = 0D;
+
+}